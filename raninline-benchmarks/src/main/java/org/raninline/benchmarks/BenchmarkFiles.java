@@ -0,0 +1,88 @@
+package org.raninline.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The test resources of raninline that the benchmarks run on, found under the
+ * raninline.home system property (../raninline by default, when run from
+ * raninline-benchmarks).
+ */
+final class BenchmarkFiles {
+    private BenchmarkFiles() {
+    }
+
+    static Path raninlineHome() {
+        return Paths.get(System.getProperty("raninline.home", "../raninline")).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @param dir directory under src/test/resources, e.g. "construct"
+     */
+    static Path resources(String dir) {
+        Path path = raninlineHome().resolve("src/test/resources").resolve(dir);
+        if (!Files.isDirectory(path)) {
+            throw new IllegalStateException("Test resources not found: " + path + ", set -Draninline.home");
+        }
+        return path;
+    }
+
+    /**
+     * Copy the pristine sources (*.java1) of a directory as *.java.
+     *
+     * @return the copied files
+     */
+    static List<Path> copySources(Path from, Path to) throws IOException {
+        List<Path> copied = new ArrayList<>();
+        try (DirectoryStream<Path> sources = Files.newDirectoryStream(from, "*.java1")) {
+            for (Path source : sources) {
+                String name = source.getFileName().toString();
+                Path dest = to.resolve(name.substring(0, name.length() - 1));
+                Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
+                copied.add(dest);
+            }
+        }
+        copied.sort(Comparator.naturalOrder());
+        return copied;
+    }
+
+    /**
+     * Copy a log, with the source paths relative to raninline moved into a
+     * directory.
+     */
+    static void copyLog(Path from, Path to, String relativeDir, Path dir) throws IOException {
+        String log = new String(Files.readAllBytes(from), StandardCharsets.UTF_8);
+        Files.write(to, log.replace(relativeDir, dir.toString() + "/").getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Run the benchmarks of a class with the allocation profiler, as
+     * -prof gc does from the command line.
+     */
+    static void run(Class<?> benchmark) throws RunnerException {
+        new Runner(new OptionsBuilder().include(benchmark.getName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
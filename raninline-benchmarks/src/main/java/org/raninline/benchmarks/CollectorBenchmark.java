@@ -0,0 +1,114 @@
+package org.raninline.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.raninline.InstrumentHelper;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * What the collector does with each captured variable: parseVarType and
+ * parseValue of primitive, array, String and POJO values, and the XStream
+ * serialization of POJOs, with a new XStream per value as parseTypedValue does
+ * and with a shared one.
+ *
+ * parseValue writes the XML of POJOs in .inlinegen/serialized-data of the
+ * working directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollectorBenchmark {
+    public static class Pojo {
+        int id;
+        String name;
+        List<Integer> scores = new ArrayList<>();
+        Pojo parent;
+    }
+
+    @Param({ "int", "int[]", "String", "String[]", "pojo" })
+    String kind;
+
+    Object value;
+    String varType;
+    XStream xstream;
+
+    @Setup
+    public void setUp() {
+        InstrumentHelper.init();
+        switch (kind) {
+        case "int":
+            value = 42;
+            break;
+        case "int[]":
+            int[] ints = new int[64];
+            Arrays.setAll(ints, i -> i * 31);
+            value = ints;
+            break;
+        case "String":
+            value = "descriptorByName/hudson.plugins.emailext.plugins.recipients.ListRecipientProvider";
+            break;
+        case "String[]":
+            String[] strings = new String[16];
+            Arrays.setAll(strings, i -> "element-" + i);
+            value = strings;
+            break;
+        default:
+            Pojo parent = new Pojo();
+            parent.id = 1;
+            parent.name = "parent";
+            Pojo pojo = new Pojo();
+            pojo.id = 2;
+            pojo.name = "child";
+            pojo.parent = parent;
+            for (int i = 0; i < 16; i++) {
+                pojo.scores.add(i * 7);
+            }
+            value = pojo;
+        }
+        varType = InstrumentHelper.parseVarType(value);
+        xstream = new XStream();
+    }
+
+    @Benchmark
+    public String parseVarType() {
+        return InstrumentHelper.parseVarType(value);
+    }
+
+    @Benchmark
+    public String parseValue() {
+        return InstrumentHelper.parseValue(varType, value);
+    }
+
+    @Benchmark
+    public String xstreamNew() {
+        return new XStream().toXML(value);
+    }
+
+    @Benchmark
+    public String xstreamShared() {
+        return xstream.toXML(value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BenchmarkFiles.run(CollectorBenchmark.class);
+    }
+}
@@ -0,0 +1,115 @@
+package org.raninline.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+import org.raninline.Context;
+import org.raninline.Parser;
+
+/**
+ * The construction step over the logs of src/test/resources/construct:
+ * parseLog of the raninline logs into inline tests, and addInlineTest of the
+ * inline test logs into their source files. The sources are copied to a
+ * temporary directory, and restored before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructBenchmark {
+    private static final String RELATIVE_DIR = "src/test/resources/construct/";
+    private static final Pattern SRC_PATH = Pattern.compile(Pattern.quote(RELATIVE_DIR) + "\\w+\\.java");
+
+    Path workDir;
+    Path sourceDir;
+    List<Path> pristineSources;
+    List<String> raninlineLogs = new ArrayList<>();
+    List<String> srcPaths = new ArrayList<>();
+    String inlineTestLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path construct = BenchmarkFiles.resources("construct");
+        workDir = Files.createTempDirectory("raninline-construct");
+        sourceDir = Files.createDirectory(workDir.resolve("src"));
+        pristineSources = BenchmarkFiles.copySources(construct, Files.createDirectory(workDir.resolve("pristine")));
+        for (int i = 1; i <= 11; i++) {
+            Path log = construct.resolve("raninline-log-" + i + ".txt");
+            if (!Files.exists(log)) {
+                continue;
+            }
+            Matcher matcher = SRC_PATH.matcher(new String(Files.readAllBytes(log), StandardCharsets.UTF_8));
+            if (!matcher.find()) {
+                continue;
+            }
+            Path copy = workDir.resolve(log.getFileName());
+            BenchmarkFiles.copyLog(log, copy, RELATIVE_DIR, sourceDir);
+            raninlineLogs.add(copy.toString());
+            srcPaths.add(sourceDir.resolve(matcher.group().substring(RELATIVE_DIR.length())).toString());
+        }
+        // all the inline test logs in one
+        StringBuilder logs = new StringBuilder();
+        for (int i = 1; i <= 4; i++) {
+            logs.append(new String(Files.readAllBytes(construct.resolve("inlinetest-log" + i + ".txt")),
+                    StandardCharsets.UTF_8));
+        }
+        Path log = workDir.resolve("inlinetest-log.txt");
+        Files.write(log, logs.toString().replace(RELATIVE_DIR, sourceDir + "/").getBytes(StandardCharsets.UTF_8));
+        inlineTestLog = log.toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreSources() throws IOException {
+        for (Path source : pristineSources) {
+            Files.copy(source, sourceDir.resolve(source.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public void parseLog(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < raninlineLogs.size(); i++) {
+            Context ctx = new Context();
+            ctx.srcPath = srcPaths.get(i);
+            Parser.parseLog(raninlineLogs.get(i), ctx);
+            blackhole.consume(ctx.inlineTests);
+        }
+    }
+
+    @Benchmark
+    public void addInlineTest() throws IOException {
+        Parser.addInlineTest(inlineTestLog, "-1", null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BenchmarkFiles.run(ConstructBenchmark.class);
+    }
+}
@@ -0,0 +1,282 @@
+package org.raninline.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.raninline.Log;
+import org.raninline.Parser;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Macro benchmark of the construction step on the R0-tests corpus, 31
+ * subjects with their inline tests.
+ *
+ * The inline tests (the "new Here(...);" lines) are extracted into an inline
+ * test log and removed, with their imports, to get the base sources. R0-tests
+ * is pretty printed, so the line of a test in the log is the last base line
+ * before it: the end of the target statement, or the line of the if whose
+ * block it starts. Then addInlineTest rebuilds the whole corpus from the log,
+ * and each subject alone from its part of the log, warmup + iterations times.
+ *
+ * Reported: time and throughput of the corpus, time of each subject, the
+ * number of inline tests found back in the rebuilt sources, and the peak RSS
+ * and heap of the JVM. The report is also written to corpus-replay.json.
+ *
+ * Usage: java -cp target/benchmarks.jar org.raninline.benchmarks.CorpusReplay
+ * [corpusDir (../R0-tests)] [iterations (5)] [warmup (2)]
+ */
+public class CorpusReplay {
+    private static final Pattern INLINE_TEST = Pattern.compile("^\\s*(new Here\\(.*\\);)\\s*$");
+    private static final Set<String> INLINE_TEST_IMPORTS = new HashSet<>(Arrays.asList("import org.inlinetest.Here;",
+            "import static org.inlinetest.Here.group;"));
+    private static final String REPORT_FILE_NAME = "corpus-replay.json";
+
+    static class Subject {
+        String name;
+        Path baseDir;
+        Path runDir;
+        Path log;
+        List<String> files = new ArrayList<>();
+        Set<String> inlineTests = new HashSet<>(); // srcPath;line;test, as addInlineTest dedups them
+        int rebuiltInlineTests;
+        List<Long> nanos = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path corpus = Paths.get(args.length > 0 ? args[0] : "../R0-tests").toAbsolutePath().normalize();
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        if (!Files.isDirectory(corpus)) {
+            throw new IllegalStateException("Corpus not found: " + corpus);
+        }
+        // only the files that fail
+        Log.setLevel("error");
+        Path workDir = Files.createTempDirectory("raninline-replay");
+        try {
+            List<Subject> subjects = extract(corpus, workDir);
+            Path corpusLog = workDir.resolve("inlinetest-log.txt");
+            try (Writer writer = Files.newBufferedWriter(corpusLog, StandardCharsets.UTF_8)) {
+                for (Subject subject : subjects) {
+                    writer.write(new String(Files.readAllBytes(subject.log), StandardCharsets.UTF_8));
+                }
+            }
+            int files = 0;
+            int inlineTests = 0;
+            for (Subject subject : subjects) {
+                files += subject.files.size();
+                inlineTests += subject.inlineTests.size();
+            }
+            System.out.printf("%d subjects, %d files, %d inline tests; %d warmup and %d measured iterations%n",
+                    subjects.size(), files, inlineTests, warmup, iterations);
+
+            List<Long> corpusNanos = new ArrayList<>();
+            for (int i = 0; i < warmup + iterations; i++) {
+                for (Subject subject : subjects) {
+                    restore(subject);
+                }
+                long start = System.nanoTime();
+                Parser.addInlineTest(corpusLog.toString(), "-1", null);
+                long nanos = System.nanoTime() - start;
+                for (Subject subject : subjects) {
+                    restore(subject);
+                    long subjectStart = System.nanoTime();
+                    Parser.addInlineTest(subject.log.toString(), "-1", null);
+                    if (i >= warmup) {
+                        subject.nanos.add(System.nanoTime() - subjectStart);
+                    }
+                }
+                if (i >= warmup) {
+                    corpusNanos.add(nanos);
+                }
+                System.out.printf("%s %d: %.0f ms%n", i < warmup ? "warmup" : "iteration", i < warmup ? i + 1
+                        : i - warmup + 1, nanos / 1e6);
+            }
+            int rebuiltInlineTests = 0;
+            for (Subject subject : subjects) {
+                subject.rebuiltInlineTests = countInlineTests(subject);
+                rebuiltInlineTests += subject.rebuiltInlineTests;
+            }
+            report(subjects, corpusNanos, files, inlineTests, rebuiltInlineTests);
+        } finally {
+            BenchmarkFiles.delete(workDir);
+        }
+    }
+
+    /**
+     * Split the sources of each subject into base sources and an inline test
+     * log.
+     */
+    static List<Subject> extract(Path corpus, Path workDir) throws IOException {
+        List<Subject> subjects = new ArrayList<>();
+        List<Path> subjectDirs = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(corpus, Files::isDirectory)) {
+            dirs.forEach(subjectDirs::add);
+        }
+        Collections.sort(subjectDirs);
+        for (Path subjectDir : subjectDirs) {
+            Subject subject = new Subject();
+            subject.name = subjectDir.getFileName().toString();
+            subject.baseDir = Files.createDirectories(workDir.resolve("base").resolve(subject.name));
+            subject.runDir = Files.createDirectories(workDir.resolve("run").resolve(subject.name));
+            subject.log = workDir.resolve(subject.name + ".txt");
+            List<Path> sources = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(subjectDir)) {
+                paths.filter(path -> path.toString().endsWith(".java")).sorted().forEach(sources::add);
+            }
+            try (Writer log = Files.newBufferedWriter(subject.log, StandardCharsets.UTF_8)) {
+                for (Path source : sources) {
+                    Path relative = subjectDir.relativize(source);
+                    Path base = subject.baseDir.resolve(relative);
+                    String srcPath = subject.runDir.resolve(relative).toString();
+                    Files.createDirectories(base.getParent());
+                    // some sources are not UTF-8, keep their bytes
+                    List<String> lines = Files.readAllLines(source, StandardCharsets.ISO_8859_1);
+                    StringBuilder baseSource = new StringBuilder();
+                    int baseLine = 0;
+                    boolean hasInlineTests = false;
+                    for (String line : lines) {
+                        Matcher matcher = INLINE_TEST.matcher(line);
+                        if (matcher.matches() && baseLine > 0) {
+                            String row = srcPath + ";" + baseLine + ";" + matcher.group(1);
+                            if (subject.inlineTests.add(row)) {
+                                log.write(row + "\n");
+                            }
+                            hasInlineTests = true;
+                        } else if (!INLINE_TEST_IMPORTS.contains(line.trim())) {
+                            baseSource.append(line).append('\n');
+                            baseLine++;
+                        }
+                    }
+                    Files.write(base, baseSource.toString().getBytes(StandardCharsets.ISO_8859_1));
+                    if (hasInlineTests) {
+                        subject.files.add(srcPath);
+                    }
+                }
+            }
+            if (!subject.files.isEmpty()) {
+                subjects.add(subject);
+            }
+        }
+        return subjects;
+    }
+
+    private static void restore(Subject subject) throws IOException {
+        try (Stream<Path> paths = Files.walk(subject.baseDir)) {
+            for (Path base : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                Path run = subject.runDir.resolve(subject.baseDir.relativize(base));
+                Files.createDirectories(run.getParent());
+                Files.copy(base, run, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static int countInlineTests(Subject subject) throws IOException {
+        int count = 0;
+        for (String srcPath : subject.files) {
+            for (String line : Files.readAllLines(Paths.get(srcPath), StandardCharsets.ISO_8859_1)) {
+                if (INLINE_TEST.matcher(line).matches()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.isEmpty() ? 0 : sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * @return peak resident set size in kB (VmHWM), or -1 if not on Linux
+     */
+    private static long peakRssKb() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException e) {
+            // not available
+        }
+        return -1;
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void report(List<Subject> subjects, List<Long> corpusNanos, int files, int inlineTests,
+            int rebuiltInlineTests) throws IOException {
+        double seconds = median(corpusNanos) / 1e9;
+        long peakRssKb = peakRssKb();
+        long peakHeapBytes = peakHeapBytes();
+        System.out.printf("%n%-55s %6s %7s %8s %10s %10s%n", "subject", "files", "tests", "rebuilt", "median ms",
+                "tests/s");
+        List<Map<String, Object>> subjectReports = new ArrayList<>();
+        for (Subject subject : subjects) {
+            double subjectSeconds = median(subject.nanos) / 1e9;
+            System.out.printf("%-55s %6d %7d %8d %10.1f %10.0f%n", subject.name, subject.files.size(),
+                    subject.inlineTests.size(), subject.rebuiltInlineTests, subjectSeconds * 1e3,
+                    subject.inlineTests.size() / Math.max(1e-9, subjectSeconds));
+            Map<String, Object> subjectReport = new LinkedHashMap<>();
+            subjectReport.put("subject", subject.name);
+            subjectReport.put("files", subject.files.size());
+            subjectReport.put("inlineTests", subject.inlineTests.size());
+            subjectReport.put("rebuiltInlineTests", subject.rebuiltInlineTests);
+            subjectReport.put("nanos", subject.nanos);
+            subjectReports.add(subjectReport);
+        }
+        System.out.printf("%ncorpus: median %.0f ms over %d iterations, %.1f files/s, %.0f tests/s%n", seconds * 1e3,
+                corpusNanos.size(), files / Math.max(1e-9, seconds), inlineTests / Math.max(1e-9, seconds));
+        System.out.printf("rebuilt %d of %d inline tests%n", rebuiltInlineTests, inlineTests);
+        System.out.printf("peak RSS %s, peak heap %d MB%n", peakRssKb < 0 ? "n/a" : (peakRssKb / 1024) + " MB",
+                peakHeapBytes >> 20);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("files", files);
+        report.put("inlineTests", inlineTests);
+        report.put("rebuiltInlineTests", rebuiltInlineTests);
+        report.put("corpusNanos", corpusNanos);
+        report.put("filesPerSecond", files / Math.max(1e-9, seconds));
+        report.put("testsPerSecond", inlineTests / Math.max(1e-9, seconds));
+        report.put("peakRssKb", peakRssKb);
+        report.put("peakHeapBytes", peakHeapBytes);
+        report.put("subjects", subjectReports);
+        Files.write(Paths.get(REPORT_FILE_NAME), new GsonBuilder().setPrettyPrinting().create().toJson(report)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
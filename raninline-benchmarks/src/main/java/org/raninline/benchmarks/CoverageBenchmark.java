@@ -0,0 +1,138 @@
+package org.raninline.benchmarks;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.raninline.InstrumentHelper;
+
+/**
+ * The coverage check of each captured execution: getCoverageRateFromAllClasses
+ * dumps the execution data of the JaCoCo agent and analyzes every class of the
+ * classes directory, and canAddInlineTest compares it with the coverage before
+ * and after the target statement.
+ *
+ * The classes directory holds the sources of src/test/resources/instrument
+ * that compile on their own, loaded so that the agent has their probes. The
+ * fork runs with the agent that mvn package copies to target/jacocoagent.jar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-javaagent:target/jacocoagent.jar")
+@State(Scope.Benchmark)
+public class CoverageBenchmark {
+    private static final String CLAZZ_NAME = "A";
+    private static final int LINE_NUMBER = 13;
+
+    Path workDir;
+    String classesDirectory;
+
+    @Setup
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("raninline-coverage");
+        Path sourceDir = Files.createDirectory(workDir.resolve("src"));
+        Path classesDir = Files.createDirectory(workDir.resolve("classes"));
+        classesDirectory = classesDir.toString();
+        int compiled = compile(BenchmarkFiles.copySources(BenchmarkFiles.resources("instrument"), sourceDir),
+                classesDir);
+        if (compiled == 0) {
+            throw new IllegalStateException("No source compiled, is the JDK missing?");
+        }
+        load(classesDir);
+        InstrumentHelper.addCoverageRateBefore(LINE_NUMBER, CLAZZ_NAME, classesDirectory);
+        InstrumentHelper.addCoverageRateAfter(LINE_NUMBER, CLAZZ_NAME, classesDirectory);
+    }
+
+    /**
+     * Compile each source alone; the ones that need other classes are
+     * skipped.
+     *
+     * @return number of compiled sources
+     */
+    private static int compile(List<Path> sources, Path classesDir) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return 0;
+        }
+        int compiled = 0;
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            for (Path source : sources) {
+                Iterable<? extends JavaFileObject> units = fileManager
+                        .getJavaFileObjectsFromFiles(Collections.singletonList(source.toFile()));
+                DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+                List<String> options = Arrays.asList("-d", classesDir.toString(), "-g", "-nowarn");
+                if (compiler.getTask(null, fileManager, diagnostics, options, null, units).call()) {
+                    compiled++;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static void load(Path classesDir) throws IOException {
+        List<String> classNames;
+        try (Stream<Path> paths = Files.walk(classesDir)) {
+            classNames = paths.filter(path -> path.toString().endsWith(".class")).map(path -> {
+                String name = classesDir.relativize(path).toString();
+                return name.substring(0, name.length() - ".class".length()).replace('/', '.');
+            }).collect(Collectors.toList());
+        }
+        URLClassLoader loader = new URLClassLoader(new URL[] { classesDir.toUri().toURL() },
+                CoverageBenchmark.class.getClassLoader());
+        for (String className : classNames) {
+            try {
+                Class.forName(className, true, loader);
+            } catch (Throwable e) {
+                // a class whose initializer fails still has its probes
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public CoverageBuilder getCoverageRateFromAllClasses() {
+        return InstrumentHelper.getCoverageRateFromAllClasses(LINE_NUMBER, classesDirectory);
+    }
+
+    @Benchmark
+    public boolean canAddInlineTest() {
+        return InstrumentHelper.canAddInlineTest(LINE_NUMBER, CLAZZ_NAME, classesDirectory);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BenchmarkFiles.run(CoverageBenchmark.class);
+    }
+}
@@ -0,0 +1,108 @@
+package org.raninline.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.raninline.Context;
+import org.raninline.Parser;
+import org.raninline.TargetScanner;
+
+/**
+ * InlineTestConstructor on two large sources, Element (construct) and
+ * OgnlParserTokenManager (instrument): every target statement that
+ * TargetScanner finds gets testsPerTarget inline tests, which
+ * constructInlineTestHelper parses, inserts and prints back. The source is
+ * restored before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InlineTestConstructorBenchmark {
+    @Param({ "construct/Element", "instrument/OgnlParserTokenManager" })
+    String source;
+
+    @Param({ "1", "10" })
+    int testsPerTarget;
+
+    Path workDir;
+    Path pristine;
+    String srcPath;
+    Map<Integer, Set<String>> inlineTests = new HashMap<>();
+    Context ctx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String dir = source.substring(0, source.indexOf('/'));
+        String name = source.substring(dir.length() + 1);
+        workDir = Files.createTempDirectory("raninline-constructor");
+        Path sourceDir = Files.createDirectory(workDir.resolve("src"));
+        pristine = workDir.resolve(name + ".java1");
+        Files.copy(BenchmarkFiles.resources(dir).resolve(name + ".java1"), pristine);
+        Path src = sourceDir.resolve(name + ".java");
+        Files.copy(pristine, src);
+        srcPath = src.toString();
+        Path manifest = workDir.resolve("targets.txt");
+        TargetScanner.scan(sourceDir.toString(), manifest.toString());
+        for (String row : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            int line = Integer.parseInt(row.split(";")[1]);
+            Set<String> tests = new LinkedHashSet<>();
+            for (int i = 0; i < testsPerTarget; i++) {
+                tests.add("new Here(\"Unit\", " + line + ").given(a, " + i + ").checkEq(b, " + (i + 1) + ");");
+            }
+            inlineTests.put(line, tests);
+        }
+        if (inlineTests.isEmpty()) {
+            throw new IllegalStateException("No target statement in " + source);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreSource() throws IOException {
+        Files.copy(pristine, Paths.get(srcPath), StandardCopyOption.REPLACE_EXISTING);
+        ctx = new Context();
+        for (Map.Entry<Integer, Set<String>> entry : inlineTests.entrySet()) {
+            ctx.inlineTests.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public Context construct() throws IOException {
+        Parser.constructInlineTestHelper(srcPath, ctx);
+        return ctx;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BenchmarkFiles.run(InlineTestConstructorBenchmark.class);
+    }
+}
@@ -0,0 +1,81 @@
+package org.raninline.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.raninline.IT_Matcher;
+import org.raninline.IT_String;
+
+/**
+ * The coverage shims that instrumented target statements call, IT_String and
+ * IT_Matcher, against the JDK methods they replace.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringShimBenchmark {
+    @Param({ "16", "1024" })
+    int length;
+
+    String text;
+    Pattern pattern;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(i % 8 == 0 ? ',' : (char) ('a' + i % 26));
+        }
+        text = sb.toString();
+        pattern = Pattern.compile("[a-c]+");
+    }
+
+    @Benchmark
+    public String jdkReplaceChar() {
+        return text.replace(',', ';');
+    }
+
+    @Benchmark
+    public String shimReplaceChar() {
+        return new IT_String(text).replace(',', ';');
+    }
+
+    @Benchmark
+    public String jdkReplaceLiteral() {
+        return text.replace(",", ", ");
+    }
+
+    @Benchmark
+    public String shimReplaceLiteral() {
+        return new IT_String(text).replace(",", ", ");
+    }
+
+    @Benchmark
+    public String jdkReplaceAll() {
+        return pattern.matcher(text).replaceAll("<$0>");
+    }
+
+    @Benchmark
+    public String shimReplaceAll() {
+        return new IT_Matcher(pattern.matcher(text), text).replaceAll("<$0>");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        BenchmarkFiles.run(StringShimBenchmark.class);
+    }
+}
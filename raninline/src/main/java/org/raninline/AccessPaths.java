@@ -0,0 +1,112 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+
+/**
+ * Reduces the variables read by a target statement to the minimal set of
+ * access paths. FindVariable captures a field path such as "config.x" for
+ * each field read, and an object such as "config" only when the statement
+ * needs the object itself: it calls a method on it, passes it or compares it.
+ * A path is redundant when an object on it is captured anyway, since the
+ * object is serialized with all its fields. "this.x" and "x" are the same path
+ * when no local variable or parameter named x hides the field.
+ */
+public class AccessPaths {
+    private static final Pattern PATH = Pattern
+            .compile("\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*(\\.\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*)*");
+    private static final String THIS = "this.";
+
+    /**
+     * Remove the redundant paths.
+     *
+     * @param paths  variables captured before the target statement
+     * @param target target statement or if condition
+     */
+    public static void minimize(Set<String> paths, Node target) {
+        Set<String> locals = null;
+        for (String path : new ArrayList<>(paths)) {
+            if (path.startsWith(THIS) && PATH.matcher(path.substring(THIS.length())).matches()) {
+                if (locals == null) {
+                    locals = localNames(target);
+                }
+                String field = path.substring(THIS.length());
+                if (!locals.contains(root(field))) {
+                    paths.remove(path);
+                    paths.add(field);
+                }
+            }
+        }
+        for (String path : new ArrayList<>(paths)) {
+            String prefix = capturedPrefix(path, paths);
+            if (prefix != null) {
+                Log.debug("not captured " + path + ", " + prefix + " is");
+                paths.remove(path);
+            }
+        }
+    }
+
+    /**
+     * @return the shortest strict prefix of a field path that is captured, or
+     *         null
+     */
+    static String capturedPrefix(String path, Set<String> paths) {
+        String name = path.startsWith(THIS) ? path.substring(THIS.length()) : path;
+        if (!PATH.matcher(name).matches()) {
+            return null;
+        }
+        for (int dot = path.indexOf('.', path.length() - name.length()); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+            String prefix = path.substring(0, dot);
+            if (paths.contains(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    private static String root(String path) {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+
+    /**
+     * @return names of the parameters and local variables declared anywhere in
+     *         the methods, initializers, lambdas and catch clauses around a
+     *         node, up to its class
+     */
+    static Set<String> localNames(Node node) {
+        Set<String> names = new HashSet<>();
+        for (Node current = node; current != null; current = current.getParentNode().orElse(null)) {
+            if (current instanceof TypeDeclaration || current instanceof ObjectCreationExpr) {
+                break;
+            }
+            List<Parameter> parameters = new ArrayList<>();
+            if (current instanceof CallableDeclaration) {
+                parameters.addAll(((CallableDeclaration<?>) current).getParameters());
+            } else if (current instanceof LambdaExpr) {
+                parameters.addAll(((LambdaExpr) current).getParameters());
+            } else if (current instanceof CatchClause) {
+                parameters.add(((CatchClause) current).getParameter());
+            }
+            parameters.forEach(p -> names.add(p.getNameAsString()));
+            if (current instanceof CallableDeclaration || current instanceof LambdaExpr
+                    || current instanceof InitializerDeclaration) {
+                current.findAll(VariableDeclarator.class).forEach(v -> names.add(v.getNameAsString()));
+            }
+        }
+        return names;
+    }
+}
@@ -2,6 +2,8 @@ package org.raninline;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class App {
     /**
@@ -10,6 +12,7 @@ public class App {
      * @param args
      */
     public static void main(String[] args) throws IOException {
+        args = parseOptions(args);
         String task = args[0];
         if (task.equals("instrument") || task.equals("i")) {
             // Instrument
@@ -46,7 +49,15 @@ public class App {
                 lineNumberFromInput = "-1";
                 filePathFromInput = null;
             }
-            Parser.addInlineTest(logFilePath, lineNumberFromInput, filePathFromInput);
+            if (Constant.validateInlineTests && Constant.compileClasspath == null) {
+                // the classpath of this tool would not resolve the project, nor Here
+                System.out.println("--validate needs the classpath of the project: --classpath=...");
+                System.exit(1);
+            }
+            if (Parser.addInlineTest(logFilePath, lineNumberFromInput, filePathFromInput) > 0) {
+                // some files could not be constructed, they are reported above
+                System.exit(1);
+            }
         } else if (task.equals("construct-inline-test") || task.equals("c")) {
             // Construct inline tests from log file, the log file contains variables and
             // their values. It is now deprecated because we generate inline tests in memory
@@ -55,8 +66,104 @@ public class App {
             String lineNumber = args[2];
             String logFilePath = args[3];
             Parser.constructInlineTest(filePath, lineNumber, logFilePath);
+        } else if (task.equals("convert-log") || task.equals("v")) {
+            // Convert a log between the legacy text format and the binary format,
+            // the direction depends on the format of the input log.
+            String inputLogFilePath = args[1];
+            String outputLogFilePath = args[2];
+            if (EventLog.isBinary(inputLogFilePath)) {
+                EventLog.convertToText(inputLogFilePath, outputLogFilePath);
+            } else {
+                EventLog.convertToBinary(inputLogFilePath, outputLogFilePath);
+            }
+        } else if (task.equals("index") || task.equals("x")) {
+            // Write the index of a log (text or binary) next to it, so that
+            // add-inline-test with a line number can seek to the records.
+            String logFilePath = args[1];
+            LogIndex.build(logFilePath);
+        } else if (task.equals("scan") || task.equals("s")) {
+            // List the target statements of a source tree without changing it.
+            String sourceRoot = args[1];
+            String manifestPath;
+            if (args.length >= 3) {
+                manifestPath = args[2];
+            } else {
+                manifestPath = Utils.createDir(Constant.INLINE_GEN_DIR_NAME) + "/" + Constant.TARGETS_FILE_NAME;
+            }
+            if (TargetScanner.scan(sourceRoot, manifestPath) > 0) {
+                // some files could not be scanned, they are reported above
+                System.exit(1);
+            }
+        } else if (task.equals("plan") || task.equals("p")) {
+            // Join the target manifest with the hit counts of a count-only run
+            // into the plan of instrument-batch.
+            String manifestPath = args[1];
+            String histogramPath = args[2];
+            String planPath;
+            if (args.length >= 4) {
+                planPath = args[3];
+            } else {
+                planPath = Utils.createDir(Constant.INLINE_GEN_DIR_NAME) + "/" + Constant.PLAN_FILE_NAME;
+            }
+            TargetPlanner.plan(manifestPath, histogramPath, planPath);
+        } else if (task.equals("instrument-batch") || task.equals("b")) {
+            // Instrument the target statements of a plan.
+            String planPath = args[1];
+            String logFilePath = args[2];
+            String inlineTestFilePath;
+            if (args.length >= 4) {
+                inlineTestFilePath = args[3];
+            } else {
+                inlineTestFilePath = Paths.get(logFilePath).getParent().toString() + "/inlinetest-log.txt";
+            }
+            String classesDirectory = null;
+            if (args.length >= 5) {
+                classesDirectory = args[4];
+            }
+            Parser.instrumentBatch(planPath, logFilePath, inlineTestFilePath, classesDirectory);
         } else {
             System.out.println("Invalid task");
         }
     }
+
+    /**
+     * Set the flags given as "--option" arguments and remove them.
+     *
+     * @param args
+     * @return the remaining arguments
+     */
+    static String[] parseOptions(String[] args) {
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--external-sort")) {
+                Constant.externalSort = true;
+            } else if (arg.startsWith("--external-sort-run-mb=")) {
+                Constant.externalSort = true;
+                Constant.externalSortRunBytes = Long.parseLong(arg.substring(arg.indexOf('=') + 1)) << 20;
+            } else if (arg.startsWith("--threads=")) {
+                Constant.constructThreads = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.equals("--emit=table")) {
+                Constant.tableEmission = true;
+            } else if (arg.equals("--validate")) {
+                Constant.validateInlineTests = true;
+            } else if (arg.equals("--splice")) {
+                Constant.spliceOutput = true;
+            } else if (arg.equals("--placement=minimal")) {
+                Constant.minimalPlacement = true;
+            } else if (arg.equals("--report-sizes")) {
+                Constant.reportMethodSizes = true;
+            } else if (arg.equals("--count-only")) {
+                Constant.countOnly = true;
+            } else if (arg.equals("--resolve")) {
+                Constant.resolveVariables = true;
+            } else if (arg.startsWith("--classpath=")) {
+                Constant.compileClasspath = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("--")) {
+                System.out.println("Unknown option " + arg);
+            } else {
+                rest.add(arg);
+            }
+        }
+        return rest.toArray(new String[0]);
+    }
 }
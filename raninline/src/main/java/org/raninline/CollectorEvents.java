@@ -0,0 +1,76 @@
+package org.raninline;
+
+/**
+ * Java Flight Recorder events of the phases of {@link InstrumentHelper}, to
+ * line up its overhead with GC, allocation and test timelines in JMC.
+ *
+ * This is the JDK 8 version: every method is empty, so the JIT removes the
+ * calls. The multi-release jar also contains the version of
+ * src/main/java11, used on JDK 11 and later, which emits a
+ * org.raninline.CollectorPhase event per call. The events are disabled by
+ * default; enable them in the settings of a recording, e.g.
+ * -XX:StartFlightRecording:settings=raninline.jfc with
+ * &lt;event name="org.raninline.CollectorPhase"&gt;&lt;setting
+ * name="enabled"&gt;true&lt;/setting&gt;&lt;/event&gt;.
+ */
+final class CollectorEvents {
+    private CollectorEvents() {
+    }
+
+    /**
+     * An instrumented target statement called the collector.
+     *
+     * @param target srcPath:line
+     * @param info   prompt of the call, e.g. {@link Constant#TARGET_STMT_START}
+     */
+    static void probe(String target, String info) {
+    }
+
+    /**
+     * A variable of a target statement was captured.
+     *
+     * @param target srcPath:line
+     * @param start  System.nanoTime() when the capture started
+     */
+    static void capture(String target, long start) {
+    }
+
+    /**
+     * A value was serialized with XStream.
+     *
+     * @param target     srcPath:line, or null if not known
+     * @param start      System.nanoTime() when the serialization started
+     * @param serialized the XML
+     */
+    static void serialization(String target, long start, String serialized) {
+    }
+
+    /**
+     * A JaCoCo snapshot of all classes was taken and analyzed.
+     *
+     * @param target srcPath:line
+     * @param start  System.nanoTime() when the snapshot started
+     */
+    static void coverage(String target, long start) {
+    }
+
+    /**
+     * An inline test was accepted or rejected by its coverage.
+     *
+     * @param target   srcPath:line
+     * @param start    System.nanoTime() when the decision started
+     * @param accepted
+     */
+    static void decision(String target, long start, boolean accepted) {
+    }
+
+    /**
+     * Inline tests were written to a file.
+     *
+     * @param destPath
+     * @param start       System.nanoTime() when the flush started
+     * @param inlineTests number of inline tests written
+     */
+    static void flush(String destPath, long start, int inlineTests) {
+    }
+}
@@ -0,0 +1,411 @@
+package org.raninline;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Where {@link InstrumentHelper} spends its time: a latency histogram per
+ * phase of the collector, and per target statement the number of captured
+ * executions, built and accepted inline tests, and the time spent in each
+ * phase. Counters are LongAdders and histograms have fixed log-linear buckets,
+ * so recording does not lock.
+ *
+ * The stats are exposed as an MBean (see {@link CollectorStatsMBean}) while the
+ * tests run, and written to {@link Constant#COLLECTOR_STATS_FILE_NAME} at
+ * teardown, targets sorted by time, to find the ones to exclude. The file is
+ * locked while it is updated, so that forked test JVMs add up their stats.
+ */
+public class CollectorStats implements CollectorStatsMBean {
+    public enum Phase {
+        SERIALIZE, // parseVarType and parseTypedValue of a captured variable
+        COVERAGE, // coverage of all classes before and after a target statement
+        ACCEPT, // canAddInlineTest
+        FLUSH, // saveInlineTestsToFile
+    }
+
+    static final String OBJECT_NAME = "org.raninline:type=CollectorStats";
+    static final CollectorStats INSTANCE = new CollectorStats();
+    private static final int MAX_SLOWEST_TARGETS = 20;
+    private static boolean registered = false;
+
+    /**
+     * Latencies in nanoseconds, in buckets of a quarter of a power of two, so
+     * that a percentile is within 25% of the recorded value.
+     */
+    static class Histogram {
+        private static final int SUB_BUCKET_BITS = 2;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 << SUB_BUCKET_BITS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            total.add(nanos);
+            long current;
+            while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            }
+        }
+
+        /**
+         * Add the latencies of a summary, see {@link #summary()}.
+         *
+         * @param summary
+         */
+        void add(JsonObject summary) {
+            count.add(summary.get("count").getAsLong());
+            total.add(summary.get("totalNanos").getAsLong());
+            long nanos = summary.get("maxNanos").getAsLong();
+            long current;
+            while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            }
+            if (summary.has("buckets")) {
+                for (Map.Entry<String, JsonElement> bucket : summary.getAsJsonObject("buckets").entrySet()) {
+                    buckets.addAndGet(Integer.parseInt(bucket.getKey()), bucket.getValue().getAsLong());
+                }
+            }
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < (1 << SUB_BUCKET_BITS)) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        /**
+         * @return largest value of a bucket
+         */
+        static long upperBound(int bucket) {
+            if (bucket < (1 << SUB_BUCKET_BITS)) {
+                return bucket;
+            }
+            int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+            long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+            return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return upper bound of the bucket of the quantile, at most the max
+         */
+        long percentile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count.sum());
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count());
+            summary.put("totalNanos", total());
+            summary.put("p50Nanos", percentile(0.5));
+            summary.put("p90Nanos", percentile(0.9));
+            summary.put("p99Nanos", percentile(0.99));
+            summary.put("maxNanos", max.get());
+            // the non-empty buckets, to add up the histograms of several JVMs
+            Map<Integer, Long> nonEmpty = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length(); i++) {
+                if (buckets.get(i) > 0) {
+                    nonEmpty.put(i, buckets.get(i));
+                }
+            }
+            summary.put("buckets", nonEmpty);
+            return summary;
+        }
+    }
+
+    static class TargetStats {
+        final LongAdder executions = new LongAdder();
+        final LongAdder inlineTests = new LongAdder();
+        final LongAdder accepted = new LongAdder();
+        final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+        final Histogram calls = new Histogram(); // time of each call of the collector
+
+        TargetStats() {
+            for (int i = 0; i < phaseNanos.length; i++) {
+                phaseNanos[i] = new LongAdder();
+            }
+        }
+    }
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Map<String, TargetStats> targets = new ConcurrentHashMap<>();
+
+    CollectorStats() {
+        reset();
+    }
+
+    /**
+     * Register the MBean of the collector once, in the platform MBean server.
+     */
+    static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            Log.error("cannot register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    private TargetStats target(String target) {
+        TargetStats stats = targets.get(target);
+        if (stats == null) {
+            stats = targets.computeIfAbsent(target, k -> new TargetStats());
+        }
+        return stats;
+    }
+
+    /**
+     * @param phase
+     * @param target srcPath:line, or null if the phase is not for one target
+     * @param start  System.nanoTime() when the phase started
+     */
+    void record(Phase phase, String target, long start) {
+        long nanos = System.nanoTime() - start;
+        phases[phase.ordinal()].record(nanos);
+        if (target != null) {
+            target(target).phaseNanos[phase.ordinal()].add(nanos);
+        }
+    }
+
+    /**
+     * @param target srcPath:line
+     * @param start  System.nanoTime() when the collector was called
+     */
+    void recordCall(String target, long start) {
+        target(target).calls.record(System.nanoTime() - start);
+    }
+
+    void recordExecution(String target) {
+        target(target).executions.increment();
+    }
+
+    void recordInlineTest(String target, boolean accepted) {
+        TargetStats stats = target(target);
+        stats.inlineTests.increment();
+        if (accepted) {
+            stats.accepted.increment();
+        }
+    }
+
+    private long sum(Function<TargetStats, LongAdder> counter) {
+        long sum = 0;
+        for (TargetStats stats : targets.values()) {
+            sum += counter.apply(stats).sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getExecutions() {
+        return sum(s -> s.executions);
+    }
+
+    @Override
+    public long getInlineTests() {
+        return sum(s -> s.inlineTests);
+    }
+
+    @Override
+    public long getAcceptedInlineTests() {
+        return sum(s -> s.accepted);
+    }
+
+    @Override
+    public String[] getPhases() {
+        String[] lines = new String[phases.length];
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = phases[phase.ordinal()];
+            lines[phase.ordinal()] = String.format("%s count=%d total=%.1fms p50=%dns p99=%dns", phase,
+                    histogram.count(), histogram.total() / 1e6, histogram.percentile(0.5),
+                    histogram.percentile(0.99));
+        }
+        return lines;
+    }
+
+    @Override
+    public String[] getSlowestTargets() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, TargetStats> entry : sortedTargets()) {
+            if (lines.size() >= MAX_SLOWEST_TARGETS) {
+                break;
+            }
+            TargetStats stats = entry.getValue();
+            lines.add(String.format("%s total=%.1fms executions=%d accepted=%d/%d", entry.getKey(),
+                    stats.calls.total() / 1e6, stats.executions.sum(), stats.accepted.sum(), stats.inlineTests.sum()));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public String getSummary() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(summary());
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+        targets.clear();
+    }
+
+    private List<Map.Entry<String, TargetStats>> sortedTargets() {
+        List<Map.Entry<String, TargetStats>> entries = new ArrayList<>(targets.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue().calls.total(), e1.getValue().calls.total()));
+        return entries;
+    }
+
+    Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("executions", getExecutions());
+        summary.put("inlineTests", getInlineTests());
+        summary.put("acceptedInlineTests", getAcceptedInlineTests());
+        Map<String, Object> phaseSummaries = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            phaseSummaries.put(phase.name(), phases[phase.ordinal()].summary());
+        }
+        summary.put("phases", phaseSummaries);
+        List<Map<String, Object>> targetSummaries = new ArrayList<>();
+        for (Map.Entry<String, TargetStats> entry : sortedTargets()) {
+            TargetStats stats = entry.getValue();
+            Map<String, Object> target = new LinkedHashMap<>();
+            target.put("target", entry.getKey());
+            target.put("executions", stats.executions.sum());
+            target.put("inlineTests", stats.inlineTests.sum());
+            target.put("acceptedInlineTests", stats.accepted.sum());
+            target.put("calls", stats.calls.summary());
+            Map<String, Long> phaseNanos = new LinkedHashMap<>();
+            for (Phase phase : Phase.values()) {
+                phaseNanos.put(phase.name(), stats.phaseNanos[phase.ordinal()].sum());
+            }
+            target.put("phaseNanos", phaseNanos);
+            targetSummaries.add(target);
+        }
+        summary.put("targets", targetSummaries);
+        return summary;
+    }
+
+    /**
+     * Add the stats of a summary, see {@link #summary()}.
+     *
+     * @param summary
+     */
+    void add(JsonObject summary) {
+        JsonObject phaseSummaries = summary.getAsJsonObject("phases");
+        for (Phase phase : Phase.values()) {
+            if (phaseSummaries.has(phase.name())) {
+                phases[phase.ordinal()].add(phaseSummaries.getAsJsonObject(phase.name()));
+            }
+        }
+        for (JsonElement element : summary.getAsJsonArray("targets")) {
+            JsonObject target = element.getAsJsonObject();
+            TargetStats stats = target(target.get("target").getAsString());
+            stats.executions.add(target.get("executions").getAsLong());
+            stats.inlineTests.add(target.get("inlineTests").getAsLong());
+            stats.accepted.add(target.get("acceptedInlineTests").getAsLong());
+            stats.calls.add(target.getAsJsonObject("calls"));
+            JsonObject phaseNanos = target.getAsJsonObject("phaseNanos");
+            for (Phase phase : Phase.values()) {
+                if (phaseNanos.has(phase.name())) {
+                    stats.phaseNanos[phase.ordinal()].add(phaseNanos.get(phase.name()).getAsLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the stats of this JVM to the summary in a JSON file.
+     *
+     * @param path
+     */
+    void writeSummary(Path path) {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+                FileChannel channel = file.getChannel()) {
+            FileLock lock = channel.lock();
+            try {
+                update(channel);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Add the stats of this JVM to the summary of a locked channel.
+     */
+    private void update(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        }
+        String previous = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        CollectorStats merged = new CollectorStats();
+        if (!previous.trim().isEmpty()) {
+            try {
+                merged.add(JsonParser.parseString(previous).getAsJsonObject());
+            } catch (RuntimeException e) {
+                Log.error("cannot read the collector stats, overwriting them: " + e);
+                merged = new CollectorStats();
+            }
+        }
+        merged.add(JsonParser.parseString(getSummary()).getAsJsonObject());
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer summary = ByteBuffer.wrap(merged.getSummary().getBytes(StandardCharsets.UTF_8));
+        while (summary.hasRemaining()) {
+            channel.write(summary);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.raninline;
+
+/**
+ * Management interface of {@link CollectorStats}, registered as
+ * {@link CollectorStats#OBJECT_NAME}.
+ */
+public interface CollectorStatsMBean {
+    /**
+     * @return captured executions of target statements
+     */
+    long getExecutions();
+
+    /**
+     * @return inline tests built from the captured executions
+     */
+    long getInlineTests();
+
+    /**
+     * @return inline tests that changed the coverage and were saved
+     */
+    long getAcceptedInlineTests();
+
+    /**
+     * @return one line per phase of the collector: count, total and
+     *         percentiles of its latency
+     */
+    String[] getPhases();
+
+    /**
+     * @return the target statements the collector spent the most time on
+     */
+    String[] getSlowestTargets();
+
+    /**
+     * @return the summary written at teardown, as JSON
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -26,6 +26,20 @@ public class Constant {
                         "byte", "short",
                         "String", "int[]", "long[]", "double[]", "float[]", "boolean[]", "char[]", "byte[]", "short[]",
                         "String[]");
+        // static types whose values are not captured when names are resolved (see VariableResolver):
+        // handles and synchronizers that do not serialize or only make sense by identity, and subtypes
+        final static List<String> UNCAPTURED_TYPES = Arrays.asList("java.lang.Thread", "java.lang.ThreadGroup",
+                        "java.lang.ClassLoader", "java.lang.Runnable", "java.lang.AutoCloseable",
+                        "java.util.stream.BaseStream", "java.util.Iterator", "java.util.Spliterator",
+                        "java.util.concurrent.locks.Lock", "java.util.concurrent.locks.ReadWriteLock",
+                        "java.util.concurrent.locks.Condition", "java.util.concurrent.Executor",
+                        "java.util.concurrent.Future", "java.util.concurrent.CountDownLatch",
+                        "java.util.concurrent.Semaphore", "java.util.concurrent.CyclicBarrier");
+        // coverage shims that target statements call (see ShimRewriter), analyzed with the
+        // classes of the project; caches such as IT_String$Patterns are left out
+        final static List<String> SHIM_CLASSES = Arrays.asList("org.raninline.IT_String",
+                        "org.raninline.IT_Matcher", "org.raninline.IT_Stream", "org.raninline.IT_Stream$Filter",
+                        "org.raninline.IT_Stream$Map");
         final static List<AssignExpr.Operator> COMPOUND_ASSIGN_OPERATORS = Arrays.asList(AssignExpr.Operator.PLUS,
                         AssignExpr.Operator.MINUS,
                         AssignExpr.Operator.MULTIPLY, AssignExpr.Operator.DIVIDE, AssignExpr.Operator.BINARY_AND,
@@ -36,13 +50,38 @@ public class Constant {
         static String inlineTestFilePath;
         static String allInlineTestFilePath;
         static String inlineTestName = ""; // default inline test name
+        static boolean binaryLog = false; // write inline test logs in the binary format (see EventLog)
+        static boolean externalSort = false; // add inline tests one source file at a time (see InlineTestLogSorter)
+        static long externalSortRunBytes = 64L << 20; // memory budget of one sorted run
+        static int externalSortMaxFanIn = 64; // runs merged at once, each read through a 64 KB buffer
+        static int constructThreads = Runtime.getRuntime().availableProcessors(); // workers adding inline tests
+        static boolean tableEmission = false; // emit the tests of a target statement as tables (see InlineTestTable)
+        static boolean validateInlineTests = false; // compile constructed files and drop the inline tests that do not compile
+        static boolean spliceOutput = false; // write back only the edited members (see SourceSplicer)
+        static String compileClasspath = null; // classpath of the project to compile constructed files, required by --validate
+        static boolean minimalPlacement = false; // check coverage after the target statement without wrapping its block (see LogLocalVariable)
+        static boolean reportMethodSizes = false; // log the bytecode size of each method before and after instrumenting
+        final static int MAX_INLINE_SIZE = 35; // HotSpot -XX:MaxInlineSize, bytecode bytes
+        final static int FREQ_INLINE_SIZE = 325; // HotSpot -XX:FreqInlineSize, bytecode bytes
+        static boolean resolveVariables = false; // resolve the names to capture with the symbol solver (see VariableResolver)
+        static boolean countOnly = false; // only count the hits of each target statement (see CounterHelper)
         final static String CONFIGURE_FILE_NAME = ".inlinegenrc";
         final static String INLINE_GEN_DIR_NAME = ".inlinegen";
         final static String SERIALIZED_DATA_DIR_NAME = "serialized-data";
         final static String INLINE_TESTS_COUNTER_FILE_NAME = "inline-tests-counter.txt";
         final static String UNIQUE_INLINE_TESTS_COUNTER_FILE_NAME = "unique-inline-tests-counter.txt";
         final static String TARGET_STMTS_HIT_COUNTER_FILE_NAME = "all-target-stmts-hit-counter.txt";
+        final static String INLINE_TESTS_FINGERPRINT_FILE_NAME = "inline-tests.fp";
+        final static String ALL_INLINE_TESTS_FINGERPRINT_FILE_NAME = "all-inline-tests.fp";
         final static String COVERAGE_FILE_NAME = "coverage.txt";
+        final static String COLLECTOR_STATS_FILE_NAME = "collector-stats.json";
+        final static String SCAN_CACHE_DIR_NAME = "scan-cache";
+        final static String TARGETS_FILE_NAME = "targets.txt";
+        final static int SCAN_VERSION = 2; // bump when the scan results of the same file and rules change
         final static String SERIALIZED_DATA_TO_PATH_FILE_NAME = "serialized-data-to-path.txt";
         final static int MAX_INLINE_TESTS_PER_STMT = 100;
+        final static String PLAN_FILE_NAME = "plan.txt";
+        final static String TARGET_CAPS_SUFFIX = ".caps"; // next to the log of a batch run: cap and sampling rate of the planned targets
+        final static long HOT_HIT_COUNT = 10000; // targets hit more often are sampled (see TargetPlanner)
+        final static int HOT_MAX_INLINE_TESTS_PER_STMT = 10;
 }
@@ -3,9 +3,12 @@ package org.raninline;
 import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.github.javaparser.ast.Node;
+
 /**
  * This class is used to store the context of the visitor.
  */
@@ -20,8 +23,12 @@ public class Context {
     public Set<String> logMethodsBefore = new HashSet<>();
     public Set<String> logVariablesAfter = new HashSet<>();
     public Map<Integer, Set<String>> inlineTests = new HashMap<>();
+    public Map<String, InlineTest> typedInlineTests = new HashMap<>(); // inline test text -> typed test, if known
     public ArrayDeque<Set<String>> locals = new ArrayDeque();
     public boolean lineNumberKnown = false;
-    public boolean isTargetStmt = false;
+    public Set<Node> targetPath; // nodes containing the target line (see LineIndex), null to visit all nodes
+    public Set<Integer> targetLines; // lines of the targets to instrument in whole-file mode, null for all
+    public Map<Node, List<String>> targetCategories; // categories of the candidate target statements (see TargetClassifier)
+    public VariableResolver resolver; // resolves the names to capture, null to decide from their spelling
     public boolean isCondition = false;
 }
@@ -0,0 +1,123 @@
+package org.raninline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime of the count-only instrumentation (see {@link Constant#countOnly}):
+ * each target statement calls {@link #hit(String)} before it runs, which only
+ * increments the counter of the statement. No values are serialized and no
+ * coverage is collected, so a whole test suite can be profiled cheaply before
+ * a capture run.
+ *
+ * When the JVM exits, the counts are added to the histogram in
+ * {@link Constant#TARGET_STMTS_HIT_COUNTER_FILE_NAME}, one "srcPath:line;count"
+ * line per target statement, most hit first. The file is locked while it is
+ * updated, so that forked test JVMs add up their counts.
+ */
+public class CounterHelper {
+    // srcPath:line -> number of hits; LongAdder stripes the increments of
+    // concurrent threads
+    static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (COUNTERS.isEmpty()) {
+                return;
+            }
+            save(Paths.get(Utils.createDir(Constant.INLINE_GEN_DIR_NAME),
+                    Constant.TARGET_STMTS_HIT_COUNTER_FILE_NAME));
+        }));
+    }
+
+    /**
+     * @param target srcPath:line of the target statement
+     */
+    public static void hit(String target) {
+        LongAdder counter = COUNTERS.get(target);
+        if (counter == null) {
+            counter = COUNTERS.computeIfAbsent(target, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Add the counts of this JVM to a histogram file.
+     *
+     * @param histogramPath
+     */
+    static void save(Path histogramPath) {
+        try (RandomAccessFile file = new RandomAccessFile(histogramPath.toFile(), "rw");
+                FileChannel channel = file.getChannel()) {
+            FileLock lock = channel.lock();
+            try {
+                update(channel);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Add the counts of this JVM to the histogram of a locked channel.
+     */
+    private static void update(FileChannel channel) throws IOException {
+        Map<String, Long> histogram = read(channel);
+        for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+            histogram.merge(entry.getKey(), entry.getValue().sum(), Long::sum);
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(histogram.entrySet());
+        entries.sort((e1, e2) -> e1.getValue().equals(e2.getValue()) ? e1.getKey().compareTo(e2.getKey())
+                : Long.compare(e2.getValue(), e1.getValue()));
+        channel.truncate(0);
+        channel.position(0);
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+        for (Map.Entry<String, Long> entry : entries) {
+            writer.write(entry.getKey() + ";" + entry.getValue() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return srcPath:line -> number of hits of a histogram file
+     */
+    public static Map<String, Long> read(Path histogramPath) {
+        try (FileChannel channel = FileChannel.open(histogramPath)) {
+            return read(channel);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, Long> read(FileChannel channel) throws IOException {
+        Map<String, Long> histogram = new HashMap<>();
+        // not closed: closing the reader would close the channel
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int separator = line.lastIndexOf(';');
+            if (separator <= 0) {
+                continue;
+            }
+            histogram.merge(line.substring(0, separator), Long.parseLong(line.substring(separator + 1)), Long::sum);
+        }
+        return histogram;
+    }
+}
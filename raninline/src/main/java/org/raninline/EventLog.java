@@ -0,0 +1,171 @@
+package org.raninline;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versioned binary format of the raninline log and the inline test logs.
+ *
+ * <pre>
+ * file   := magic:int32 version:int16 record*
+ * record := kind:int8 length:int32 payload[length]
+ * payload:= line:int32 fieldCount:int8 (fieldLength:int32 utf8[fieldLength])*
+ * </pre>
+ *
+ * Fields of each kind:
+ * <ul>
+ * <li>{@link #TEXT}: text (any other line of a legacy log, e.g. "Unit")</li>
+ * <li>{@link #START}, {@link #IF_START}, {@link #EXECUTED},
+ * {@link #NOT_EXECUTED}, {@link #END}, {@link #CHECK_COVERAGE}: srcPath</li>
+ * <li>{@link #BEFORE}, {@link #AFTER}, {@link #METHOD_BEFORE}: srcPath, type,
+ * name, value</li>
+ * <li>{@link #INLINE_TEST}: srcPath, inline test, and optionally the typed
+ * inline test ({@link InlineTest#encode()}, not UTF-8)</li>
+ * </ul>
+ * Values are length-prefixed, so they may contain {@link Constant#LOG_SEPARATOR}
+ * and line breaks.
+ */
+public class EventLog {
+    public static final int MAGIC = 0x52494c47; // "RILG"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 6;
+
+    public static final byte TEXT = 0;
+    public static final byte START = 1;
+    public static final byte IF_START = 2;
+    public static final byte BEFORE = 3;
+    public static final byte AFTER = 4;
+    public static final byte METHOD_BEFORE = 5;
+    public static final byte EXECUTED = 6;
+    public static final byte NOT_EXECUTED = 7;
+    public static final byte END = 8;
+    public static final byte CHECK_COVERAGE = 9;
+    public static final byte INLINE_TEST = 10;
+
+    private static final Map<String, Byte> INFO_TO_KIND = new HashMap<>();
+    private static final String[] KIND_TO_INFO = new String[INLINE_TEST + 1];
+    static {
+        register(Constant.TARGET_STMT_START, START);
+        register(Constant.TARGET_STMT_IF_START, IF_START);
+        register(Constant.TARGET_STMT_BEFORE, BEFORE);
+        register(Constant.TARGET_STMT_AFTER, AFTER);
+        register(Constant.TARGET_METHOD_BEFORE, METHOD_BEFORE);
+        register(Constant.TARGET_STMT_EXECUTED, EXECUTED);
+        register(Constant.TARGET_STMT_NOT_EXECUTED, NOT_EXECUTED);
+        register(Constant.TARGET_STMT_END, END);
+        register(Constant.CHECK_COVERAGE, CHECK_COVERAGE);
+    }
+
+    private static void register(String info, byte kind) {
+        INFO_TO_KIND.put(info, kind);
+        KIND_TO_INFO[kind] = info;
+    }
+
+    /**
+     * @param info prompt of a legacy log line, e.g. "target-statement-start"
+     * @return record kind, or {@link #TEXT} if the prompt is unknown
+     */
+    public static byte kindOf(String info) {
+        Byte kind = INFO_TO_KIND.get(info);
+        return kind == null ? TEXT : kind;
+    }
+
+    public static String infoOf(byte kind) {
+        return KIND_TO_INFO[kind];
+    }
+
+    public static boolean hasVariable(byte kind) {
+        return kind == BEFORE || kind == AFTER || kind == METHOD_BEFORE;
+    }
+
+    /**
+     * Check the header of a log file.
+     *
+     * @param logFilePath
+     * @return true if the file is a binary log
+     * @throws IOException
+     */
+    public static boolean isBinary(String logFilePath) throws IOException {
+        if (!Files.exists(Paths.get(logFilePath)) || Files.size(Paths.get(logFilePath)) < HEADER_BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(logFilePath))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Open a reader for a log in either format.
+     *
+     * @param logFilePath
+     * @return
+     * @throws IOException
+     */
+    public static EventReader openReader(String logFilePath) throws IOException {
+        if (isBinary(logFilePath)) {
+            return new EventLogReader(logFilePath);
+        }
+        return new TextEventReader(logFilePath);
+    }
+
+    /**
+     * Render the current record of a reader as a legacy text line.
+     *
+     * @param reader
+     * @return
+     */
+    public static String toText(EventReader reader) {
+        byte kind = reader.kind();
+        String sep = Constant.LOG_SEPARATOR;
+        if (kind == TEXT) {
+            return reader.text();
+        } else if (kind == INLINE_TEST) {
+            return reader.srcPath() + sep + reader.line() + sep + reader.inlineTest();
+        } else if (hasVariable(kind)) {
+            return infoOf(kind) + sep + reader.srcPath() + sep + reader.line() + sep + reader.varType() + sep
+                    + reader.varName() + sep + reader.value();
+        }
+        return infoOf(kind) + sep + reader.srcPath() + sep + reader.line();
+    }
+
+    /**
+     * Convert a legacy text log (raw log or inline test log) to a binary log.
+     *
+     * @param textLogPath
+     * @param binaryLogPath
+     * @throws IOException
+     */
+    public static void convertToBinary(String textLogPath, String binaryLogPath) throws IOException {
+        Files.deleteIfExists(Paths.get(binaryLogPath));
+        try (TextEventReader reader = new TextEventReader(textLogPath);
+                EventLogWriter writer = EventLogWriter.open(binaryLogPath)) {
+            while (reader.next()) {
+                writer.write(reader);
+            }
+        }
+    }
+
+    /**
+     * Convert a binary log back to the legacy text format.
+     *
+     * @param binaryLogPath
+     * @param textLogPath
+     * @throws IOException
+     */
+    public static void convertToText(String binaryLogPath, String textLogPath) throws IOException {
+        try (EventLogReader reader = new EventLogReader(binaryLogPath);
+                BufferedWriter writer = new BufferedWriter(new FileWriter(textLogPath))) {
+            while (reader.next()) {
+                writer.write(toText(reader));
+                writer.write("\n");
+            }
+        }
+    }
+}
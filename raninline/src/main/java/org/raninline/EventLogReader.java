@@ -0,0 +1,208 @@
+package org.raninline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming {@link EventReader} over a binary log (see {@link EventLog}).
+ * Records are read into a reusable direct buffer and fields are only located,
+ * not copied: {@link #field(int)} returns a view of the buffer and the String
+ * accessors decode on demand. Views are only valid until the next call of
+ * {@link #next()}.
+ */
+public class EventLogReader implements EventReader {
+    private final FileChannel channel; // null when reading records from a buffer
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long bufferOffset; // file offset of buffer index 0
+    private long recordOffset;
+    private byte kind;
+    private int line;
+    private int fieldCount;
+    private int[] fieldStarts = new int[4];
+    private int[] fieldLengths = new int[4];
+
+    public EventLogReader(String logFilePath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(logFilePath), StandardOpenOption.READ);
+        buffer.limit(0);
+        if (!ensure(EventLog.HEADER_BYTES) || buffer.getInt() != EventLog.MAGIC) {
+            channel.close();
+            throw new IOException("Not a binary raninline log: " + logFilePath);
+        }
+        if (buffer.getShort() > EventLog.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported binary log version: " + logFilePath);
+        }
+    }
+
+    /**
+     * Read the records in a buffer, e.g. a byte range of a binary log found
+     * through {@link LogIndex}. The buffer has no header.
+     *
+     * @param records
+     */
+    public EventLogReader(ByteBuffer records) {
+        this.channel = null;
+        this.buffer = records.slice();
+    }
+
+    /**
+     * Make sure at least n bytes are readable from the current position.
+     *
+     * @return false if the file ends before
+     */
+    private boolean ensure(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        if (channel == null) {
+            return false;
+        }
+        bufferOffset += buffer.position();
+        if (buffer.capacity() < n) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(n, buffer.capacity() * 2));
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= n;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!ensure(5)) {
+            if (buffer.hasRemaining()) {
+                throw new IOException("Truncated record at offset " + (bufferOffset + buffer.position()));
+            }
+            return false;
+        }
+        int payloadLength = buffer.getInt(buffer.position() + 1);
+        if (!ensure(5 + payloadLength)) {
+            throw new IOException("Truncated record at offset " + (bufferOffset + buffer.position()));
+        }
+        int start = buffer.position();
+        recordOffset = bufferOffset + start;
+        kind = buffer.get(start);
+        line = buffer.getInt(start + 5);
+        fieldCount = buffer.get(start + 9);
+        if (fieldStarts.length < fieldCount) {
+            fieldStarts = new int[fieldCount];
+            fieldLengths = new int[fieldCount];
+        }
+        int p = start + 10;
+        for (int i = 0; i < fieldCount; i++) {
+            fieldLengths[i] = buffer.getInt(p);
+            fieldStarts[i] = p + 4;
+            p += 4 + fieldLengths[i];
+        }
+        buffer.position(start + 5 + payloadLength);
+        return true;
+    }
+
+    /**
+     * @return file offset of the current record
+     */
+    public long recordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * @return length in bytes of the current record
+     */
+    public int recordLength() {
+        return (int) (bufferOffset + buffer.position() - recordOffset);
+    }
+
+    /**
+     * @param i
+     * @return read-only view of the UTF-8 bytes of the i-th field of the current
+     *         record, or an empty buffer if there is no such field
+     */
+    public ByteBuffer field(int i) {
+        if (i >= fieldCount) {
+            return ByteBuffer.allocate(0);
+        }
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.limit(fieldStarts[i] + fieldLengths[i]);
+        view.position(fieldStarts[i]);
+        return view.slice();
+    }
+
+    private String string(int i) {
+        if (i >= fieldCount) {
+            return "";
+        }
+        return StandardCharsets.UTF_8.decode(field(i)).toString();
+    }
+
+    @Override
+    public byte kind() {
+        return kind;
+    }
+
+    @Override
+    public int line() {
+        return line;
+    }
+
+    @Override
+    public String srcPath() {
+        return kind == EventLog.TEXT ? "" : string(0);
+    }
+
+    @Override
+    public String varType() {
+        return EventLog.hasVariable(kind) ? string(1) : "";
+    }
+
+    @Override
+    public String varName() {
+        return EventLog.hasVariable(kind) ? string(2) : "";
+    }
+
+    @Override
+    public String value() {
+        return EventLog.hasVariable(kind) ? string(3) : "";
+    }
+
+    @Override
+    public String inlineTest() {
+        return kind == EventLog.INLINE_TEST ? string(1) : "";
+    }
+
+    /**
+     * @return typed form of the inline test of an {@link EventLog#INLINE_TEST}
+     *         record (without srcPath), or null if the record has none
+     */
+    public InlineTest typedInlineTest() {
+        if (kind != EventLog.INLINE_TEST || fieldCount < 3) {
+            return null;
+        }
+        ByteBuffer field = field(2);
+        byte[] encoded = new byte[field.remaining()];
+        field.get(encoded);
+        return InlineTest.decode(encoded);
+    }
+
+    @Override
+    public String text() {
+        return kind == EventLog.TEXT ? string(0) : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.raninline;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records to a binary log (see {@link EventLog} for the format). A new
+ * or empty file gets the header; an existing file must already be a binary log.
+ */
+public class EventLogWriter implements Closeable, Flushable {
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long position; // file offset of the next record
+
+    private EventLogWriter(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.position = channel.size();
+        channel.position(position);
+        if (position == 0) {
+            buffer.putInt(EventLog.MAGIC);
+            buffer.putShort(EventLog.VERSION);
+            position = EventLog.HEADER_BYTES;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(EventLog.HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < EventLog.HEADER_BYTES || header.getInt() != EventLog.MAGIC) {
+                throw new IOException("Not a binary raninline log");
+            }
+            if (header.getShort() > EventLog.VERSION) {
+                throw new IOException("Unsupported binary log version");
+            }
+        }
+    }
+
+    /**
+     * Open a binary log for appending.
+     *
+     * @param logFilePath
+     * @return
+     * @throws IOException
+     */
+    public static EventLogWriter open(String logFilePath) throws IOException {
+        Path path = Paths.get(logFilePath);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        try {
+            return new EventLogWriter(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return file offset the next record will be written at
+     */
+    public long position() {
+        return position;
+    }
+
+    public void writeText(String text) throws IOException {
+        writeRecord(EventLog.TEXT, -1, text);
+    }
+
+    /**
+     * Write a record without variable, e.g. {@link EventLog#START} or
+     * {@link EventLog#END}.
+     */
+    public void writePrompt(byte kind, String srcPath, int line) throws IOException {
+        writeRecord(kind, line, srcPath);
+    }
+
+    public void writeVariable(byte kind, String srcPath, int line, String varType, String varName, String value)
+            throws IOException {
+        writeRecord(kind, line, srcPath, varType, varName, value);
+    }
+
+    public void writeInlineTest(String srcPath, int line, String inlineTest) throws IOException {
+        writeRecord(EventLog.INLINE_TEST, line, srcPath, inlineTest);
+    }
+
+    /**
+     * Write an inline test with its typed form ({@link InlineTest#encode()}), so
+     * that it can be constructed without parsing.
+     */
+    public void writeInlineTest(InlineTest inlineTest) throws IOException {
+        writeInlineTest(inlineTest.srcPath, inlineTest.targetStmtLineNo, inlineTest.toString(), inlineTest);
+    }
+
+    /**
+     * Write an inline test with the typed form of another record, e.g. one
+     * read by {@link EventLogReader#typedInlineTest()}.
+     */
+    public void writeInlineTest(String srcPath, int line, String inlineTest, InlineTest typed) throws IOException {
+        writeRecord(EventLog.INLINE_TEST, line, utf8(srcPath), utf8(inlineTest), typed.encode());
+    }
+
+    /**
+     * Copy the current record of a reader.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    public void write(EventReader reader) throws IOException {
+        byte kind = reader.kind();
+        if (kind == EventLog.TEXT) {
+            writeText(reader.text());
+        } else if (kind == EventLog.INLINE_TEST) {
+            writeInlineTest(reader.srcPath(), reader.line(), reader.inlineTest());
+        } else if (EventLog.hasVariable(kind)) {
+            writeVariable(kind, reader.srcPath(), reader.line(), reader.varType(), reader.varName(), reader.value());
+        } else {
+            writePrompt(kind, reader.srcPath(), reader.line());
+        }
+    }
+
+    private void writeRecord(byte kind, int line, String... fields) throws IOException {
+        byte[][] bytes = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            bytes[i] = utf8(fields[i]);
+        }
+        writeRecord(kind, line, bytes);
+    }
+
+    private static byte[] utf8(String field) {
+        return field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeRecord(byte kind, int line, byte[]... bytes) throws IOException {
+        int payloadLength = 4 + 1;
+        for (byte[] field : bytes) {
+            payloadLength += 4 + field.length;
+        }
+        int recordLength = 1 + 4 + payloadLength;
+        if (buffer.remaining() < recordLength) {
+            flush();
+            if (buffer.capacity() < recordLength) {
+                buffer = ByteBuffer.allocate(recordLength);
+            }
+        }
+        buffer.put(kind);
+        buffer.putInt(payloadLength);
+        buffer.putInt(line);
+        buffer.put((byte) bytes.length);
+        for (byte[] field : bytes) {
+            buffer.putInt(field.length);
+            buffer.put(field);
+        }
+        position += recordLength;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
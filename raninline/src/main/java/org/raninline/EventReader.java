@@ -0,0 +1,48 @@
+package org.raninline;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming cursor over the records of a raninline log, either in the legacy
+ * {@code ;}-separated text format ({@link TextEventReader}) or in the binary
+ * format ({@link EventLogReader}). Accessors refer to the current record and
+ * return an empty string for fields the record kind does not have.
+ */
+public interface EventReader extends Closeable {
+    /**
+     * Move to the next record.
+     *
+     * @return false at the end of the log
+     * @throws IOException
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return one of the record kinds in {@link EventLog}
+     */
+    byte kind();
+
+    /**
+     * @return line number of the target statement, -1 for text records
+     */
+    int line();
+
+    String srcPath();
+
+    String varType();
+
+    String varName();
+
+    String value();
+
+    /**
+     * @return inline test of an {@link EventLog#INLINE_TEST} record
+     */
+    String inlineTest();
+
+    /**
+     * @return whole line of an {@link EventLog#TEXT} record
+     */
+    String text();
+}
@@ -26,7 +26,8 @@ public class FindVariable extends VoidVisitorAdapter<Context> {
     @Override
     public void visit(final AssignExpr n, final Context ctx) {
         // a += b, log a
-        if (Constant.COMPOUND_ASSIGN_OPERATORS.contains(((AssignExpr) n).getOperator())) {
+        if (Constant.COMPOUND_ASSIGN_OPERATORS.contains(((AssignExpr) n).getOperator())
+                && capture(n.getTarget(), true, ctx)) {
             ctx.logVariablesBefore.add(((AssignExpr) n).getTarget().toString());
         }
         Expression target = n.getTarget();
@@ -48,7 +49,7 @@ public class FindVariable extends VoidVisitorAdapter<Context> {
                 } else {
                     ctx.logVariablesAfter.add(target.toString());
                 } 
-            } else {
+            } else if (capture(target, true, ctx)) {
                 ctx.logVariablesAfter.add(target.toString());
             }
         }
@@ -62,7 +63,8 @@ public class FindVariable extends VoidVisitorAdapter<Context> {
             ctx.locals.peek().add(n.getNameAsString());
         }
         n.getInitializer().ifPresent(l -> {
-            if (!isLocalVariable(n.getNameAsString(), ctx)) {
+            if (!isLocalVariable(n.getNameAsString(), ctx)
+                    && (ctx.resolver == null || !Boolean.FALSE.equals(ctx.resolver.capture(n)))) {
                 ctx.logVariablesAfter.add(n.getNameAsString());
             }
             l.accept(this, ctx);
@@ -115,7 +117,7 @@ public class FindVariable extends VoidVisitorAdapter<Context> {
         // skip: n.getScope().accept(this, ctx);
         // skip: n.getTypeArguments().ifPresent(l -> l.forEach(v -> v.accept(this,
         // ctx)));
-        if (!containLocalVariable(n, ctx) && Character.isLowerCase(n.getNameAsString().charAt(0))) {
+        if (!containLocalVariable(n, ctx) && capture(n, Character.isLowerCase(n.getNameAsString().charAt(0)), ctx)) {
             ctx.logVariablesBefore.add(n.toString());
         }
     }
@@ -133,13 +135,28 @@ public class FindVariable extends VoidVisitorAdapter<Context> {
     @Override
     public void visit(final NameExpr n, final Context ctx) {
         String name = n.getNameAsString();
-        if (!isLocalVariable(name, ctx) && (Character.isLowerCase(name.charAt(0))
-                || (Utils.isConstant(name) && name.length() >= 2))) {
+        if (!isLocalVariable(name, ctx) && capture(n, Character.isLowerCase(name.charAt(0))
+                || (Utils.isConstant(name) && name.length() >= 2), ctx)) {
             ctx.logVariablesBefore.add(name);
         }
         n.getName().accept(this, ctx);
     }
 
+    /**
+     * @param byName whether the name looks like a variable
+     * @return whether to capture the name or field access: what it resolves to
+     *         if the context has a resolver and it resolves, otherwise byName
+     */
+    private static boolean capture(Expression n, boolean byName, Context ctx) {
+        if (ctx.resolver != null) {
+            Boolean resolved = ctx.resolver.capture(n);
+            if (resolved != null) {
+                return resolved;
+            }
+        }
+        return byName;
+    }
+
     private boolean isLocalVariable(String name, Context ctx) {
         boolean isLocalVariableRes = false;
         for (Set<String> locals : ctx.locals) {
@@ -0,0 +1,225 @@
+package org.raninline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open-addressing set of 64-bit fingerprints stored in a {@link ByteBuffer}.
+ * The buffer is either a direct (off-heap) buffer or a memory-mapped file, in
+ * which case the set persists across runs. Lookups run concurrently, inserts
+ * and resizes are exclusive. Zero is reserved for empty slots, so 0 can not be
+ * stored (see {@link Utils#fingerprint(String...)}).
+ */
+public class FingerprintSet implements Closeable {
+    private static final int MAGIC = 0x52494650; // "RIFP"
+    private static final int VERSION = 2; // 2: inline tests are fingerprinted by InlineTest#encode()
+    private static final int HEADER_BYTES = 16; // magic, version, size
+    private static final int DEFAULT_CAPACITY = 1 << 12;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel channel; // null if the set is not persistent
+    private ByteBuffer buffer;
+    private int capacity; // number of slots, always a power of two
+    private long size;
+
+    /**
+     * Create an in-memory set backed by a direct buffer.
+     */
+    public FingerprintSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FingerprintSet(int initialCapacity) {
+        this.channel = null;
+        this.capacity = tableSizeFor(initialCapacity);
+        this.buffer = ByteBuffer.allocateDirect(HEADER_BYTES + capacity * 8);
+        writeHeader();
+    }
+
+    private FingerprintSet(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long fileSize = channel.size();
+        if (fileSize > HEADER_BYTES) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) > VERSION) {
+                throw new IOException("Not a fingerprint file (or unsupported version)");
+            }
+            this.capacity = (int) ((fileSize - HEADER_BYTES) / 8);
+            if (buffer.getInt(4) < VERSION) {
+                // fingerprints of an older version can not be compared, start over
+                Log.info("Discarding fingerprints of an older version");
+                for (int i = 0; i < capacity; i++) {
+                    buffer.putLong(HEADER_BYTES + i * 8, 0);
+                }
+                writeHeader();
+            } else {
+                this.size = buffer.getLong(8);
+            }
+        } else {
+            this.capacity = DEFAULT_CAPACITY;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + capacity * 8L);
+            writeHeader();
+        }
+    }
+
+    /**
+     * Open (or create) a set persisted in the given file.
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static FingerprintSet open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new FingerprintSet(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public boolean contains(long fingerprint) {
+        checkFingerprint(fingerprint);
+        lock.readLock().lock();
+        try {
+            int mask = capacity - 1;
+            for (int i = slot(fingerprint, mask);; i = (i + 1) & mask) {
+                long cur = buffer.getLong(offset(i));
+                if (cur == fingerprint) {
+                    return true;
+                }
+                if (cur == 0) {
+                    return false;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a fingerprint to the set.
+     *
+     * @param fingerprint
+     * @return true if the fingerprint was not in the set before
+     */
+    public boolean add(long fingerprint) {
+        checkFingerprint(fingerprint);
+        lock.writeLock().lock();
+        try {
+            if (!insert(buffer, capacity, fingerprint)) {
+                return false;
+            }
+            size++;
+            buffer.putLong(8, size);
+            if (size * 2 > capacity) {
+                resize(capacity * 2);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                ((MappedByteBuffer) buffer).force();
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        long[] fingerprints = new long[(int) size];
+        int n = 0;
+        for (int i = 0; i < capacity; i++) {
+            long cur = buffer.getLong(offset(i));
+            if (cur != 0) {
+                fingerprints[n++] = cur;
+            }
+        }
+        long bytes = HEADER_BYTES + newCapacity * 8L;
+        ByteBuffer newBuffer;
+        if (channel != null) {
+            // the file grows in place, so clear the old slots before rehashing
+            newBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            for (int i = 0; i < capacity; i++) {
+                newBuffer.putLong(offset(i), 0L);
+            }
+        } else {
+            newBuffer = ByteBuffer.allocateDirect((int) bytes);
+        }
+        for (int i = 0; i < n; i++) {
+            insert(newBuffer, newCapacity, fingerprints[i]);
+        }
+        buffer = newBuffer;
+        capacity = newCapacity;
+        writeHeader();
+    }
+
+    private static boolean insert(ByteBuffer table, int tableCapacity, long fingerprint) {
+        int mask = tableCapacity - 1;
+        for (int i = slot(fingerprint, mask);; i = (i + 1) & mask) {
+            long cur = table.getLong(offset(i));
+            if (cur == fingerprint) {
+                return false;
+            }
+            if (cur == 0) {
+                table.putLong(offset(i), fingerprint);
+                return true;
+            }
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, size);
+    }
+
+    private static int slot(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * 8;
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = 16;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkFingerprint(long fingerprint) {
+        if (fingerprint == 0) {
+            throw new IllegalArgumentException("0 is not a valid fingerprint");
+        }
+    }
+}
@@ -1,14 +1,35 @@
 package org.raninline;
 
+import java.util.ArrayList;
 import java.util.regex.Matcher;
-import java.lang.reflect.Field;
+import java.util.regex.Pattern;
 
-
-public class IT_Matcher{
+/**
+ * Matcher and Pattern methods written out so that JaCoCo sees which paths an
+ * input takes, see {@link IT_String}. Where the JDK implementation is the
+ * regex engine itself, the branches tell the outcomes apart: no match, an
+ * empty match, a match that reached the end of the input, ...
+ */
+public class IT_Matcher {
     Matcher matcherClazz;
+    CharSequence text;
 
+    /**
+     * Without the input, {@link #replaceAll(String)} throws an
+     * IllegalStateException; {@link ShimRewriter} only rewrites find, matches
+     * and group calls to it.
+     */
     public IT_Matcher(Matcher matcher) {
+        this(matcher, null);
+    }
+
+    /**
+     * @param matcher
+     * @param text    the input of the matcher
+     */
+    public IT_Matcher(Matcher matcher, CharSequence text) {
         this.matcherClazz = matcher;
+        this.text = text;
     }
 
     public Matcher getMatcherClazz() {
@@ -16,24 +37,183 @@ public class IT_Matcher{
     }
 
     public String replaceAll(String replacement) {
+        if (text == null) {
+            throw new IllegalStateException(
+                    "replaceAll needs the input of the matcher, see IT_Matcher(Matcher, CharSequence)");
+        }
         matcherClazz.reset();
         boolean result = matcherClazz.find();
         if (result) {
-            StringBuffer sb = new StringBuffer();
+            StringBuilder sb = new StringBuilder(text.length() + 16);
+            int last = 0;
             do {
-                matcherClazz.appendReplacement(sb, replacement);
+                sb.append(text, last, matcherClazz.start());
+                Replacement.append(matcherClazz, sb, replacement);
+                last = matcherClazz.end();
                 result = matcherClazz.find();
             } while (result);
-            matcherClazz.appendTail(sb);
+            sb.append(text, last, text.length());
             return sb.toString();
         }
-        try {
-            Field textField = Matcher.class.getDeclaredField("text");
-            textField.setAccessible(true);
-            return textField.get(matcherClazz).toString();
-        } catch (Exception e) {
-            e.printStackTrace();
+        return text.toString();
+    }
+
+    public boolean find() {
+        boolean found = matcherClazz.find();
+        if (found) {
+            if (matcherClazz.start() == matcherClazz.end()) {
+                // empty match
+                return true;
+            } else if (matcherClazz.hitEnd()) {
+                // the match reached the end of the input
+                return true;
+            }
+            return true;
+        } else if (matcherClazz.hitEnd()) {
+            // the input ended before the pattern could match
+            return false;
+        }
+        return false;
+    }
+
+    public boolean matches() {
+        boolean matched = matcherClazz.matches();
+        if (matched) {
+            if (matcherClazz.end() == 0) {
+                // empty input
+                return true;
+            }
+            return true;
+        } else if (matcherClazz.hitEnd()) {
+            // the input is a prefix of a match
+            return false;
+        }
+        return false;
+    }
+
+    public String group() {
+        String group = matcherClazz.group();
+        if (group.isEmpty()) {
+            return group;
+        }
+        return group;
+    }
+
+    public String group(int group) {
+        String captured = matcherClazz.group(group);
+        if (captured == null) {
+            // the group did not take part in the match
             return null;
+        } else if (captured.isEmpty()) {
+            return captured;
+        }
+        return captured;
+    }
+
+    /**
+     * Pattern.matches
+     */
+    public static boolean matches(String regex, CharSequence input) {
+        return new IT_Matcher(IT_String.Patterns.get(regex, 0).matcher(input), input).matches();
+    }
+
+    /**
+     * Pattern.split
+     */
+    public static String[] split(Pattern pattern, CharSequence input, int limit) {
+        int index = 0;
+        boolean matchLimited = limit > 0;
+        ArrayList<String> matchList = new ArrayList<>();
+        Matcher m = pattern.matcher(input);
+        while (m.find()) {
+            if (!matchLimited || matchList.size() < limit - 1) {
+                if (index == 0 && index == m.start() && m.start() == m.end()) {
+                    // no empty leading substring for a zero-width match at the beginning
+                    continue;
+                }
+                matchList.add(input.subSequence(index, m.start()).toString());
+                index = m.end();
+            } else if (matchList.size() == limit - 1) {
+                // last one
+                matchList.add(input.subSequence(index, input.length()).toString());
+                index = m.end();
+            }
+        }
+        // no match
+        if (index == 0) {
+            return new String[] { input.toString() };
+        }
+        if (!matchLimited || matchList.size() < limit) {
+            matchList.add(input.subSequence(index, input.length()).toString());
+        }
+        int resultSize = matchList.size();
+        if (limit == 0) {
+            while (resultSize > 0 && matchList.get(resultSize - 1).isEmpty()) {
+                resultSize--;
+            }
+        }
+        String[] result = new String[resultSize];
+        return matchList.subList(0, resultSize).toArray(result);
+    }
+
+    /**
+     * Matcher.appendReplacement for a StringBuilder, which the JDK only has
+     * from 9 on. A nested class, so that its branches do not count in the
+     * coverage of IT_Matcher.
+     */
+    static class Replacement {
+        /**
+         * Append the replacement of the current match: "\" escapes the next
+         * character, "$n" and "${name}" are replaced by the captured groups.
+         */
+        static void append(Matcher matcherClazz, StringBuilder sb, String replacement) {
+            int cursor = 0;
+            while (cursor < replacement.length()) {
+                char nextChar = replacement.charAt(cursor);
+                if (nextChar == '\\') {
+                    cursor++;
+                    if (cursor == replacement.length()) {
+                        throw new IllegalArgumentException("character to be escaped is missing");
+                    }
+                    sb.append(replacement.charAt(cursor++));
+                } else if (nextChar == '$') {
+                    cursor++;
+                    if (cursor == replacement.length()) {
+                        throw new IllegalArgumentException("Illegal group reference: group index is missing");
+                    }
+                    String group;
+                    if (replacement.charAt(cursor) == '{') {
+                        int end = replacement.indexOf('}', ++cursor);
+                        if (end < 0) {
+                            throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+                        }
+                        group = matcherClazz.group(replacement.substring(cursor, end));
+                        cursor = end + 1;
+                    } else {
+                        int refNum = replacement.charAt(cursor) - '0';
+                        if (refNum < 0 || refNum > 9) {
+                            throw new IllegalArgumentException("Illegal group reference");
+                        }
+                        cursor++;
+                        // the longest group number that exists
+                        while (cursor < replacement.length()) {
+                            int digit = replacement.charAt(cursor) - '0';
+                            if (digit < 0 || digit > 9 || matcherClazz.groupCount() < refNum * 10 + digit) {
+                                break;
+                            }
+                            refNum = refNum * 10 + digit;
+                            cursor++;
+                        }
+                        group = matcherClazz.group(refNum);
+                    }
+                    if (group != null) {
+                        sb.append(group);
+                    }
+                } else {
+                    sb.append(nextChar);
+                    cursor++;
+                }
+            }
         }
     }
 }
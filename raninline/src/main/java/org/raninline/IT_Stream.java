@@ -0,0 +1,145 @@
+package org.raninline;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+/**
+ * A sequential stream of a collection with the basic operations written out,
+ * so that JaCoCo sees which paths the elements take, see {@link IT_String}.
+ * Like a stream, it is lazy: each element goes through the whole pipeline
+ * before the next one is read, and short-circuiting operations stop reading.
+ */
+public class IT_Stream<T> {
+    private final Iterator<? extends T> iterator;
+
+    public IT_Stream(Iterable<? extends T> source) {
+        this(source.iterator());
+    }
+
+    private IT_Stream(Iterator<? extends T> iterator) {
+        this.iterator = iterator;
+    }
+
+    public IT_Stream<T> filter(Predicate<? super T> predicate) {
+        return new IT_Stream<>(new Filter<>(iterator, predicate));
+    }
+
+    public <R> IT_Stream<R> map(Function<? super T, ? extends R> mapper) {
+        return new IT_Stream<>(new Map<>(iterator, mapper));
+    }
+
+    public boolean anyMatch(Predicate<? super T> predicate) {
+        while (iterator.hasNext()) {
+            if (predicate.test(iterator.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean allMatch(Predicate<? super T> predicate) {
+        while (iterator.hasNext()) {
+            if (!predicate.test(iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean noneMatch(Predicate<? super T> predicate) {
+        return !anyMatch(predicate);
+    }
+
+    public long count() {
+        long count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    public Optional<T> findFirst() {
+        if (iterator.hasNext()) {
+            // as Stream.findFirst, a null element throws NullPointerException
+            return Optional.of(iterator.next());
+        }
+        return Optional.empty();
+    }
+
+    public void forEach(Consumer<? super T> action) {
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R, A> R collect(Collector<? super T, A, R> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        while (iterator.hasNext()) {
+            accumulator.accept(container, iterator.next());
+        }
+        if (collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (R) container;
+        }
+        return collector.finisher().apply(container);
+    }
+
+    static class Filter<T> implements Iterator<T> {
+        private final Iterator<? extends T> source;
+        private final Predicate<? super T> predicate;
+        private T next;
+        private boolean ready;
+
+        Filter(Iterator<? extends T> source, Predicate<? super T> predicate) {
+            this.source = source;
+            this.predicate = predicate;
+        }
+
+        public boolean hasNext() {
+            while (!ready && source.hasNext()) {
+                T candidate = source.next();
+                if (predicate.test(candidate)) {
+                    next = candidate;
+                    ready = true;
+                }
+            }
+            return ready;
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            ready = false;
+            return result;
+        }
+    }
+
+    static class Map<T, R> implements Iterator<R> {
+        private final Iterator<? extends T> source;
+        private final Function<? super T, ? extends R> mapper;
+
+        Map(Iterator<? extends T> source, Function<? super T, ? extends R> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        public R next() {
+            return mapper.apply(source.next());
+        }
+    }
+}
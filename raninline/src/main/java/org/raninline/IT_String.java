@@ -1,10 +1,17 @@
 package org.raninline;
 
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.lang.reflect.Field;
-import java.lang.reflect.Constructor;
 
+/**
+ * String methods written out with the branches of the JDK 8 implementation,
+ * so that JaCoCo sees which paths an input takes: instrumented target
+ * statements call them instead of the JDK methods (see {@link ShimRewriter}).
+ * Only public APIs are used, so they work on every JDK from 8 on.
+ */
 public class IT_String {
     String str;
 
@@ -13,44 +20,240 @@ public class IT_String {
     }
 
     public String replace(CharSequence target, CharSequence replacement) {
-        return new IT_Matcher(Pattern.compile(target.toString(), Pattern.LITERAL).matcher(this.str))
+        return new IT_Matcher(Patterns.get(target.toString(), Pattern.LITERAL).matcher(this.str), this.str)
                 .replaceAll(Matcher.quoteReplacement(replacement.toString()));
     }
 
     public String replace(char oldChar, char newChar) {
         if (oldChar != newChar) {
-            try {
-                Field valueField = String.class.getDeclaredField("value");
-                valueField.setAccessible(true);
-                char[] value = (char[]) valueField.get(str);
-                int len = value.length;
-                int i = -1;
-                char[] val = value; /* avoid getfield opcode */
-
-                while (++i < len) {
-                    if (val[i] == oldChar) {
-                        break;
-                    }
-                }
-                if (i < len) {
-                    char buf[] = new char[len];
-                    for (int j = 0; j < i; j++) {
-                        buf[j] = val[j];
-                    }
-                    while (i < len) {
-                        char c = val[i];
-                        buf[i] = (c == oldChar) ? newChar : c;
-                        i++;
-                    }
-                    Constructor constructor = String.class.getDeclaredConstructor(char[].class, boolean.class);
-                    constructor.setAccessible(true);
-                    return (String) constructor.newInstance(buf, true);
-                    // return new String(buf, true);
-                }
-            }catch (Exception e) {
-                return null;
+            String val = str;
+            int len = val.length();
+            int i = -1;
+
+            while (++i < len) {
+                if (val.charAt(i) == oldChar) {
+                    break;
+                }
+            }
+            if (i < len) {
+                char buf[] = new char[len];
+                for (int j = 0; j < i; j++) {
+                    buf[j] = val.charAt(j);
+                }
+                while (i < len) {
+                    char c = val.charAt(i);
+                    buf[i] = (c == oldChar) ? newChar : c;
+                    i++;
+                }
+                return new String(buf);
             }
         }
         return str;
     }
+
+    public String[] split(String regex) {
+        return split(regex, 0);
+    }
+
+    public String[] split(String regex, int limit) {
+        // fast path for a one character regex that is not a metacharacter, or an
+        // escaped character that is not a letter or digit
+        char ch = 0;
+        if (((regex.length() == 1 && ".$|()[{^?*+\\".indexOf(ch = regex.charAt(0)) == -1)
+                || (regex.length() == 2 && regex.charAt(0) == '\\' && (((ch = regex.charAt(1)) - '0') | ('9' - ch)) < 0
+                        && ((ch - 'a') | ('z' - ch)) < 0 && ((ch - 'A') | ('Z' - ch)) < 0))
+                && (ch < Character.MIN_HIGH_SURROGATE || ch > Character.MAX_LOW_SURROGATE)) {
+            int off = 0;
+            int next = 0;
+            boolean limited = limit > 0;
+            ArrayList<String> list = new ArrayList<>();
+            while ((next = str.indexOf(ch, off)) != -1) {
+                if (!limited || list.size() < limit - 1) {
+                    list.add(str.substring(off, next));
+                    off = next + 1;
+                } else {
+                    // last one
+                    int last = str.length();
+                    list.add(str.substring(off, last));
+                    off = last;
+                    break;
+                }
+            }
+            // no match
+            if (off == 0) {
+                return new String[] { str };
+            }
+            if (!limited || list.size() < limit) {
+                list.add(str.substring(off, str.length()));
+            }
+            int resultSize = list.size();
+            if (limit == 0) {
+                while (resultSize > 0 && list.get(resultSize - 1).isEmpty()) {
+                    resultSize--;
+                }
+            }
+            String[] result = new String[resultSize];
+            return list.subList(0, resultSize).toArray(result);
+        }
+        return IT_Matcher.split(Patterns.get(regex, 0), str, limit);
+    }
+
+    public boolean matches(String regex) {
+        return IT_Matcher.matches(regex, str);
+    }
+
+    public String substring(int beginIndex) {
+        return substring(beginIndex, str.length());
+    }
+
+    public String substring(int beginIndex, int endIndex) {
+        if (beginIndex < 0) {
+            throw new StringIndexOutOfBoundsException(beginIndex);
+        }
+        if (endIndex > str.length()) {
+            throw new StringIndexOutOfBoundsException(endIndex);
+        }
+        int subLen = endIndex - beginIndex;
+        if (subLen < 0) {
+            throw new StringIndexOutOfBoundsException(subLen);
+        }
+        return ((beginIndex == 0) && (endIndex == str.length())) ? str : str.substring(beginIndex, endIndex);
+    }
+
+    public int indexOf(int ch) {
+        return indexOf(ch, 0);
+    }
+
+    public int indexOf(int ch, int fromIndex) {
+        final int max = str.length();
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        } else if (fromIndex >= max) {
+            return -1;
+        }
+        if (ch < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            for (int i = fromIndex; i < max; i++) {
+                if (str.charAt(i) == ch) {
+                    return i;
+                }
+            }
+            return -1;
+        } else {
+            return str.indexOf(ch, fromIndex);
+        }
+    }
+
+    public int indexOf(String target) {
+        return indexOf(target, 0);
+    }
+
+    public int indexOf(String target, int fromIndex) {
+        int sourceCount = str.length();
+        int targetCount = target.length();
+        if (fromIndex >= sourceCount) {
+            return (targetCount == 0 ? sourceCount : -1);
+        }
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        if (targetCount == 0) {
+            return fromIndex;
+        }
+        char first = target.charAt(0);
+        int max = sourceCount - targetCount;
+        for (int i = fromIndex; i <= max; i++) {
+            // look for the first character
+            if (str.charAt(i) != first) {
+                while (++i <= max && str.charAt(i) != first) {
+                }
+            }
+            // then for the rest
+            if (i <= max) {
+                int j = i + 1;
+                int end = j + targetCount - 1;
+                for (int k = 1; j < end && str.charAt(j) == target.charAt(k); j++, k++) {
+                }
+                if (j == end) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * String.format, with a branch per kind of conversion of the format.
+     */
+    public static String format(String format, Object... args) {
+        int index = format.indexOf('%');
+        while (index >= 0 && index + 1 < format.length()) {
+            int conversion = index + 1;
+            // skip the argument index, flags, width and precision
+            while (conversion < format.length() && "0123456789$-#+ ,(.<".indexOf(format.charAt(conversion)) >= 0) {
+                conversion++;
+            }
+            if (conversion == format.length()) {
+                break;
+            }
+            switch (format.charAt(conversion)) {
+            case '%':
+            case 'n':
+                break;
+            case 's':
+            case 'S':
+                break;
+            case 'd':
+            case 'o':
+            case 'x':
+            case 'X':
+                break;
+            case 'e':
+            case 'E':
+            case 'f':
+            case 'g':
+            case 'G':
+            case 'a':
+            case 'A':
+                break;
+            case 'c':
+            case 'C':
+            case 'b':
+            case 'B':
+            case 'h':
+            case 'H':
+                break;
+            case 't':
+            case 'T':
+                // date and time, followed by its suffix
+                conversion++;
+                break;
+            default:
+                break;
+            }
+            index = format.indexOf('%', conversion + 1);
+        }
+        return String.format(format, args);
+    }
+
+    /**
+     * The patterns of the shims, compiled once. A nested class, so that its
+     * branches do not count in the coverage of IT_String.
+     */
+    static class Patterns {
+        private static final int MAX_CACHED_PATTERNS = 256;
+        private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+        static Pattern get(String regex, int flags) {
+            String key = flags + ":" + regex;
+            Pattern pattern = PATTERNS.get(key);
+            if (pattern == null) {
+                if (PATTERNS.size() >= MAX_CACHED_PATTERNS) {
+                    PATTERNS.clear();
+                }
+                pattern = Pattern.compile(regex, flags);
+                PATTERNS.put(key, pattern);
+            }
+            return pattern;
+        }
+    }
 }
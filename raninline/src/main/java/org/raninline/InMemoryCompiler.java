@@ -0,0 +1,218 @@
+package org.raninline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles Java source text with the system compiler (javax.tools) and keeps
+ * the class files in memory.
+ */
+public class InMemoryCompiler {
+    public static class Result {
+        public boolean success;
+        public Map<String, byte[]> classes = new HashMap<>(); // binary class name -> class file
+        public List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+
+        /**
+         * @return lines of the compiled source (not of the other sources it
+         *         refers to) that have errors
+         */
+        public Set<Long> errorLines() {
+            Set<Long> lines = new TreeSet<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getSource() instanceof SourceFile
+                        && diagnostic.getLineNumber() != Diagnostic.NOPOS) {
+                    lines.add(diagnostic.getLineNumber());
+                }
+            }
+            return lines;
+        }
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        ClassFile(String className, Map<String, byte[]> classes) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    synchronized (classes) {
+                        classes.put(className, toByteArray());
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * @return true if a system compiler is available (i.e. running on a JDK)
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Compile one compilation unit.
+     *
+     * @param className fully qualified name of the public type of the source
+     * @param source
+     * @param options   javac options, e.g. "-classpath", "...", "-sourcepath",
+     *                  "..."
+     * @return
+     */
+    public static Result compile(String className, String source, List<String> options) {
+        Result result = new Result();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return result;
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        ForwardingJavaFileManager<StandardJavaFileManager> fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(
+                standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                    FileObject sibling) {
+                return new ClassFile(name, result.classes);
+            }
+        };
+        List<String> allOptions = new ArrayList<>(Arrays.asList("-proc:none", "-implicit:none", "-g:none"));
+        allOptions.addAll(options);
+        try {
+            result.success = compiler.getTask(null, fileManager, diagnostics, allOptions, null,
+                    Arrays.asList(new SourceFile(className, source))).call();
+            fileManager.close();
+        } catch (IOException | RuntimeException e) {
+            Log.debug("compilation of " + className + " failed: " + e);
+            result.success = false;
+        }
+        result.diagnostics.addAll(diagnostics.getDiagnostics());
+        return result;
+    }
+
+    /**
+     * Length of the Code attribute of each method of a class file.
+     *
+     * @param classFile
+     * @return method name and descriptor (e.g. "foo(I)V") -> bytecode length
+     */
+    public static Map<String, Integer> methodCodeSizes(byte[] classFile) {
+        ByteBuffer in = ByteBuffer.wrap(classFile);
+        if (in.getInt() != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        in.getShort(); // minor
+        in.getShort(); // major
+        int constantCount = in.getShort() & 0xffff;
+        String[] utf8 = new String[constantCount];
+        for (int i = 1; i < constantCount; i++) {
+            int tag = in.get();
+            switch (tag) {
+                case 1: // Utf8
+                    byte[] bytes = new byte[in.getShort() & 0xffff];
+                    in.get(bytes);
+                    utf8[i] = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.position(in.position() + 8);
+                    i++;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.position(in.position() + 2);
+                    break;
+                case 15: // MethodHandle
+                    in.position(in.position() + 3);
+                    break;
+                default: // Integer, Float, refs, NameAndType, (Invoke)Dynamic
+                    in.position(in.position() + 4);
+                    break;
+            }
+        }
+        in.position(in.position() + 6); // access, this, super
+        int interfaceCount = in.getShort() & 0xffff;
+        in.position(in.position() + 2 * interfaceCount);
+        skipMembers(in);
+        Map<String, Integer> sizes = new HashMap<>();
+        int methodCount = in.getShort() & 0xffff;
+        for (int i = 0; i < methodCount; i++) {
+            in.getShort(); // access
+            String name = utf8[in.getShort() & 0xffff];
+            String descriptor = utf8[in.getShort() & 0xffff];
+            int attributeCount = in.getShort() & 0xffff;
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = utf8[in.getShort() & 0xffff];
+                int length = in.getInt();
+                int end = in.position() + length;
+                if (attributeName.equals("Code")) {
+                    in.getShort(); // max stack
+                    in.getShort(); // max locals
+                    sizes.put(name + descriptor, in.getInt());
+                }
+                in.position(end);
+            }
+        }
+        return sizes;
+    }
+
+    private static void skipMembers(ByteBuffer in) {
+        int count = in.getShort() & 0xffff;
+        for (int i = 0; i < count; i++) {
+            in.position(in.position() + 6); // access, name, descriptor
+            int attributeCount = in.getShort() & 0xffff;
+            for (int j = 0; j < attributeCount; j++) {
+                in.getShort(); // name
+                int length = in.getInt();
+                in.position(in.position() + length);
+            }
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package org.raninline;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
 public class InlineTest {
+    private static final byte ENCODING_VERSION = 1;
+
     public String testName;
     public int lineNo;
     public int targetStmtLineNo;
-    public List<String> givens;
-    public List<String> assertions;
+    public List<InlineTestStep> givens;
+    public List<InlineTestStep> assertions;
     public String srcPath; // source file path that inline test is in
     public String clazzName; // class that inline test is in
-    
+    private long fingerprint; // cached by fingerprint(), 0 if not computed yet
+
     public InlineTest() {
-        this.givens = new ArrayList<String>();
-        this.assertions = new ArrayList<String>();
+        this.givens = new ArrayList<InlineTestStep>();
+        this.assertions = new ArrayList<InlineTestStep>();
     }
 
     public String toString() {
@@ -28,11 +46,11 @@ public class InlineTest {
         } else {
             sb.append("new Here(\"" + this.testName + "\", " + this.targetStmtLineNo + ")");
         }
-        for (String given : givens) {
+        for (InlineTestStep given : givens) {
             sb.append(".");
             sb.append(given);
         }
-        for (String assertion : assertions) {
+        for (InlineTestStep assertion : assertions) {
             sb.append(".");
             sb.append(assertion);
         }
@@ -40,8 +58,110 @@ public class InlineTest {
         return sb.toString();
     }
 
+    /**
+     * Build the inline test statement directly, without printing and parsing
+     * it.
+     *
+     * @return the same statement as parsing {@link #toString()}
+     */
+    public Statement toStatement() {
+        return new ExpressionStmt(toExpression());
+    }
+
+    public Expression toExpression() {
+        NodeList<Expression> arguments = new NodeList<>();
+        if (this.testName != null) {
+            arguments.add(new StringLiteralExpr(this.testName));
+        }
+        if (this.targetStmtLineNo > 0) {
+            arguments.add(new IntegerLiteralExpr(Integer.toString(this.targetStmtLineNo)));
+        }
+        Expression expr = new ObjectCreationExpr(null, new ClassOrInterfaceType(null, "Here"), arguments);
+        for (InlineTestStep given : givens) {
+            expr = given.toExpression(expr);
+        }
+        for (InlineTestStep assertion : assertions) {
+            expr = assertion.toExpression(expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Canonical binary encoding of the test (without srcPath and clazzName),
+     * used for fingerprints and binary logs.
+     *
+     * @return
+     */
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ENCODING_VERSION);
+            out.writeBoolean(this.testName != null);
+            if (this.testName != null) {
+                out.writeUTF(this.testName);
+            }
+            out.writeInt(this.targetStmtLineNo);
+            out.writeInt(givens.size());
+            for (InlineTestStep given : givens) {
+                given.encode(out);
+            }
+            out.writeInt(assertions.size());
+            for (InlineTestStep assertion : assertions) {
+                assertion.encode(out);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param encoded bytes of {@link #encode()}
+     * @return the test, without srcPath and clazzName
+     */
+    public static InlineTest decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            if (in.readByte() != ENCODING_VERSION) {
+                throw new IOException("Unsupported inline test encoding");
+            }
+            InlineTest inlineTest = new InlineTest();
+            if (in.readBoolean()) {
+                inlineTest.testName = in.readUTF();
+            }
+            inlineTest.targetStmtLineNo = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                inlineTest.givens.add(InlineTestStep.decode(in));
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                inlineTest.assertions.add(InlineTestStep.decode(in));
+            }
+            return inlineTest;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 64-bit fingerprint of the canonical inline test. It is computed once and
+     * cached, so it must only be called after all givens and assertions are
+     * added.
+     *
+     * @return
+     */
+    public long fingerprint() {
+        if (this.fingerprint == 0) {
+            this.fingerprint = Utils.fingerprint(encode(), this.srcPath, Integer.toString(this.lineNo));
+        }
+        return this.fingerprint;
+    }
+
     public int hashCode() {
-        return this.srcPath.hashCode() + this.lineNo + this.toString().hashCode();
+        long fp = fingerprint();
+        return (int) (fp ^ (fp >>> 32));
     }
     
     public boolean equals(Object o) {
@@ -52,7 +172,10 @@ public class InlineTest {
             return false;
         }
         InlineTest other = (InlineTest) o;
+        if (this.fingerprint() != other.fingerprint()) {
+            return false;
+        }
         return this.srcPath.equals(other.srcPath) && this.lineNo == other.lineNo
-                && this.toString().equals(other.toString());
+                && Arrays.equals(this.encode(), other.encode());
     }
 }
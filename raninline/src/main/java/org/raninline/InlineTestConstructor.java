@@ -1,10 +1,21 @@
 package org.raninline;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.comments.Comment;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.stmt.BlockStmt;
@@ -14,40 +25,167 @@ import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 import com.github.javaparser.ast.stmt.Statement;
 
+/**
+ * Inserts the inline tests of ctx.inlineTests after their target statements.
+ * Pending target lines are kept in a sorted map, so every statement looks up
+ * the lines in its range instead of scanning all of them. Tests with a typed
+ * form (ctx.typedInlineTests) are built without parsing, the others of a line
+ * are parsed together in one block; statements are cached by their text.
+ */
 public class InlineTestConstructor extends ModifierVisitor<Context> {
     Set<Integer> visitedLines;
-    
+    private final JavaParser parser;
+    private NavigableMap<Integer, Set<String>> pendingLines;
+    private final Map<String, Statement> parsedInlineTests = new HashMap<>();
+
     public InlineTestConstructor() {
-       visitedLines = new HashSet<>();
+        this(Parser.JAVA_PARSER.get());
+    }
+
+    /**
+     * @param parser parses the inline tests, must not be shared with other
+     *               threads
+     */
+    public InlineTestConstructor(JavaParser parser) {
+        visitedLines = new HashSet<>();
+        this.parser = parser;
+    }
+
+    /**
+     * @return target lines in [begin, end] that have not been visited yet; the
+     *         view supports removal
+     */
+    private NavigableMap<Integer, Set<String>> pendingLines(Context ctx, int begin, int end) {
+        if (pendingLines == null) {
+            pendingLines = new TreeMap<>(ctx.inlineTests);
+            // typed tests are built directly instead of being parsed
+            for (Map.Entry<String, InlineTest> typed : ctx.typedInlineTests.entrySet()) {
+                parsedInlineTests.put(typed.getKey(), typed.getValue().toStatement());
+            }
+        }
+        return pendingLines.subMap(begin, true, end, true);
+    }
+
+    /**
+     * Parse the inline tests of one target statement. Uncached tests are parsed
+     * in one block, one test per line; if that fails they are parsed one by one
+     * and malformed tests are skipped.
+     *
+     * @param inlineTestStrs
+     * @return fresh copies of the parsed statements, in the order of the set
+     */
+    List<Statement> parseInlineTests(Set<String> inlineTestStrs) {
+        List<String> uncached = new ArrayList<>();
+        for (String inlineTestStr : inlineTestStrs) {
+            if (!parsedInlineTests.containsKey(inlineTestStr)) {
+                uncached.add(inlineTestStr);
+            }
+        }
+        if (!uncached.isEmpty() && !parseBlock(uncached)) {
+            for (String inlineTestStr : uncached) {
+                try {
+                    parsedInlineTests.put(inlineTestStr, parseStatement(inlineTestStr));
+                } catch (Exception e) {
+                    // when the inline test is not well-formed, skip it
+                    parsedInlineTests.put(inlineTestStr, null);
+                }
+            }
+        }
+        List<Statement> inlineTests = new ArrayList<>();
+        for (String inlineTestStr : inlineTestStrs) {
+            Statement inlineTest = parsedInlineTests.get(inlineTestStr);
+            if (inlineTest != null) {
+                inlineTests.add(inlineTest.clone());
+            }
+        }
+        return inlineTests;
+    }
+
+    /**
+     * @return false if the tests are not exactly one statement per line
+     */
+    private boolean parseBlock(List<String> inlineTestStrs) {
+        StringBuilder block = new StringBuilder("{\n");
+        for (String inlineTestStr : inlineTestStrs) {
+            if (inlineTestStr.indexOf('\n') >= 0 || inlineTestStr.indexOf('\r') >= 0) {
+                return false;
+            }
+            block.append(inlineTestStr).append('\n');
+        }
+        block.append('}');
+        ParseResult<BlockStmt> result = parser.parseBlock(block.toString());
+        if (!result.isSuccessful() || !result.getResult().isPresent()) {
+            return false;
+        }
+        NodeList<Statement> statements = result.getResult().get().getStatements();
+        if (statements.size() != inlineTestStrs.size()) {
+            return false;
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            int line = i + 2;
+            if (!statement.getRange().isPresent() || statement.getRange().get().begin.line != line
+                    || statement.getRange().get().end.line != line) {
+                return false;
+            }
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            parsedInlineTests.put(inlineTestStrs.get(i), statements.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * @return the inline tests as they are inserted, compacted into tables in
+     *         table emission mode
+     */
+    private List<Statement> emit(List<Statement> inlineTests, Node target, int lineNumber) {
+        if (!Constant.tableEmission) {
+            return inlineTests;
+        }
+        @SuppressWarnings("unchecked")
+        TypeDeclaration<?> type = target.findAncestor(TypeDeclaration.class).orElse(null);
+        return InlineTestTable.compact(inlineTests, type, lineNumber);
+    }
+
+    private Statement parseStatement(String inlineTestStr) {
+        ParseResult<Statement> result = parser.parseStatement(inlineTestStr);
+        if (!result.isSuccessful() || !result.getResult().isPresent()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
     }
 
     @Override
     public Visitable visit(final ExpressionStmt stmt, final Context ctx) {
         Visitable v = super.visit(stmt, ctx);
-        for (int lineNumber : ctx.inlineTests.keySet()) {
-            if (visitedLines.contains(lineNumber)) {
-                continue;
-            }
-            if (stmt.getRange().get().begin.line <= lineNumber && lineNumber <= stmt.getRange().get().end.line) {
-                // check if parent statement is in the same line
-                if (stmt.getParentNode().get().getRange().get().begin.line == stmt.getRange().get().begin.line) {
-                    continue;
-                }
-                visitedLines.add(lineNumber);
-                Set<String> inlineTestStrs = ctx.inlineTests.get(lineNumber);
-                // find the target statement
-                Node parent = stmt.getParentNode().get();
-                for (String inlineTestStr : inlineTestStrs) {
-                    try{
-                        Statement inlineTest = StaticJavaParser.parseStatement(inlineTestStr);
-                        // insert the inline test after the target statement
-                        if (parent instanceof BlockStmt) {
-                            ((BlockStmt) parent).getStatements().addAfter(inlineTest, stmt);
-                        }
-                    }catch(Exception e){
-                        // when the inline test is not well-formed, skip it
-                        continue;
-                    }
+        if (!stmt.getRange().isPresent()) {
+            return v;
+        }
+        int begin = stmt.getRange().get().begin.line;
+        int end = stmt.getRange().get().end.line;
+        // check if parent statement is in the same line; the block that wraps
+        // the then statement of an if has no range, its if has
+        Node parent = stmt.getParentNode().get();
+        Node rangedParent = parent;
+        while (!rangedParent.getRange().isPresent() && rangedParent.getParentNode().isPresent()) {
+            rangedParent = rangedParent.getParentNode().get();
+        }
+        if (rangedParent.getRange().isPresent() && rangedParent.getRange().get().begin.line == begin) {
+            return v;
+        }
+        Iterator<Map.Entry<Integer, Set<String>>> lines = pendingLines(ctx, begin, end).entrySet().iterator();
+        while (lines.hasNext()) {
+            // read the entry before removing it, TreeMap reuses removed entries
+            Map.Entry<Integer, Set<String>> line = lines.next();
+            int lineNumber = line.getKey();
+            Set<String> inlineTestStrs = line.getValue();
+            lines.remove();
+            visitedLines.add(lineNumber);
+            for (Statement inlineTest : emit(parseInlineTests(inlineTestStrs), stmt, lineNumber)) {
+                // insert the inline test after the target statement
+                if (parent instanceof BlockStmt) {
+                    ((BlockStmt) parent).getStatements().addAfter(inlineTest, stmt);
                 }
             }
         }
@@ -60,7 +198,11 @@ public class InlineTestConstructor extends ModifierVisitor<Context> {
         Statement elseStmt = n.getElseStmt().map(s -> (Statement) s.accept(this, ctx)).orElse(null);
         Statement thenStmt = (Statement) n.getThenStmt();
         if (thenStmt != null && !(thenStmt instanceof BlockStmt)) {
-            thenStmt = new BlockStmt().addStatement(thenStmt);
+            // set the wrapper first, so that the then statement keeps the if
+            // as an ancestor while it is visited
+            BlockStmt block = new BlockStmt();
+            n.setThenStmt(block);
+            thenStmt = block.addStatement(thenStmt);
         }
         thenStmt = (Statement) thenStmt.accept(this, ctx);
         Comment comment = n.getComment().map(s -> (Comment) s.accept(this, ctx)).orElse(null);
@@ -71,23 +213,19 @@ public class InlineTestConstructor extends ModifierVisitor<Context> {
         n.setThenStmt(thenStmt);
         n.setComment(comment);
 
-        for (int lineNumber : ctx.inlineTests.keySet()) {
-            if (visitedLines.contains(lineNumber)) {
-                continue;
-            }
-            if (condition.getBegin().get().line <= lineNumber && lineNumber <= condition.getEnd().get().line) {
-                visitedLines.add(lineNumber);
-                Set<String> inlineTestStrs = ctx.inlineTests.get(lineNumber);
-                // log executed statement at the beginning of the if block
-                for (String inlineTestStr : inlineTestStrs) {
-                    try{
-                        Statement inlineTest = StaticJavaParser.parseStatement(inlineTestStr);
-                        thenStmt.asBlockStmt().getStatements().addFirst(inlineTest);
-                    }catch(Exception e){
-                        // when the inline test is not well-formed, skip it
-                        continue;
-                    }
-                }
+        int begin = condition.getBegin().get().line;
+        int end = condition.getEnd().get().line;
+        Iterator<Map.Entry<Integer, Set<String>>> lines = pendingLines(ctx, begin, end).entrySet().iterator();
+        while (lines.hasNext()) {
+            // read the entry before removing it, TreeMap reuses removed entries
+            Map.Entry<Integer, Set<String>> line = lines.next();
+            int lineNumber = line.getKey();
+            Set<String> inlineTestStrs = line.getValue();
+            lines.remove();
+            visitedLines.add(lineNumber);
+            // log executed statement at the beginning of the if block
+            for (Statement inlineTest : emit(parseInlineTests(inlineTestStrs), n, lineNumber)) {
+                thenStmt.asBlockStmt().getStatements().addFirst(inlineTest);
             }
         }
 
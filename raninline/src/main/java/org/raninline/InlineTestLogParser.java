@@ -0,0 +1,276 @@
+package org.raninline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Parser for legacy inline test logs ("srcPath;line;test" per line). The file
+ * is memory-mapped and split at line boundaries into chunks that are parsed in
+ * parallel. Each line is scanned for its first two separators only; the test
+ * stays a slice of the mapped file until {@link Record#test()} is called.
+ */
+public class InlineTestLogParser {
+    static final long MAX_CHUNK_BYTES = 1 << 28;
+    static final long MIN_CHUNK_BYTES = 1 << 20;
+
+    /**
+     * One line of the log. Records are reused while a chunk is parsed, so
+     * consumers must copy what they keep.
+     */
+    public static class Record {
+        public String srcPath;
+        public int line;
+        public long offset; // file offset of the line
+        public int length; // length of the line including the line break
+        ByteBuffer chunk;
+        int testStart;
+        int testEnd; // exclusive, trailing separators are not included
+
+        /**
+         * @return the inline test with one trailing separator, as the legacy
+         *         parser rebuilt it
+         */
+        public String test() {
+            ByteBuffer slice = testBytes();
+            return StandardCharsets.UTF_8.decode(slice).toString() + Constant.LOG_SEPARATOR;
+        }
+
+        /**
+         * @return read-only view of the UTF-8 bytes of the test, without the
+         *         trailing separator
+         */
+        public ByteBuffer testBytes() {
+            ByteBuffer slice = chunk.asReadOnlyBuffer();
+            slice.limit(testEnd);
+            slice.position(testStart);
+            return slice.slice();
+        }
+    }
+
+    /**
+     * Parse the log in parallel.
+     *
+     * @param logFilePath
+     * @param stateSupplier creates the state of one chunk
+     * @param accumulator   consumes one record into the state of its chunk; only
+     *                      called from the thread that parses the chunk
+     * @return the states of all chunks, in file order
+     * @throws IOException
+     */
+    public static <T> List<T> parse(String logFilePath, Supplier<T> stateSupplier, BiConsumer<T, Record> accumulator)
+            throws IOException {
+        return parse(logFilePath, -1, stateSupplier, accumulator, state -> {
+        });
+    }
+
+    /**
+     * Parse the log in parallel.
+     *
+     * @param logFilePath
+     * @param stateSupplier creates the state of one chunk
+     * @param accumulator   consumes one record into the state of its chunk
+     * @param finisher      called with the state of a chunk once the chunk is
+     *                      parsed, from the thread that parsed it
+     * @return the states of all chunks, in file order
+     * @throws IOException
+     */
+    public static <T> List<T> parse(String logFilePath, Supplier<T> stateSupplier, BiConsumer<T, Record> accumulator,
+            Consumer<T> finisher) throws IOException {
+        return parse(logFilePath, -1, stateSupplier, accumulator, finisher);
+    }
+
+    static <T> List<T> parse(String logFilePath, long chunkBytes, Supplier<T> stateSupplier,
+            BiConsumer<T, Record> accumulator) throws IOException {
+        return parse(logFilePath, chunkBytes, stateSupplier, accumulator, state -> {
+        });
+    }
+
+    static <T> List<T> parse(String logFilePath, long chunkBytes, Supplier<T> stateSupplier,
+            BiConsumer<T, Record> accumulator, Consumer<T> finisher) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(logFilePath), StandardOpenOption.READ)) {
+            if (chunkBytes <= 0) {
+                int parallelism = Runtime.getRuntime().availableProcessors();
+                chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, channel.size() / parallelism + 1));
+            }
+            List<MappedByteBuffer> chunks = split(channel, chunkBytes);
+            List<Long> offsets = new ArrayList<>();
+            long offset = 0;
+            for (MappedByteBuffer chunk : chunks) {
+                offsets.add(offset);
+                offset += chunk.limit();
+            }
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                indexes.add(i);
+            }
+            return indexes.parallelStream().map(i -> {
+                T state = stateSupplier.get();
+                parseChunk(chunks.get(i), offsets.get(i), state, accumulator);
+                finisher.accept(state);
+                return state;
+            }).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Map the file in chunks that end at line breaks.
+     */
+    static List<MappedByteBuffer> split(FileChannel channel, long chunkBytes) throws IOException {
+        long size = channel.size();
+        List<MappedByteBuffer> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            if (end < size) {
+                // extend the chunk to the end of the line
+                end = nextLineStart(channel, end);
+            }
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long size = channel.size();
+        while (position < size) {
+            buf.clear();
+            int n = channel.read(buf, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    static <T> void parseChunk(ByteBuffer chunk, long chunkOffset, T state, BiConsumer<T, Record> accumulator) {
+        Record record = new Record();
+        record.chunk = chunk;
+        int limit = chunk.limit();
+        int lineStart = 0;
+        // the previous source path, logs are mostly grouped by source file
+        int prevSrcStart = -1;
+        int prevSrcLength = -1;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            int sep1 = -1;
+            int sep2 = -1;
+            while (lineEnd < limit) {
+                byte b = chunk.get(lineEnd);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == ';') {
+                    if (sep1 < 0) {
+                        sep1 = lineEnd;
+                    } else if (sep2 < 0) {
+                        sep2 = lineEnd;
+                    }
+                }
+                lineEnd++;
+            }
+            int next = lineEnd < limit ? lineEnd + 1 : lineEnd;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && chunk.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            int testEnd = contentEnd;
+            while (sep2 >= 0 && testEnd > sep2 + 1 && chunk.get(testEnd - 1) == ';') {
+                testEnd--;
+            }
+            if (sep2 < 0 || testEnd <= sep2 + 1) {
+                Log.debug("cannot be splitted" + decode(chunk, lineStart, contentEnd));
+                lineStart = next;
+                continue;
+            }
+            int lineNumber = parseInt(chunk, sep1 + 1, sep2);
+            if (lineNumber == Integer.MIN_VALUE) {
+                System.out.println("cannot be parsed: " + decode(chunk, lineStart, contentEnd));
+                lineStart = next;
+                continue;
+            }
+            int srcLength = sep1 - lineStart;
+            if (srcLength != prevSrcLength || !sameBytes(chunk, prevSrcStart, lineStart, srcLength)) {
+                record.srcPath = decode(chunk, lineStart, sep1);
+            }
+            prevSrcStart = lineStart;
+            prevSrcLength = srcLength;
+            record.line = lineNumber;
+            record.offset = chunkOffset + lineStart;
+            record.length = next - lineStart;
+            record.testStart = sep2 + 1;
+            record.testEnd = testEnd;
+            accumulator.accept(state, record);
+            lineStart = next;
+        }
+    }
+
+    private static boolean sameBytes(ByteBuffer buf, int a, int b, int length) {
+        if (a < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buf.get(a + i) != buf.get(b + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a decimal int like {@link Integer#parseInt(String)}.
+     *
+     * @return Integer.MIN_VALUE if the bytes are not a number
+     */
+    private static int parseInt(ByteBuffer buf, int start, int end) {
+        if (start >= end) {
+            return Integer.MIN_VALUE;
+        }
+        boolean negative = false;
+        byte first = buf.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+            if (start == end) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') {
+                return Integer.MIN_VALUE;
+            }
+            value = value * 10 + (b - '0');
+            if (value > Integer.MAX_VALUE) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static String decode(ByteBuffer buf, int start, int end) {
+        ByteBuffer slice = buf.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+}
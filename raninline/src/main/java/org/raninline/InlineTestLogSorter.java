@@ -0,0 +1,315 @@
+package org.raninline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * External sort of an inline test log (text or binary) by source file, so that
+ * the tests can be consumed one source file at a time without holding the whole
+ * log in memory. The log is read in sorted runs that are spilled to temporary
+ * binary logs next to the input, and the runs are then merged with a k-way
+ * merge. At most {@link Constant#externalSortMaxFanIn} runs are open at once:
+ * while there are more, groups of them are merged into longer runs first. The
+ * parsing threads share a budget of
+ * {@link Constant#externalSortRunBytes}, and each chunk of the log spills its
+ * last run once it is parsed, so peak memory is about that budget plus the
+ * tests of the largest source file.
+ */
+public class InlineTestLogSorter {
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int cmp = a.srcPath.compareTo(b.srcPath);
+        return cmp != 0 ? cmp : Integer.compare(a.line, b.line);
+    };
+
+    public interface FileConsumer {
+        /**
+         * @param srcPath
+         * @param inlineTests      line -> inline tests
+         * @param typedInlineTests inline test text -> typed test, for the tests
+         *                         of a binary log that have one
+         */
+        void accept(String srcPath, Map<Integer, Set<String>> inlineTests, Map<String, InlineTest> typedInlineTests)
+                throws IOException;
+    }
+
+    private static class Entry {
+        final String srcPath;
+        final int line;
+        final String test;
+        final InlineTest typed; // null if the record has no typed form
+
+        Entry(String srcPath, int line, String test, InlineTest typed) {
+            this.srcPath = srcPath;
+            this.line = line;
+            this.test = test;
+            this.typed = typed;
+        }
+    }
+
+    /**
+     * Bytes buffered by all the run writers of one sort.
+     */
+    static class BufferedBytes {
+        private final AtomicLong current = new AtomicLong();
+        private final AtomicLong peak = new AtomicLong();
+
+        void add(long bytes) {
+            long buffered = current.addAndGet(bytes);
+            peak.accumulateAndGet(buffered, Math::max);
+        }
+
+        void release(long bytes) {
+            current.addAndGet(-bytes);
+        }
+
+        long peak() {
+            return peak.get();
+        }
+    }
+
+    /**
+     * Buffers records and spills them as sorted runs.
+     */
+    private static class RunWriter {
+        final Path dir;
+        final long runBytes;
+        final BufferedBytes buffered;
+        final List<Entry> records = new ArrayList<>();
+        final List<Path> runs = new ArrayList<>();
+        long bytes;
+
+        RunWriter(Path dir, long runBytes, BufferedBytes buffered) {
+            this.dir = dir;
+            this.runBytes = runBytes;
+            this.buffered = buffered;
+        }
+
+        void add(String srcPath, int line, String test, InlineTest typed) {
+            records.add(new Entry(srcPath, line, test, typed));
+            // rough size of the strings and the array on the heap
+            long recordBytes = 2L * (srcPath.length() + test.length()) + 96;
+            bytes += recordBytes;
+            buffered.add(recordBytes);
+            if (bytes >= runBytes) {
+                spill();
+            }
+        }
+
+        void spill() {
+            if (records.isEmpty()) {
+                return;
+            }
+            Collections.sort(records, ORDER);
+            try {
+                Path run = Files.createTempFile(dir, "inlinetest-run", ".bin");
+                try (EventLogWriter writer = EventLogWriter.open(run.toString())) {
+                    for (Entry record : records) {
+                        write(writer, record);
+                    }
+                }
+                runs.add(run);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            records.clear();
+            buffered.release(bytes);
+            bytes = 0;
+        }
+    }
+
+    private static void write(EventLogWriter writer, Entry record) throws IOException {
+        if (record.typed != null) {
+            writer.writeInlineTest(record.srcPath, record.line, record.test, record.typed);
+        } else {
+            writer.writeInlineTest(record.srcPath, record.line, record.test);
+        }
+    }
+
+    /**
+     * Head of one run during the merge.
+     */
+    private static class RunCursor {
+        final EventLogReader reader;
+        Entry record;
+
+        RunCursor(EventLogReader reader) {
+            this.reader = reader;
+        }
+
+        boolean advance() throws IOException {
+            if (!reader.next()) {
+                record = null;
+                return false;
+            }
+            record = new Entry(reader.srcPath(), reader.line(), reader.inlineTest(), reader.typedInlineTest());
+            return true;
+        }
+    }
+
+    /**
+     * Pass the inline tests of the log to the consumer, one source file at a
+     * time in the order of the source paths.
+     *
+     * @param logFilePath
+     * @param consumer
+     * @throws IOException
+     */
+    public static void forEachFile(String logFilePath, FileConsumer consumer) throws IOException {
+        forEachFile(logFilePath, Constant.externalSortRunBytes, consumer);
+    }
+
+    static void forEachFile(String logFilePath, long runBytes, FileConsumer consumer) throws IOException {
+        forEachFile(logFilePath, runBytes, Constant.externalSortMaxFanIn, consumer);
+    }
+
+    /**
+     * @param maxFanIn number of runs merged at once, at least 2
+     */
+    static void forEachFile(String logFilePath, long runBytes, int maxFanIn, FileConsumer consumer)
+            throws IOException {
+        List<Path> runs = split(logFilePath, runBytes, -1, new BufferedBytes());
+        // every run of the sort, deleted at the end also if a merge fails
+        List<Path> created = new ArrayList<>(runs);
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            while (runs.size() > maxFanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += maxFanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + maxFanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path run = Files.createTempFile(group.get(0).getParent(), "inlinetest-run", ".bin");
+                    created.add(run);
+                    merge(group, run);
+                    merged.add(run);
+                    for (Path path : group) {
+                        Files.delete(path);
+                    }
+                }
+                runs = merged;
+            }
+            PriorityQueue<RunCursor> queue = open(runs, cursors);
+            while (!queue.isEmpty()) {
+                String srcPath = queue.peek().record.srcPath;
+                Map<Integer, Set<String>> lineMap = new HashMap<>();
+                Map<String, InlineTest> typedInlineTests = new HashMap<>();
+                while (!queue.isEmpty() && queue.peek().record.srcPath.equals(srcPath)) {
+                    RunCursor cursor = queue.poll();
+                    lineMap.computeIfAbsent(cursor.record.line, k -> new HashSet<>()).add(cursor.record.test);
+                    if (cursor.record.typed != null) {
+                        typedInlineTests.put(cursor.record.test, cursor.record.typed);
+                    }
+                    if (cursor.advance()) {
+                        queue.add(cursor);
+                    }
+                }
+                consumer.accept(srcPath, lineMap, typedInlineTests);
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.reader.close();
+            }
+            for (Path run : created) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Merge sorted runs into one.
+     *
+     * @param runs
+     * @param mergedRun
+     * @throws IOException
+     */
+    private static void merge(List<Path> runs, Path mergedRun) throws IOException {
+        List<RunCursor> cursors = new ArrayList<>();
+        try (EventLogWriter writer = EventLogWriter.open(mergedRun.toString())) {
+            PriorityQueue<RunCursor> queue = open(runs, cursors);
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                write(writer, cursor.record);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param runs
+     * @param cursors the opened cursors are added to it, to be closed by the
+     *                caller
+     * @return cursors of the non-empty runs, by their head record
+     */
+    private static PriorityQueue<RunCursor> open(List<Path> runs, List<RunCursor> cursors) throws IOException {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>((a, b) -> ORDER.compare(a.record, b.record));
+        for (Path run : runs) {
+            RunCursor cursor = new RunCursor(new EventLogReader(run.toString()));
+            cursors.add(cursor);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Read the log into sorted runs.
+     *
+     * @param logFilePath
+     * @param runBytes    budget of the buffered records of all the threads
+     * @param chunkBytes  size of the chunks of a text log, -1 to size them by the
+     *                    number of processors
+     * @param buffered    accounts the buffered records
+     * @return paths of the runs
+     */
+    static List<Path> split(String logFilePath, long runBytes, long chunkBytes, BufferedBytes buffered)
+            throws IOException {
+        Path dir = Paths.get(logFilePath).toAbsolutePath().getParent();
+        List<Path> runs = new ArrayList<>();
+        if (EventLog.isBinary(logFilePath)) {
+            RunWriter runWriter = new RunWriter(dir, runBytes, buffered);
+            try (EventLogReader reader = new EventLogReader(logFilePath)) {
+                while (reader.next()) {
+                    if (reader.kind() == EventLog.INLINE_TEST) {
+                        runWriter.add(reader.srcPath(), reader.line(), reader.inlineTest(), reader.typedInlineTest());
+                    }
+                }
+            }
+            runWriter.spill();
+            runs.addAll(runWriter.runs);
+        } else {
+            // the chunks are parsed in parallel, by the common pool and the calling
+            // thread, each with its share of the budget
+            long workerRunBytes = Math.max(1, runBytes / (ForkJoinPool.getCommonPoolParallelism() + 1));
+            List<RunWriter> runWriters = InlineTestLogParser.parse(logFilePath, chunkBytes,
+                    () -> new RunWriter(dir, workerRunBytes, buffered),
+                    (runWriter, record) -> runWriter.add(record.srcPath, record.line, record.test(), null),
+                    RunWriter::spill);
+            for (RunWriter runWriter : runWriters) {
+                runs.addAll(runWriter.runs);
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,123 @@
+package org.raninline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+
+/**
+ * One call of an inline test: given(path, value), checkEq(path, value),
+ * checkTrue(group()) or checkFalse(group()).
+ */
+public class InlineTestStep {
+    public enum Action {
+        GIVEN("given"), CHECK_EQ("checkEq"), CHECK_TRUE("checkTrue"), CHECK_FALSE("checkFalse");
+
+        final String methodName;
+
+        Action(String methodName) {
+            this.methodName = methodName;
+        }
+    }
+
+    public final Action action;
+    public final String path; // variable access path, e.g. "x" or "this.x"; null for checkTrue/checkFalse
+    public final InlineTestValue value; // null for checkTrue/checkFalse
+
+    private InlineTestStep(Action action, String path, InlineTestValue value) {
+        this.action = action;
+        this.path = path;
+        this.value = value;
+    }
+
+    public static InlineTestStep given(String path, InlineTestValue value) {
+        return new InlineTestStep(Action.GIVEN, path, value);
+    }
+
+    public static InlineTestStep checkEq(String path, InlineTestValue value) {
+        return new InlineTestStep(Action.CHECK_EQ, path, value);
+    }
+
+    /**
+     * @param executed whether the block of the target if statement executed
+     */
+    public static InlineTestStep checkGroup(boolean executed) {
+        return new InlineTestStep(executed ? Action.CHECK_TRUE : Action.CHECK_FALSE, null, null);
+    }
+
+    /**
+     * @return the call as it is written in an inline test, e.g. "given(x,5)"
+     */
+    public String toString() {
+        if (value == null) {
+            return action.methodName + "(group())";
+        }
+        return action.methodName + "(" + path + "," + value + ")";
+    }
+
+    /**
+     * Append the call to an inline test expression.
+     *
+     * @param scope
+     * @return
+     */
+    public MethodCallExpr toExpression(Expression scope) {
+        if (value == null) {
+            return new MethodCallExpr(scope, action.methodName, new NodeList<>(new MethodCallExpr("group")));
+        }
+        return new MethodCallExpr(scope, action.methodName, new NodeList<>(pathExpression(), value.toExpression()));
+    }
+
+    private Expression pathExpression() {
+        String[] names = path.split("\\.");
+        Expression expr = null;
+        for (String name : names) {
+            if (!isIdentifier(name)) {
+                // not a plain access path, parse it
+                return Parser.JAVA_PARSER.get().parseExpression(path).getResult()
+                        .orElseThrow(() -> new IllegalArgumentException("Invalid variable path: " + path));
+            }
+            if (expr == null) {
+                expr = name.equals("this") ? new ThisExpr() : new NameExpr(name);
+            } else {
+                expr = new FieldAccessExpr(expr, name);
+            }
+        }
+        return expr;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void encode(DataOutputStream out) throws IOException {
+        out.writeByte(action.ordinal());
+        if (value != null) {
+            out.writeUTF(path);
+            value.encode(out);
+        }
+    }
+
+    static InlineTestStep decode(DataInputStream in) throws IOException {
+        Action action = Action.values()[in.readByte()];
+        if (action == Action.CHECK_TRUE || action == Action.CHECK_FALSE) {
+            return new InlineTestStep(action, null, null);
+        }
+        String path = in.readUTF();
+        return new InlineTestStep(action, path, InlineTestValue.decode(in));
+    }
+}
@@ -0,0 +1,332 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ArrayAccessExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+
+/**
+ * Table emission of inline tests: the tests of one target statement that have
+ * the same shape (the same Here arguments, the same calls on the same
+ * variables, and values that are literals of the same types) put their values
+ * in a static array per column, and a loop runs the Here statement once per
+ * row:
+ *
+ * <pre>
+ * private static final int[] INLINE_TESTS_62_COL0 = { 1, 3 };
+ * private static final int[] INLINE_TESTS_62_COL1 = { 2, 4 };
+ * ...
+ * for (int inlinegen$row = 0; inlinegen$row &lt; INLINE_TESTS_62_COL0.length; inlinegen$row++) {
+ *     new Here("Unit", 62).given(x, INLINE_TESTS_62_COL0[inlinegen$row]).checkEq(y, INLINE_TESTS_62_COL1[inlinegen$row]);
+ * }
+ * </pre>
+ *
+ * The columns keep the static types of the literals, so given and checkEq get
+ * the same arguments as in the plain statements.
+ */
+public class InlineTestTable {
+    static final String TABLE_PREFIX = "INLINE_TESTS_";
+    static final String COLUMN_SUFFIX = "_COL";
+    static final String ROW = "inlinegen$row";
+    static final int MIN_ROWS = 2; // smaller groups stay plain statements
+
+    private static class Group {
+        final Statement first;
+        final ObjectCreationExpr here;
+        final List<MethodCallExpr> calls;
+        final List<String> columnTypes;
+        final List<List<Expression>> rows = new ArrayList<>();
+
+        Group(Statement first, ObjectCreationExpr here, List<MethodCallExpr> calls, List<String> columnTypes) {
+            this.first = first;
+            this.here = here;
+            this.calls = calls;
+            this.columnTypes = columnTypes;
+        }
+    }
+
+    /**
+     * Group the tests of one target statement by shape and emit a table per
+     * group with at least {@link #MIN_ROWS} tests.
+     *
+     * @param inlineTests parsed inline tests
+     * @param type        type to add the tables to
+     * @param line        line of the target statement, used to name the tables
+     * @return the statements to insert, in the order of the first test of each
+     *         group
+     */
+    public static List<Statement> compact(List<Statement> inlineTests, TypeDeclaration<?> type, int line) {
+        if (!canHoldTables(type)) {
+            return inlineTests;
+        }
+        Map<String, Group> groups = new LinkedHashMap<>();
+        Map<Statement, Group> testToGroup = new IdentityHashMap<>();
+        for (Statement inlineTest : inlineTests) {
+            List<MethodCallExpr> calls = new ArrayList<>();
+            ObjectCreationExpr here = unchain(inlineTest, calls);
+            if (here == null) {
+                continue;
+            }
+            StringBuilder shape = new StringBuilder(here.toString());
+            List<Expression> row = new ArrayList<>();
+            List<String> columnTypes = new ArrayList<>();
+            boolean literals = true;
+            for (MethodCallExpr call : calls) {
+                shape.append('.').append(call.getNameAsString()).append('(');
+                if (isValueCall(call)) {
+                    String columnType = literalType(call.getArgument(1));
+                    if (columnType == null) {
+                        literals = false;
+                        break;
+                    }
+                    shape.append(call.getArgument(0)).append(",?").append(columnType);
+                    row.add(call.getArgument(1));
+                    columnTypes.add(columnType);
+                } else {
+                    shape.append(call.getArguments());
+                }
+                shape.append(')');
+            }
+            if (!literals) {
+                continue;
+            }
+            Group group = groups.computeIfAbsent(shape.toString(),
+                    k -> new Group(inlineTest, here, calls, columnTypes));
+            group.rows.add(row);
+            testToGroup.put(inlineTest, group);
+        }
+        List<Statement> statements = new ArrayList<>();
+        for (Statement inlineTest : inlineTests) {
+            Group group = testToGroup.get(inlineTest);
+            if (group == null || group.rows.size() < MIN_ROWS || group.rows.get(0).isEmpty()) {
+                statements.add(inlineTest);
+            } else if (group.first == inlineTest) {
+                statements.add(emit(group, type, line));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Static fields can not be declared (before Java 16) in local and
+     * anonymous classes, in inner (non-static member) classes, nor in any type
+     * enclosed in one of them.
+     */
+    private static boolean canHoldTables(TypeDeclaration<?> type) {
+        if (type == null) {
+            return false;
+        }
+        for (Node node = type; node != null; node = node.getParentNode().orElse(null)) {
+            if (node instanceof ObjectCreationExpr) {
+                return false;
+            } else if (node instanceof ClassOrInterfaceDeclaration) {
+                ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) node;
+                if (declaration.isLocalClassDeclaration() || isInnerClass(declaration)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true for a member class that is not static, explicitly or as a
+     *         member of an interface or annotation
+     */
+    private static boolean isInnerClass(ClassOrInterfaceDeclaration declaration) {
+        if (!declaration.isNestedType() || declaration.isInterface() || declaration.isStatic()) {
+            return false;
+        }
+        Node parent = declaration.getParentNode().orElse(null);
+        return !(parent instanceof AnnotationDeclaration || parent instanceof ClassOrInterfaceDeclaration
+                && ((ClassOrInterfaceDeclaration) parent).isInterface());
+    }
+
+    /**
+     * @return the type of a literal value, or null if the value is not a
+     *         literal
+     */
+    private static String literalType(Expression value) {
+        if (value.isUnaryExpr() && (value.asUnaryExpr().getOperator() == UnaryExpr.Operator.MINUS
+                || value.asUnaryExpr().getOperator() == UnaryExpr.Operator.PLUS)) {
+            value = value.asUnaryExpr().getExpression();
+            if (!value.isIntegerLiteralExpr() && !value.isLongLiteralExpr() && !value.isDoubleLiteralExpr()) {
+                return null;
+            }
+        }
+        if (value.isIntegerLiteralExpr()) {
+            return "int";
+        } else if (value.isLongLiteralExpr()) {
+            return "long";
+        } else if (value.isDoubleLiteralExpr()) {
+            String literal = value.asDoubleLiteralExpr().getValue();
+            return literal.endsWith("f") || literal.endsWith("F") ? "float" : "double";
+        } else if (value.isCharLiteralExpr()) {
+            return "char";
+        } else if (value.isBooleanLiteralExpr()) {
+            return "boolean";
+        } else if (value.isStringLiteralExpr()) {
+            return "String";
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the statement is an inline test, i.e. a chain of calls on
+     *         a new Here object, or the loop that runs a table; the Here chain
+     *         in such a loop is part of the loop
+     */
+    static boolean isInlineTest(Statement statement) {
+        if (tableName(statement) != null) {
+            return true;
+        }
+        if (unchain(statement, new ArrayList<>()) == null) {
+            return false;
+        }
+        // the body of a table loop
+        Node parent = statement.getParentNode().orElse(null);
+        if (parent instanceof BlockStmt) {
+            parent = parent.getParentNode().orElse(null);
+        }
+        return !(parent instanceof ForStmt && tableName((ForStmt) parent) != null);
+    }
+
+    /**
+     * @return the name of the table a loop runs, or null if the statement is
+     *         not the loop of a table
+     */
+    static String tableName(Statement statement) {
+        if (!(statement instanceof ForStmt)) {
+            return null;
+        }
+        ForStmt loop = (ForStmt) statement;
+        if (!loop.getCompare().isPresent() || !loop.getCompare().get().isBinaryExpr()) {
+            return null;
+        }
+        Expression bound = loop.getCompare().get().asBinaryExpr().getRight();
+        if (!bound.isFieldAccessExpr() || !bound.asFieldAccessExpr().getScope().isNameExpr()) {
+            return null;
+        }
+        return tableOf(bound.asFieldAccessExpr().getScope().asNameExpr().getNameAsString());
+    }
+
+    /**
+     * @param fieldName name of a field
+     * @return the name of the table the field is a column of, or null if it is
+     *         not a column
+     */
+    static String tableOf(String fieldName) {
+        int column = fieldName.lastIndexOf(COLUMN_SUFFIX);
+        if (!fieldName.startsWith(TABLE_PREFIX) || column < 0) {
+            return null;
+        }
+        return fieldName.substring(0, column);
+    }
+
+    private static Type columnType(String name) {
+        if (name.equals("String")) {
+            return new ClassOrInterfaceType(null, name);
+        }
+        return new PrimitiveType(PrimitiveType.Primitive.valueOf(name.toUpperCase()));
+    }
+
+    private static boolean isValueCall(MethodCallExpr call) {
+        String name = call.getNameAsString();
+        return (name.equals("given") || name.equals("checkEq")) && call.getArguments().size() == 2;
+    }
+
+    /**
+     * @param calls receives the calls on the Here object, in order
+     * @return the Here creation, or null if the statement is not a Here chain
+     */
+    private static ObjectCreationExpr unchain(Statement statement, List<MethodCallExpr> calls) {
+        if (!(statement instanceof ExpressionStmt)) {
+            return null;
+        }
+        Expression expr = ((ExpressionStmt) statement).getExpression();
+        while (expr instanceof MethodCallExpr && ((MethodCallExpr) expr).getScope().isPresent()) {
+            calls.add(0, (MethodCallExpr) expr);
+            expr = ((MethodCallExpr) expr).getScope().get();
+        }
+        if (!(expr instanceof ObjectCreationExpr)
+                || !((ObjectCreationExpr) expr).getType().getNameAsString().equals("Here")) {
+            return null;
+        }
+        return (ObjectCreationExpr) expr;
+    }
+
+    private static Statement emit(Group group, TypeDeclaration<?> type, int line) {
+        String name = TABLE_PREFIX + line;
+        for (int i = 1; type.getFieldByName(name + COLUMN_SUFFIX + 0).isPresent(); i++) {
+            name = TABLE_PREFIX + line + "_" + i;
+        }
+        boolean isInterface = type instanceof ClassOrInterfaceDeclaration
+                && ((ClassOrInterfaceDeclaration) type).isInterface();
+        // added first in reverse, so that the columns are in order
+        for (int column = group.columnTypes.size() - 1; column >= 0; column--) {
+            NodeList<Expression> values = new NodeList<>();
+            for (List<Expression> row : group.rows) {
+                values.add(row.get(column).clone());
+            }
+            FieldDeclaration table = new FieldDeclaration(new NodeList<>(), new VariableDeclarator(
+                    new ArrayType(columnType(group.columnTypes.get(column))),
+                    name + COLUMN_SUFFIX + column, new ArrayInitializerExpr(values)));
+            if (!isInterface) {
+                // fields of interfaces are implicitly public static final
+                table.setModifiers(Modifier.Keyword.PRIVATE, Modifier.Keyword.STATIC, Modifier.Keyword.FINAL);
+            }
+            type.getMembers().addFirst(table);
+        }
+        Expression expr = group.here.clone();
+        int column = 0;
+        for (MethodCallExpr call : group.calls) {
+            NodeList<Expression> arguments = new NodeList<>();
+            if (isValueCall(call)) {
+                arguments.add(call.getArgument(0).clone());
+                arguments.add(new ArrayAccessExpr(new NameExpr(name + COLUMN_SUFFIX + column++), new NameExpr(ROW)));
+            } else {
+                for (Expression argument : call.getArguments()) {
+                    arguments.add(argument.clone());
+                }
+            }
+            expr = new MethodCallExpr(expr, call.getNameAsString(), arguments);
+        }
+        ForStmt loop = new ForStmt();
+        loop.setInitialization(new NodeList<>(new VariableDeclarationExpr(
+                new VariableDeclarator(PrimitiveType.intType(), ROW, new IntegerLiteralExpr("0")))));
+        loop.setCompare(new BinaryExpr(new NameExpr(ROW),
+                new FieldAccessExpr(new NameExpr(name + COLUMN_SUFFIX + 0), "length"), BinaryExpr.Operator.LESS));
+        loop.setUpdate(new NodeList<>(new UnaryExpr(new NameExpr(ROW), UnaryExpr.Operator.POSTFIX_INCREMENT)));
+        loop.setBody(new BlockStmt(new NodeList<>(new ExpressionStmt(expr))));
+        return loop;
+    }
+}
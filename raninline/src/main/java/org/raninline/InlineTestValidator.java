@@ -0,0 +1,156 @@
+package org.raninline;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+
+/**
+ * Compiles a file after its inline tests are added and drops the inline tests
+ * that do not compile (e.g. a literal of the wrong type or an inaccessible
+ * field), so that they do not break the build of the project.
+ *
+ * Nothing is dropped unless every error is in an inline test: an error
+ * elsewhere, such as an unresolved import of Here, means that the compile
+ * environment ({@link Constant#compileClasspath}) is incomplete, and the
+ * inline tests are not at fault.
+ */
+public class InlineTestValidator {
+    /**
+     * Compile the source of a constructed file once, remove the inline tests
+     * (and tables) on the lines with errors and rewrite the file if any was
+     * removed.
+     *
+     * @param srcPath
+     * @param source  content of the file
+     * @param parser
+     * @return number of inline tests dropped
+     * @throws IOException
+     */
+    public static int validate(String srcPath, String source, JavaParser parser) throws IOException {
+        ParseResult<CompilationUnit> parsed = parser.parse(source);
+        if (!parsed.isSuccessful() || !parsed.getResult().isPresent()) {
+            throw new ParseProblemException(parsed.getProblems());
+        }
+        CompilationUnit cu = parsed.getResult().get();
+        if (Constant.compileClasspath == null) {
+            Log.error("no classpath to compile " + srcPath + " (--classpath), its inline tests are not validated");
+            return 0;
+        }
+        InMemoryCompiler.Result result = Parser.compile(srcPath, cu, source);
+        if (result == null) {
+            Log.debug("no system compiler, inline tests of " + srcPath + " are not validated");
+            return 0;
+        }
+        if (result.success) {
+            return 0;
+        }
+        if (!resolvesHere(result)) {
+            Log.error("org.inlinetest.Here is not on the classpath of " + srcPath
+                    + ", its inline tests are not validated");
+            return 0;
+        }
+        Set<Long> errorLines = result.errorLines();
+        Set<Long> unexplained = new HashSet<>(errorLines);
+        List<Node> offending = new ArrayList<>();
+        Set<String> tables = new HashSet<>();
+        for (Statement statement : cu.findAll(Statement.class, InlineTestTable::isInlineTest)) {
+            if (hasError(statement, errorLines, unexplained)) {
+                offending.add(statement);
+                String table = InlineTestTable.tableName(statement);
+                if (table != null) {
+                    tables.add(table);
+                }
+            }
+        }
+        for (FieldDeclaration field : cu.findAll(FieldDeclaration.class, InlineTestValidator::isTable)) {
+            if (hasError(field, errorLines, unexplained)) {
+                tables.add(InlineTestTable.tableOf(field.getVariable(0).getNameAsString()));
+            }
+        }
+        // a broken table takes the statement that runs it, and the other way round
+        for (Statement statement : cu.findAll(Statement.class, InlineTestTable::isInlineTest)) {
+            if (tables.contains(InlineTestTable.tableName(statement)) && !offending.contains(statement)) {
+                offending.add(statement);
+            }
+        }
+        for (FieldDeclaration field : cu.findAll(FieldDeclaration.class, InlineTestValidator::isTable)) {
+            if (tables.contains(InlineTestTable.tableOf(field.getVariable(0).getNameAsString()))) {
+                offending.add(field);
+            }
+        }
+        if (!unexplained.isEmpty()) {
+            Log.error(srcPath + " has compile errors outside inline tests at lines " + unexplained
+                    + ", its inline tests are kept");
+            return 0;
+        }
+        if (offending.isEmpty()) {
+            return 0;
+        }
+        SourceSplicer splicer = Constant.spliceOutput ? SourceSplicer.observe(cu, source) : null;
+        int dropped = 0;
+        for (Node node : offending) {
+            if (node instanceof Statement) {
+                dropped++;
+            }
+            node.remove();
+        }
+        FileWriter writer = new FileWriter(srcPath);
+        writer.write(Parser.print(cu, splicer));
+        writer.close();
+        Log.info("dropped " + dropped + " inline tests of " + srcPath + " that do not compile");
+        return dropped;
+    }
+
+    /**
+     * @return false if the compiler did not find the package of Here
+     */
+    private static boolean resolvesHere(InMemoryCompiler.Result result) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : result.diagnostics) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && "compiler.err.doesnt.exist".equals(diagnostic.getCode())
+                    && diagnostic.getMessage(Locale.ROOT).contains("org.inlinetest")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTable(FieldDeclaration field) {
+        return field.getVariables().size() == 1
+                && InlineTestTable.tableOf(field.getVariable(0).getNameAsString()) != null;
+    }
+
+    /**
+     * @param unexplained error lines not yet attributed to an inline test, the
+     *                    lines of the node are removed from it
+     */
+    private static boolean hasError(Node node, Set<Long> errorLines, Set<Long> unexplained) {
+        if (!node.getRange().isPresent()) {
+            return false;
+        }
+        Range range = node.getRange().get();
+        boolean error = false;
+        for (long line = range.begin.line; line <= range.end.line; line++) {
+            if (errorLines.contains(line)) {
+                unexplained.remove(line);
+                error = true;
+            }
+        }
+        return error;
+    }
+}
@@ -0,0 +1,212 @@
+package org.raninline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.javaparser.ast.ArrayCreationLevel;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
+import com.github.javaparser.ast.expr.CharLiteralExpr;
+import com.github.javaparser.ast.expr.DoubleLiteralExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NullLiteralExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+
+/**
+ * Value of a variable in an inline test: its kind and its Java literal, or the
+ * (escaped, quoted) name of the file that holds the serialized object for
+ * values that can not be written as a literal.
+ */
+public class InlineTestValue {
+    public enum Kind {
+        NULL, BOOLEAN, BYTE, CHAR, SHORT, INT, LONG, FLOAT, DOUBLE, STRING, ARRAY, BLOB
+    }
+
+    public final Kind kind;
+    public final String literal; // source text, e.g. "5L", "\"a\\n\"" or "'c'"; element type for arrays
+    public final List<InlineTestValue> elements; // array elements, empty otherwise
+
+    private InlineTestValue(Kind kind, String literal, List<InlineTestValue> elements) {
+        this.kind = kind;
+        this.literal = literal;
+        this.elements = elements;
+    }
+
+    public static InlineTestValue of(Kind kind, String literal) {
+        return new InlineTestValue(kind, literal, new ArrayList<>());
+    }
+
+    public static InlineTestValue nullValue() {
+        return of(Kind.NULL, "null");
+    }
+
+    /**
+     * @param elementType e.g. "int" for int[]
+     * @param elements
+     */
+    public static InlineTestValue array(String elementType, List<InlineTestValue> elements) {
+        return new InlineTestValue(Kind.ARRAY, elementType, elements);
+    }
+
+    /**
+     * @param escapedFileName quoted file name of the serialized object
+     */
+    public static InlineTestValue blob(String escapedFileName) {
+        return of(Kind.BLOB, escapedFileName);
+    }
+
+    /**
+     * @param primitiveType one of {@link Constant#PRIMITIVE_TYPES} without "[]"
+     * @return kind of a value of the type
+     */
+    public static Kind kindOf(String primitiveType) {
+        switch (primitiveType) {
+            case "boolean":
+                return Kind.BOOLEAN;
+            case "byte":
+                return Kind.BYTE;
+            case "char":
+                return Kind.CHAR;
+            case "short":
+                return Kind.SHORT;
+            case "int":
+                return Kind.INT;
+            case "long":
+                return Kind.LONG;
+            case "float":
+                return Kind.FLOAT;
+            case "double":
+                return Kind.DOUBLE;
+            default:
+                return Kind.STRING;
+        }
+    }
+
+    /**
+     * @return the value as it is written in an inline test
+     */
+    public String toString() {
+        if (kind != Kind.ARRAY) {
+            return literal;
+        }
+        StringBuilder sb = new StringBuilder("new " + literal + "[] {");
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements.get(i));
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    /**
+     * @return the value as an expression, the same as parsing
+     *         {@link #toString()}
+     */
+    public Expression toExpression() {
+        switch (kind) {
+            case NULL:
+                return new NullLiteralExpr();
+            case BOOLEAN:
+                return new BooleanLiteralExpr(Boolean.parseBoolean(literal));
+            case CHAR:
+                return new CharLiteralExpr(literal.substring(1, literal.length() - 1));
+            case STRING:
+            case BLOB:
+                return new StringLiteralExpr(literal.substring(1, literal.length() - 1));
+            case ARRAY:
+                NodeList<Expression> values = new NodeList<>();
+                for (InlineTestValue element : elements) {
+                    values.add(element.toExpression());
+                }
+                return new ArrayCreationExpr(elementType(), new NodeList<>(new ArrayCreationLevel()),
+                        new ArrayInitializerExpr(values));
+            default:
+                return number();
+        }
+    }
+
+    private Expression number() {
+        if (literal.startsWith("-")) {
+            return new UnaryExpr(of(kind, literal.substring(1)).number(), UnaryExpr.Operator.MINUS);
+        }
+        if (literal.equals("NaN") || literal.equals("Infinity")) {
+            // Float/Double.toString of special values, not literals
+            return new NameExpr(literal);
+        }
+        switch (kind) {
+            case LONG:
+                return new LongLiteralExpr(literal);
+            case FLOAT:
+            case DOUBLE:
+                return new DoubleLiteralExpr(literal);
+            default:
+                return new IntegerLiteralExpr(literal);
+        }
+    }
+
+    private Type elementType() {
+        switch (literal) {
+            case "boolean":
+                return PrimitiveType.booleanType();
+            case "byte":
+                return PrimitiveType.byteType();
+            case "char":
+                return PrimitiveType.charType();
+            case "short":
+                return PrimitiveType.shortType();
+            case "int":
+                return PrimitiveType.intType();
+            case "long":
+                return PrimitiveType.longType();
+            case "float":
+                return PrimitiveType.floatType();
+            case "double":
+                return PrimitiveType.doubleType();
+            default:
+                return new ClassOrInterfaceType(null, literal);
+        }
+    }
+
+    void encode(DataOutputStream out) throws IOException {
+        out.writeByte(kind.ordinal());
+        byte[] bytes = literal.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        if (kind == Kind.ARRAY) {
+            out.writeInt(elements.size());
+            for (InlineTestValue element : elements) {
+                element.encode(out);
+            }
+        }
+    }
+
+    static InlineTestValue decode(DataInputStream in) throws IOException {
+        Kind kind = Kind.values()[in.readByte()];
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String literal = new String(bytes, StandardCharsets.UTF_8);
+        List<InlineTestValue> elements = new ArrayList<>();
+        if (kind == Kind.ARRAY) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                elements.add(decode(in));
+            }
+        }
+        return new InlineTestValue(kind, literal, elements);
+    }
+}
@@ -8,6 +8,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Array;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,6 +35,11 @@ public class InstrumentHelper {
     static Map<String, Integer> srcLineNoCounter = new HashMap<String, Integer>(); // srcPath + lineNo -> counter
     static List<InlineTest> inlineTests = new ArrayList<InlineTest>();
     static Map<String, Integer> allSrcLineNoCounter = new HashMap<String, Integer>();
+    // srcPath + lineNo -> {cap, sampling rate} of the targets of a plan (see
+    // TargetPlanner), other targets are capped at MAX_INLINE_TESTS_PER_STMT
+    static Map<String, int[]> targetCaps = new HashMap<String, int[]>();
+    static Map<String, Integer> srcLineNoExecutions = new HashMap<String, Integer>();
+    static Set<String> unsampledTargets = new HashSet<String>(); // targets whose current execution is skipped
     static List<InlineTest> allInlineTests = new ArrayList<InlineTest>();
     static Map<String, CoverageBuilder> classLineNoToCoverageBefore = new HashMap<String, CoverageBuilder>();
     static Map<String, CoverageBuilder> classLineNoToCoverageAfter = new HashMap<String, CoverageBuilder>();
@@ -43,9 +49,17 @@ public class InstrumentHelper {
     static String serializedDataDir;
     static Map<String, String> serializedDataToFilePathMap = new HashMap<String, String>(); // serialized data hash code
                                                                                             // -> file path
+    // fingerprints of inline tests that have been saved, persisted across runs by
+    // init(); a fingerprint is only added once its test is written to the file
+    static FingerprintSet inlineTestFingerprints = new FingerprintSet();
+    static FingerprintSet allInlineTestFingerprints = new FingerprintSet();
+    // fingerprints of the inline tests seen by this run, saved or still buffered
+    static FingerprintSet seenInlineTestFingerprints = new FingerprintSet();
+    static FingerprintSet seenAllInlineTestFingerprints = new FingerprintSet();
     static Map<Integer, InlineTest> targetStmtLineNoToCurInlineTestMap = new HashMap<Integer, InlineTest>();
     // static InlineTest curInlineTest;
     static int totalInlineTests = 0;
+    static String capturingTarget; // target whose variable parseTypedValue serializes, for CollectorEvents
     static {
         Runtime.getRuntime().addShutdownHook(new SaveInlineTests());
     }
@@ -100,35 +114,39 @@ public class InstrumentHelper {
     }
 
     public static String parseValue(String varType, Object variable) {
+        return parseTypedValue(varType, variable).toString();
+    }
+
+    public static InlineTestValue parseTypedValue(String varType, Object variable) {
         if (variable == null) {
-            return "null";
+            return InlineTestValue.nullValue();
         }
-        String value = "";
         if (Constant.PRIMITIVE_TYPES.contains(varType)) {
             if (varType.endsWith("[]")) {
-                value += "new " + varType + " {";
-                String arrayVal = parseArrayValue(varType, variable);
-                value += arrayVal.substring(1, arrayVal.length() - 1);
-                value += "}";
+                return InlineTestValue.array(varType.substring(0, varType.length() - 2),
+                        parseArrayElements(varType, variable));
             } else {
                 if (varType.equals("String")) {
-                    value = "\"" + Utils.escapeString((String) variable) + "\"";
+                    return InlineTestValue.of(InlineTestValue.Kind.STRING,
+                            "\"" + Utils.escapeString((String) variable) + "\"");
                 } else if (varType.equals("char")) {
-                    value = "'" + variable + "'";
+                    return InlineTestValue.of(InlineTestValue.Kind.CHAR, "'" + variable + "'");
                 } else if (varType.equals("long")) {
-                    value = variable + "L";
+                    return InlineTestValue.of(InlineTestValue.Kind.LONG, variable + "L");
                 } else {
-                    value = variable.toString();
+                    return InlineTestValue.of(InlineTestValue.kindOf(varType), variable.toString());
                 }
             }
         } else {
             try {
+                long start = System.nanoTime();
                 XStream xstream = new XStream();
                 String serializedString = xstream.toXML(variable);
+                CollectorEvents.serialization(capturingTarget, start, serializedString);
                 String serializedStringHashCode = Integer.toString(serializedString.hashCode());
                 // check if the serialized data has been seen before
                 if (serializedDataToFilePathMap.containsKey(serializedStringHashCode)) {
-                    return serializedDataToFilePathMap.get(serializedStringHashCode);
+                    return InlineTestValue.blob(serializedDataToFilePathMap.get(serializedStringHashCode));
                 }
                 // String xmlFileName = varType + serializedDataToFilePathMap.size() + ".xml";
                 String xmlFileName = serializedDataToFilePathMap.size() + ".xml";
@@ -141,68 +159,35 @@ public class InstrumentHelper {
                     throw new RuntimeException(e);
                 }
                 // return the file path
-                return escapedFilePath;
+                return InlineTestValue.blob(escapedFilePath);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to serialize variable: " + variable, e);
             }
         }
-        return value;
     }
 
     public static String parseArrayValue(String varType, Object variable) {
-        String arrayVal = "";
-        if (varType.equals("boolean[]")) {
-            arrayVal = java.util.Arrays.toString((boolean[]) variable);
-        } else if (varType.equals("byte[]")) {
-            arrayVal = java.util.Arrays.toString((byte[]) variable);
-        } else if (varType.equals("char[]")) {
-            arrayVal += "[";
-            for (int i = 0; i < ((char[]) variable).length; i++) {
-                arrayVal += parseValue("char", ((char[]) variable)[i]);
-                if (i < ((char[]) variable).length - 1) {
-                    arrayVal += ", ";
-                }
-            }
-            arrayVal += "]";
-        } else if (varType.equals("short[]")) {
-            arrayVal = java.util.Arrays.toString((short[]) variable);
-        } else if (varType.equals("int[]")) {
-            arrayVal = java.util.Arrays.toString((int[]) variable);
-        } else if (varType.equals("long[]")) {
-            arrayVal += "[";
-            for (int i = 0; i < ((long[]) variable).length; i++) {
-                arrayVal += parseValue("long", ((long[]) variable)[i]);
-                if (i < ((long[]) variable).length - 1) {
-                    arrayVal += ", ";
-                }
-            }
-            arrayVal += "]";
-        } else if (varType.equals("float[]")) {
-            arrayVal = java.util.Arrays.toString((float[]) variable);
-        } else if (varType.equals("double[]")) {
-            arrayVal = java.util.Arrays.toString((double[]) variable);
-        } else if (varType.equals("String[]")) {
-            arrayVal += "[";
-            for (int i = 0; i < ((String[]) variable).length; i++) {
-                arrayVal += parseValue("String", ((String[]) variable)[i]);
-                if (i < ((String[]) variable).length - 1) {
-                    arrayVal += ", ";
-                }
-            }
-            arrayVal += "]";
-        } else {
-            arrayVal += "[";
-            for (int i = 0; i < ((Object[]) variable).length; i++) {
-                arrayVal += parseValue(varType.substring(0, varType.length() - 2), ((Object[]) variable)[i]);
-                if (i < ((Object[]) variable).length - 1) {
-                    arrayVal += ", ";
-                }
+        String arrayVal = "[";
+        List<InlineTestValue> elements = parseArrayElements(varType, variable);
+        for (int i = 0; i < elements.size(); i++) {
+            arrayVal += elements.get(i);
+            if (i < elements.size() - 1) {
+                arrayVal += ", ";
             }
-            arrayVal += "]";
         }
+        arrayVal += "]";
         return arrayVal;
     }
 
+    private static List<InlineTestValue> parseArrayElements(String varType, Object variable) {
+        String elementType = varType.substring(0, varType.length() - 2);
+        List<InlineTestValue> elements = new ArrayList<>();
+        for (int i = 0; i < Array.getLength(variable); i++) {
+            elements.add(parseTypedValue(elementType, Array.get(variable, i)));
+        }
+        return elements;
+    }
+
     /**
      * Log variable value, replaced by
      * {@link #logVariableAndGenerateTest(String, String, String, int, Object, String, Class, String)}
@@ -389,9 +374,11 @@ public class InstrumentHelper {
                 throw new RuntimeException("Classes directory does not exist: " + classesDirectory);
             }
             analyzer.analyzeAll(classesDirectoryFile);
-            // analyze org.raninline.IT_String
-            analyzer.analyzeAll(InstrumentHelper.class.getClassLoader().getResourceAsStream("org/raninline/IT_String.class"), "org.raninline.IT_String");
-            analyzer.analyzeAll(InstrumentHelper.class.getClassLoader().getResourceAsStream("org/raninline/IT_Matcher.class"), "org.raninline.IT_Matcher");
+            // analyze the coverage shims
+            for (String shimClass : Constant.SHIM_CLASSES) {
+                analyzer.analyzeAll(InstrumentHelper.class.getClassLoader()
+                        .getResourceAsStream(shimClass.replace('.', '/') + ".class"), shimClass);
+            }
             // String jdkPath = System.getProperty("java.home") + File.separator + "lib" +
             // File.separator + "rt.jar";
             // analyzer.analyzeAll(new FileInputStream(jdkPath), jdkPath);
@@ -465,15 +452,22 @@ public class InstrumentHelper {
         totalInlineTests++;
 
         if (curInlineTest.assertions.size() > 0) {
-            if (!inlineTests.contains(curInlineTest)) {
-                if (canAddInlineTest(targetStmtLineNo, clazzName, classesDirectory)) {
+            long fingerprint = curInlineTest.fingerprint();
+            if (!inlineTestFingerprints.contains(fingerprint) && !seenInlineTestFingerprints.contains(fingerprint)) {
+                long acceptStart = System.nanoTime();
+                boolean accepted = canAddInlineTest(targetStmtLineNo, clazzName, classesDirectory);
+                CollectorStats.INSTANCE.record(CollectorStats.Phase.ACCEPT, key, acceptStart);
+                CollectorEvents.decision(key, acceptStart, accepted);
+                CollectorStats.INSTANCE.recordInlineTest(key, accepted);
+                if (accepted) {
+                    seenInlineTestFingerprints.add(fingerprint);
                     saveReducedInlineTests(curInlineTest);
                     int counter = srcLineNoCounter.getOrDefault(key, 0);
                     srcLineNoCounter.put(key, counter + 1);
                 }
             }
 
-            if (!allInlineTests.contains(curInlineTest)) {
+            if (!allInlineTestFingerprints.contains(fingerprint) && seenAllInlineTestFingerprints.add(fingerprint)) {
                 int allCounter = allSrcLineNoCounter.getOrDefault(key, 0);
                 saveAllInlineTests(curInlineTest);
                 allSrcLineNoCounter.put(key, allCounter + 1);
@@ -481,12 +475,19 @@ public class InstrumentHelper {
         }
     }
 
+    /**
+     * @param logFilePath
+     * @return the caps file of the batch run that writes to a log
+     */
+    static String targetCapsPath(String logFilePath) {
+        return logFilePath + Constant.TARGET_CAPS_SUFFIX;
+    }
+
     public static void saveReducedInlineTests(InlineTest curInlineTest) {
         inlineTests.add(curInlineTest);
         if (inlineTests.size() >= 100) {
             // save inline tests to file, and clear the list
-            saveInlineTestsToFile(inlineTests, Constant.inlineTestFilePath);
-            inlineTests.clear();
+            flushInlineTests(inlineTests, Constant.inlineTestFilePath, inlineTestFingerprints);
         }
     }
 
@@ -494,9 +495,25 @@ public class InstrumentHelper {
         allInlineTests.add(curInlineTest);
         if (allInlineTests.size() >= 100) {
             // save all inline tests to file, and clear the list
-            saveInlineTestsToFile(allInlineTests, Constant.allInlineTestFilePath);
-            allInlineTests.clear();
+            flushInlineTests(allInlineTests, Constant.allInlineTestFilePath, allInlineTestFingerprints);
+        }
+    }
+
+    /**
+     * Write buffered inline tests to a file, then persist their fingerprints, so
+     * that a test lost before it is written (e.g. in a crash) is not skipped by
+     * later runs.
+     *
+     * @param inlineTestsList buffered inline tests, cleared
+     * @param destPath
+     * @param fingerprints    fingerprints of the saved inline tests
+     */
+    static void flushInlineTests(List<InlineTest> inlineTestsList, String destPath, FingerprintSet fingerprints) {
+        saveInlineTestsToFile(inlineTestsList, destPath);
+        for (InlineTest inlineTest : inlineTestsList) {
+            fingerprints.add(inlineTest.fingerprint());
         }
+        inlineTestsList.clear();
     }
 
     /**
@@ -522,11 +539,18 @@ public class InstrumentHelper {
             init();
         }
         String key = srcPath + ":" + targetStmtNum;
+        CollectorEvents.probe(key, info);
         int counter = srcLineNoCounter.getOrDefault(key, 0);
         int allCounter = allSrcLineNoCounter.getOrDefault(key, 0);
-        if (counter > Constant.MAX_INLINE_TESTS_PER_STMT || allCounter > Constant.MAX_INLINE_TESTS_PER_STMT) {
+        int[] capAndSample = targetCaps.get(key);
+        int cap = capAndSample != null ? capAndSample[0] : Constant.MAX_INLINE_TESTS_PER_STMT;
+        if (counter > cap || allCounter > cap) {
+            return;
+        }
+        if (capAndSample != null && capAndSample[1] > 1 && !isSampled(key, info, capAndSample[1])) {
             return;
         }
+        long start = System.nanoTime();
         if (info.equals(Constant.TARGET_STMT_START) || info.equals(Constant.TARGET_STMT_IF_START)) {
             // initialize a new inline test
             InlineTest curInlineTest = new InlineTest();
@@ -535,47 +559,76 @@ public class InstrumentHelper {
             curInlineTest.srcPath = srcPath;
             curInlineTest.clazzName = clazz.getName();
             targetStmtLineNoToCurInlineTestMap.put(targetStmtNum, curInlineTest);
+            CollectorStats.INSTANCE.recordExecution(key);
+            long coverageStart = System.nanoTime();
             addCoverageRateBefore(targetStmtNum, clazz.getName(), classesDirectory);
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.COVERAGE, key, coverageStart);
+            CollectorEvents.coverage(key, coverageStart);
         } else if (info.equals(Constant.TARGET_STMT_BEFORE)) {
             // add given statement
+            long serializeStart = System.nanoTime();
+            capturingTarget = key;
             String varType = parseVarType(variable);
-            String varValue = parseValue(varType, variable);
-            String givenStmt = "given(" + variableName + "," + varValue + ")";
+            InlineTestValue varValue = parseTypedValue(varType, variable);
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.SERIALIZE, key, serializeStart);
+            CollectorEvents.capture(key, serializeStart);
             if (targetStmtLineNoToCurInlineTestMap.containsKey(targetStmtNum)) {
                 InlineTest curInlineTest = targetStmtLineNoToCurInlineTestMap.get(targetStmtNum);
-                curInlineTest.givens.add(givenStmt);
+                curInlineTest.givens.add(InlineTestStep.given(variableName, varValue));
             }
         } else if (info.equals(Constant.TARGET_STMT_AFTER)) {
             // add assertion statement for statement
+            long serializeStart = System.nanoTime();
+            capturingTarget = key;
             String varType = parseVarType(variable);
-            String varValue = parseValue(varType, variable);
-            String checkStmt = "checkEq(" + variableName + "," + varValue + ")";
+            InlineTestValue varValue = parseTypedValue(varType, variable);
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.SERIALIZE, key, serializeStart);
+            CollectorEvents.capture(key, serializeStart);
             if (targetStmtLineNoToCurInlineTestMap.containsKey(targetStmtNum)) {
                 InlineTest curInlineTest = targetStmtLineNoToCurInlineTestMap.get(targetStmtNum);
-                curInlineTest.assertions.add(checkStmt);
+                curInlineTest.assertions.add(InlineTestStep.checkEq(variableName, varValue));
             }
         } else if (info.equals(Constant.TARGET_STMT_EXECUTED) || info.equals(Constant.TARGET_STMT_NOT_EXECUTED)) {
             // add assertion statement for if condition
-            String checkStmt;
-            if (info.equals(Constant.TARGET_STMT_EXECUTED)) {
-                checkStmt = "checkTrue(group())";
-            } else {
-                checkStmt = "checkFalse(group())";
-            }
+            InlineTestStep checkStmt = InlineTestStep.checkGroup(info.equals(Constant.TARGET_STMT_EXECUTED));
             if (targetStmtLineNoToCurInlineTestMap.containsKey(targetStmtNum)) {
                 InlineTest curInlineTest = targetStmtLineNoToCurInlineTestMap.get(targetStmtNum);
                 curInlineTest.assertions.add(checkStmt);
             }
             // update coverage information
+            long coverageStart = System.nanoTime();
             addCoverageRateAfter(targetStmtNum, clazz.getName(), classesDirectory);
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.COVERAGE, key, coverageStart);
+            CollectorEvents.coverage(key, coverageStart);
         } else if (info.equals(Constant.TARGET_STMT_END)) {
             // update coverage information
+            long coverageStart = System.nanoTime();
             addCoverageRateAfter(targetStmtNum, clazz.getName(), classesDirectory);
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.COVERAGE, key, coverageStart);
+            CollectorEvents.coverage(key, coverageStart);
         } else if (info.equals(Constant.CHECK_COVERAGE)) {
             // check if the coverage rate is different from existing inline tests
             addInlineTest(targetStmtNum, clazz.getName(), classesDirectory);
             targetStmtLineNoToCurInlineTestMap.remove(targetStmtNum);
         }
+        CollectorStats.INSTANCE.recordCall(key, start);
+    }
+
+    /**
+     * @return true if the current execution of a target is captured: one in
+     *         sample executions, decided when the execution starts
+     */
+    static boolean isSampled(String key, String info, int sample) {
+        if (info.equals(Constant.TARGET_STMT_START) || info.equals(Constant.TARGET_STMT_IF_START)) {
+            int executions = srcLineNoExecutions.merge(key, 1, Integer::sum);
+            if ((executions - 1) % sample != 0) {
+                unsampledTargets.add(key);
+                return false;
+            }
+            unsampledTargets.remove(key);
+            return true;
+        }
+        return !unsampledTargets.contains(key);
     }
 
     /**
@@ -583,13 +636,19 @@ public class InstrumentHelper {
      */
     static class SaveInlineTests extends Thread {
         public void run() {
-            if (inlineTests.isEmpty()) {
-                return;
+            // flush both buffers, the reduced one may be empty while all inline tests
+            // are not
+            if (!inlineTests.isEmpty() || !allInlineTests.isEmpty()) {
+                // write log information
+                // Log.debug("Total inline tests: " + totalInlineTests);
+                // write coverage information
+                teardown();
+            }
+            if (init) {
+                // write where the collector spent its time, also when no inline test was saved
+                CollectorStats.INSTANCE.writeSummary(
+                        Paths.get(Utils.createDir(Constant.INLINE_GEN_DIR_NAME), Constant.COLLECTOR_STATS_FILE_NAME));
             }
-            // write log information
-            // Log.debug("Total inline tests: " + totalInlineTests);
-            // write coverage information
-            teardown();
         }
     }
 
@@ -614,6 +673,9 @@ public class InstrumentHelper {
                                 case "inlinetestname":
                                     Constant.inlineTestName = tokens[1].trim();
                                     break;
+                                case "logformat":
+                                    Constant.binaryLog = tokens[1].trim().equals("binary");
+                                    break;
                             }
                         }
                     }
@@ -623,9 +685,42 @@ public class InstrumentHelper {
             }
         }
 
+        CollectorStats.register();
+
         inlineGenDir = Utils.createDir(Constant.INLINE_GEN_DIR_NAME);
         serializedDataDir = Utils.createDir(Constant.INLINE_GEN_DIR_NAME + "/" + Constant.SERIALIZED_DATA_DIR_NAME);
 
+        // open fingerprints of inline tests saved by previous runs
+        try {
+            inlineTestFingerprints = FingerprintSet
+                    .open(Paths.get(inlineGenDir, Constant.INLINE_TESTS_FINGERPRINT_FILE_NAME));
+            allInlineTestFingerprints = FingerprintSet
+                    .open(Paths.get(inlineGenDir, Constant.ALL_INLINE_TESTS_FINGERPRINT_FILE_NAME));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // read caps and sampling rates of the planned target statements, if
+        // this log is of a batch run
+        String targetCapsFile = targetCapsPath(Constant.logFilePath);
+        if (Files.exists(Paths.get(targetCapsFile))) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(targetCapsFile));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] tokens = line.split(";");
+                    if (tokens.length <= 2) {
+                        continue;
+                    }
+                    targetCaps.put(tokens[0],
+                            new int[] { Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]) });
+                }
+                reader.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         // read number of inline tests for each target statement
         String inlineTestsCounterFile = inlineGenDir + "/" + Constant.INLINE_TESTS_COUNTER_FILE_NAME;
         Path inlineTestsCounterFilePath = Paths.get(inlineTestsCounterFile);
@@ -697,16 +792,40 @@ public class InstrumentHelper {
     }
 
     public static void saveInlineTestsToFile(List<InlineTest> inlineTestsList, String destPath) {
-        // sort inline tests and write to file
+        long start = System.nanoTime();
         try {
-            FileWriter writer = new FileWriter(destPath, true);
-            Map<String, List<InlineTest>> srcToInlineTests = new HashMap<String, List<InlineTest>>();
-            for (InlineTest inlineTest : inlineTestsList) {
-                if (!srcToInlineTests.containsKey(inlineTest.srcPath)) {
-                    srcToInlineTests.put(inlineTest.srcPath, new ArrayList<InlineTest>());
+            writeInlineTests(inlineTestsList, destPath);
+        } finally {
+            CollectorStats.INSTANCE.record(CollectorStats.Phase.FLUSH, null, start);
+            CollectorEvents.flush(destPath, start, inlineTestsList.size());
+        }
+    }
+
+    private static void writeInlineTests(List<InlineTest> inlineTestsList, String destPath) {
+        // sort inline tests and write to file
+        Map<String, List<InlineTest>> srcToInlineTests = new HashMap<String, List<InlineTest>>();
+        for (InlineTest inlineTest : inlineTestsList) {
+            if (!srcToInlineTests.containsKey(inlineTest.srcPath)) {
+                srcToInlineTests.put(inlineTest.srcPath, new ArrayList<InlineTest>());
+            }
+            srcToInlineTests.get(inlineTest.srcPath).add(inlineTest);
+        }
+        if (Constant.binaryLog) {
+            try (EventLogWriter writer = EventLogWriter.open(destPath)) {
+                for (String srcPath : srcToInlineTests.keySet()) {
+                    List<InlineTest> curInlineTests = srcToInlineTests.get(srcPath);
+                    Collections.sort(curInlineTests, (o1, o2) -> o1.targetStmtLineNo - o2.targetStmtLineNo);
+                    for (InlineTest inlineTest : curInlineTests) {
+                        writer.writeInlineTest(inlineTest);
+                    }
                 }
-                srcToInlineTests.get(inlineTest.srcPath).add(inlineTest);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
+            return;
+        }
+        try {
+            FileWriter writer = new FileWriter(destPath, true);
             for (String srcPath : srcToInlineTests.keySet()) {
                 List<InlineTest> curInlineTests = srcToInlineTests.get(srcPath);
                 Collections.sort(curInlineTests, (o1, o2) -> o1.targetStmtLineNo - o2.targetStmtLineNo);
@@ -726,11 +845,19 @@ public class InstrumentHelper {
      */
     public static void teardown() {
         // save inline tests
-        saveInlineTestsToFile(inlineTests, Constant.inlineTestFilePath);
-        saveInlineTestsToFile(allInlineTests, Constant.allInlineTestFilePath);
+        flushInlineTests(inlineTests, Constant.inlineTestFilePath, inlineTestFingerprints);
+        flushInlineTests(allInlineTests, Constant.allInlineTestFilePath, allInlineTestFingerprints);
 
         String inlineGenDir = Utils.createDir(Constant.INLINE_GEN_DIR_NAME);
 
+        // flush fingerprints of saved inline tests
+        try {
+            inlineTestFingerprints.close();
+            allInlineTestFingerprints.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
         // write number of inline tests for each target statement
         String inlineTestsCounterFile = inlineGenDir + "/" + Constant.INLINE_TESTS_COUNTER_FILE_NAME;
         try {
@@ -743,6 +870,19 @@ public class InstrumentHelper {
             throw new RuntimeException(e);
         }
 
+        // write number of unique inline tests for each target statement, of
+        // this JVM; it is not read back, so the caps stay per run
+        String uniqueInlineTestsCounterFile = inlineGenDir + "/" + Constant.UNIQUE_INLINE_TESTS_COUNTER_FILE_NAME;
+        try {
+            FileWriter writer = new FileWriter(uniqueInlineTestsCounterFile);
+            for (String srcLineNo : allSrcLineNoCounter.keySet()) {
+                writer.write(srcLineNo + ";" + allSrcLineNoCounter.get(srcLineNo) + "\n");
+            }
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
         // write coverage information for each target statement
         String coverageFile = inlineGenDir + "/" + Constant.COVERAGE_FILE_NAME;
         try {
@@ -0,0 +1,100 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+
+/**
+ * Index of the line ranges of the statements and members of a compilation
+ * unit, to find the nodes that contain a line without visiting the whole
+ * tree. Ranges of an AST are nested, so the nodes containing a line are the
+ * nodes starting on it and the ancestors of the last node starting before it.
+ */
+public class LineIndex {
+    private final Node[] nodes; // sorted by begin
+    private final int[] beginLines;
+
+    private LineIndex(List<Node> nodes) {
+        nodes.sort(Comparator.comparing(n -> n.getRange().get().begin));
+        this.nodes = nodes.toArray(new Node[0]);
+        this.beginLines = new int[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; i++) {
+            beginLines[i] = this.nodes[i].getRange().get().begin.line;
+        }
+    }
+
+    /**
+     * Index the statements and members of a tree, once per parse.
+     *
+     * @param root
+     * @return
+     */
+    public static LineIndex build(Node root) {
+        List<Node> nodes = new ArrayList<>();
+        root.walk(n -> {
+            if ((n instanceof Statement || n instanceof BodyDeclaration) && n.getRange().isPresent()) {
+                nodes.add(n);
+            }
+        });
+        return new LineIndex(nodes);
+    }
+
+    /**
+     * The nodes (of any kind) whose ranges contain one of the lines, i.e. the
+     * paths from the root to the statements on the lines.
+     *
+     * @param lines
+     * @return identity set of the nodes
+     */
+    public Set<Node> pathTo(int... lines) {
+        Set<Node> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int line : lines) {
+            int first = firstBeginningAt(line);
+            for (int i = first; i < nodes.length && beginLines[i] == line; i++) {
+                addWithAncestors(nodes[i], path);
+            }
+            if (first > 0) {
+                // the deepest node containing the line that begins before it is
+                // an ancestor of (or is) the last node beginning before it
+                Node node = nodes[first - 1];
+                while (node != null && !(node.getRange().isPresent() && node.getRange().get().end.line >= line)) {
+                    node = node.getParentNode().orElse(null);
+                }
+                if (node != null) {
+                    addWithAncestors(node, path);
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return index of the first node beginning on or after the line
+     */
+    private int firstBeginningAt(int line) {
+        int low = 0;
+        int high = nodes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (beginLines[mid] < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void addWithAncestors(Node node, Set<Node> path) {
+        for (Node current = node; current != null && path.add(current); current = current.getParentNode()
+                .orElse(null)) {
+        }
+    }
+}
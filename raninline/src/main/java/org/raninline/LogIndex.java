@@ -0,0 +1,285 @@
+package org.raninline;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sidecar index of an inline test log (text or binary), stored next to the log
+ * as {@code <log>.idx}. It is a table of (srcPath id, line) -> byte ranges of
+ * the records of that target statement, sorted by key, so that the tests of
+ * one target statement can be read without scanning the log.
+ *
+ * <pre>
+ * index  := magic:int32 version:int16 logSize:int64 logModified:int64
+ *           srcCount:int32 srcPath:utf[srcCount]
+ *           entryCount:int32 entry[entryCount]
+ * entry  := srcId:int32 line:int32 offset:int64 length:int32
+ * </pre>
+ *
+ * Adjacent records of the same key share one range. The index is stale when
+ * the size or modification time of the log changed.
+ */
+public class LogIndex {
+    static final int MAGIC = 0x52494958; // "RIIX"
+    static final short VERSION = 1;
+    static final int ENTRY_BYTES = 20;
+    static final int MAX_RANGE_BYTES = 1 << 26;
+    static final String INDEX_SUFFIX = ".idx";
+
+    private final Map<String, Integer> srcPathToId = new HashMap<>();
+    private final ByteBuffer entries;
+    private final int entryCount;
+
+    private LogIndex(Path indexPath) throws IOException {
+        long entriesStart;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexPath.toFile()))) {
+            in.readInt();
+            in.readShort();
+            in.readLong();
+            in.readLong();
+            int srcCount = in.readInt();
+            for (int i = 0; i < srcCount; i++) {
+                String srcPath = in.readUTF();
+                srcPathToId.put(srcPath, i);
+            }
+            entryCount = in.readInt();
+            entriesStart = Files.size(indexPath) - (long) entryCount * ENTRY_BYTES;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, entriesStart, (long) entryCount * ENTRY_BYTES);
+        }
+    }
+
+    public static Path indexPathOf(String logFilePath) {
+        return Paths.get(logFilePath + INDEX_SUFFIX);
+    }
+
+    /**
+     * Open the index of a log, building it if it does not exist or is stale.
+     *
+     * @param logFilePath
+     * @return
+     * @throws IOException
+     */
+    public static LogIndex open(String logFilePath) throws IOException {
+        Path indexPath = indexPathOf(logFilePath);
+        if (!isFresh(logFilePath, indexPath)) {
+            build(logFilePath);
+        }
+        return new LogIndex(indexPath);
+    }
+
+    private static boolean isFresh(String logFilePath, Path indexPath) {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        Path logPath = Paths.get(logFilePath);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexPath.toFile()))) {
+            return in.readInt() == MAGIC && in.readShort() == VERSION && in.readLong() == Files.size(logPath)
+                    && in.readLong() == Files.getLastModifiedTime(logPath).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scan the log and write its index.
+     *
+     * @param logFilePath
+     * @throws IOException
+     */
+    public static void build(String logFilePath) throws IOException {
+        Path logPath = Paths.get(logFilePath);
+        long logSize = Files.size(logPath);
+        long logModified = Files.getLastModifiedTime(logPath).toMillis();
+        Map<String, Integer> srcPathToId = new HashMap<>();
+        List<String> srcPaths = new ArrayList<>();
+        List<long[]> records = new ArrayList<>(); // srcId, line, offset, length
+        if (EventLog.isBinary(logFilePath)) {
+            try (EventLogReader reader = new EventLogReader(logFilePath)) {
+                while (reader.next()) {
+                    if (reader.kind() != EventLog.INLINE_TEST) {
+                        continue;
+                    }
+                    int srcId = idOf(reader.srcPath(), srcPathToId, srcPaths);
+                    records.add(new long[] { srcId, reader.line(), reader.recordOffset(), reader.recordLength() });
+                }
+            }
+        } else {
+            List<List<Object[]>> chunks = InlineTestLogParser.parse(logFilePath, ArrayList::new,
+                    (list, record) -> list.add(new Object[] { record.srcPath, record.line, record.offset,
+                            record.length }));
+            for (List<Object[]> chunk : chunks) {
+                for (Object[] record : chunk) {
+                    int srcId = idOf((String) record[0], srcPathToId, srcPaths);
+                    records.add(new long[] { srcId, (Integer) record[1], (Long) record[2], (Integer) record[3] });
+                }
+            }
+        }
+        long[][] sorted = records.toArray(new long[0][]);
+        // ranges of one key stay in log order
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[2], b[2]));
+        List<long[]> ranges = new ArrayList<>();
+        for (long[] record : sorted) {
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[0] == record[0] && last[1] == record[1] && last[2] + last[3] == record[2]
+                    && last[3] + record[3] <= MAX_RANGE_BYTES) {
+                last[3] += record[3];
+            } else {
+                ranges.add(record.clone());
+            }
+        }
+        Path indexPath = indexPathOf(logFilePath);
+        // a temporary file of its own, so that concurrent builds of one index do not
+        // write to the same file before the rename
+        Path tmpPath = Files.createTempFile(indexPath.toAbsolutePath().getParent(),
+                indexPath.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpPath.toFile())))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(logSize);
+            out.writeLong(logModified);
+            out.writeInt(srcPaths.size());
+            for (String srcPath : srcPaths) {
+                out.writeUTF(srcPath);
+            }
+            out.writeInt(ranges.size());
+            for (long[] range : ranges) {
+                out.writeInt((int) range[0]);
+                out.writeInt((int) range[1]);
+                out.writeLong(range[2]);
+                out.writeInt((int) range[3]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpPath);
+            throw e;
+        }
+        try {
+            Files.move(tmpPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int idOf(String srcPath, Map<String, Integer> srcPathToId, List<String> srcPaths) {
+        Integer id = srcPathToId.get(srcPath);
+        if (id == null) {
+            id = srcPaths.size();
+            srcPathToId.put(srcPath, id);
+            srcPaths.add(srcPath);
+        }
+        return id;
+    }
+
+    /**
+     * Find the byte ranges of the records of a target statement.
+     *
+     * @param srcPath
+     * @param line
+     * @return list of {offset, length}, in log order
+     */
+    public List<long[]> lookup(String srcPath, int line) {
+        List<long[]> ranges = new ArrayList<>();
+        Integer srcId = srcPathToId.get(srcPath);
+        if (srcId == null) {
+            return ranges;
+        }
+        // binary search for the first entry with key >= (srcId, line)
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, srcId, line);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < entryCount && compare(i, srcId, line) == 0; i++) {
+            int base = i * ENTRY_BYTES;
+            ranges.add(new long[] { entries.getLong(base + 8), entries.getInt(base + 16) });
+        }
+        return ranges;
+    }
+
+    private int compare(int entry, int srcId, int line) {
+        int base = entry * ENTRY_BYTES;
+        int entrySrcId = entries.getInt(base);
+        if (entrySrcId != srcId) {
+            return Integer.compare(entrySrcId, srcId);
+        }
+        return Integer.compare(entries.getInt(base + 4), line);
+    }
+
+    /**
+     * Read the inline tests of one target statement through the index of the
+     * log, building the index first if needed.
+     *
+     * @param logFilePath
+     * @param srcPath
+     * @param line
+     * @return
+     * @throws IOException
+     */
+    public static Set<String> readInlineTests(String logFilePath, String srcPath, int line) throws IOException {
+        return readInlineTests(logFilePath, srcPath, line, null);
+    }
+
+    /**
+     * @param typedInlineTests if not null, receives the typed tests of a binary
+     *                         log: inline test text -> typed test
+     */
+    static Set<String> readInlineTests(String logFilePath, String srcPath, int line,
+            Map<String, InlineTest> typedInlineTests) throws IOException {
+        List<long[]> ranges = open(logFilePath).lookup(srcPath, line);
+        Set<String> inlineTests = new HashSet<>();
+        boolean binary = EventLog.isBinary(logFilePath);
+        try (FileChannel channel = FileChannel.open(Paths.get(logFilePath), StandardOpenOption.READ)) {
+            for (long[] range : ranges) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) range[1]);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, range[0] + buffer.position()) < 0) {
+                        throw new IOException("Index is out of date: " + indexPathOf(logFilePath));
+                    }
+                }
+                buffer.flip();
+                if (binary) {
+                    EventLogReader reader = new EventLogReader(buffer);
+                    while (reader.next()) {
+                        inlineTests.add(reader.inlineTest());
+                        InlineTest typed = typedInlineTests == null ? null : reader.typedInlineTest();
+                        if (typed != null) {
+                            typedInlineTests.put(reader.inlineTest(), typed);
+                        }
+                    }
+                } else {
+                    InlineTestLogParser.parseChunk(buffer, range[0], inlineTests,
+                            (tests, record) -> tests.add(record.test()));
+                }
+            }
+        }
+        return inlineTests;
+    }
+}
@@ -6,13 +6,14 @@ import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.comments.Comment;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.LambdaExpr;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
@@ -21,13 +22,15 @@ import com.github.javaparser.ast.stmt.ForStmt;
 import com.github.javaparser.ast.stmt.IfStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.stmt.WhileStmt;
-import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 
 public class LogLocalVariable extends ModifierVisitor<Context> {
     @Override
     public Visitable visit(final ClassOrInterfaceDeclaration n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
         String oldClassName = ctx.className;
         ctx.className = n.getNameAsString();
         Visitable ret = super.visit(n, ctx);
@@ -37,6 +40,9 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
 
     @Override
     public Visitable visit(final EnumDeclaration n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
         String oldClassName = ctx.className;
         ctx.className = n.getNameAsString();
         Visitable ret = super.visit(n, ctx);
@@ -44,8 +50,43 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
         return ret;
     }
 
+    @Override
+    public Visitable visit(final MethodDeclaration n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
+        return super.visit(n, ctx);
+    }
+
+    @Override
+    public Visitable visit(final ConstructorDeclaration n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
+        return super.visit(n, ctx);
+    }
+
+    @Override
+    public Visitable visit(final InitializerDeclaration n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
+        return super.visit(n, ctx);
+    }
+
+    @Override
+    public Visitable visit(final BlockStmt n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
+        return super.visit(n, ctx);
+    }
+
     @Override
     public Visitable visit(final IfStmt n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
         Expression condition = (Expression) n.getCondition().accept(this, ctx);
 
         // if the then statement is not a block statement, wrap it with a block
@@ -75,7 +116,10 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
             return null;
 
         ctx.isCondition = true;
-        if (Utils.isTargetStmt(n.getCondition(), ctx)) {
+        boolean isTarget = Utils.isTargetStmt(n.getCondition(), ctx);
+        if (isTarget && Constant.countOnly) {
+            Utils.insertStatementBefore(buildCounterStatement(ctx), n);
+        } else if (isTarget) {
             findVariables(n.getCondition(), ctx);
             Statement logIfStmt = buildPromptStatement(Constant.TARGET_STMT_IF_START, ctx);
             Utils.insertStatementBefore(logIfStmt, n);
@@ -99,13 +143,25 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
                 n.getElseStmt().get().asBlockStmt().getStatements().addFirst(logNotExecutedStmt);
             }
 
-            Statement logCoverageStmt = buildPromptStatement(Constant.CHECK_COVERAGE, ctx);
-            Utils.insertCoverageStatement(n, logCoverageStmt);
+            if (Constant.minimalPlacement) {
+                // right after the probes of the branches, the condition is evaluated there
+                Utils.insertStatementAfter(buildPromptStatement(Constant.CHECK_COVERAGE, ctx), logExecutedStmt);
+                if (n.getElseStmt().isPresent()) {
+                    n.getElseStmt().get().asBlockStmt().getStatements().add(1,
+                            buildPromptStatement(Constant.CHECK_COVERAGE, ctx));
+                }
+            } else {
+                Statement logCoverageStmt = buildPromptStatement(Constant.CHECK_COVERAGE, ctx);
+                Utils.insertCoverageStatement(n, logCoverageStmt);
+            }
 
             // clear the log variables
             ctx.logVariablesBefore.clear();
             ctx.logMethodsBefore.clear();
             ctx.logVariablesAfter.clear();
+
+            // redirect the JDK calls of the condition to the coverage shims
+            ShimRewriter.rewrite(n.getCondition(), ctx);
         }
         ctx.isCondition = false;
 
@@ -118,6 +174,9 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
 
     @Override
     public Visitable visit(final ExpressionStmt stmt, final Context ctx) {
+        if (offPath(stmt, ctx)) {
+            return stmt;
+        }
         Expression expression = (Expression) stmt.getExpression().accept(this, ctx);
         Comment comment = stmt.getComment().map(s -> (Comment) s.accept(this, ctx)).orElse(null);
         if (expression == null)
@@ -126,6 +185,10 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
         stmt.setComment(comment);
 
         if (Utils.isTargetStmt(stmt, ctx)) {
+            if (Constant.countOnly) {
+                Utils.insertStatementBefore(buildCounterStatement(ctx), stmt);
+                return stmt;
+            }
             // Target statement is this statement
             findVariables(stmt, ctx);
 
@@ -151,29 +214,29 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
             }
 
             Statement logCoverageStmt = buildPromptStatement(Constant.CHECK_COVERAGE, ctx);
-            Utils.insertCoverageStatement(stmt, logCoverageStmt);
+            if (Constant.minimalPlacement) {
+                // right after the END probe, reached whenever the target completes
+                Utils.insertStatementAfter(logCoverageStmt, endLogStmt);
+            } else {
+                Utils.insertCoverageStatement(stmt, logCoverageStmt);
+            }
 
             // clear the log variables
             ctx.logVariablesBefore.clear();
             ctx.logMethodsBefore.clear();
             ctx.logVariablesAfter.clear();
 
-            // wrap str.replace() with new org.raninline.IT_String(str).replace()
-            for (MethodCallExpr methodCallExpr : stmt.findAll(MethodCallExpr.class)) {
-                if (methodCallExpr.getNameAsString().equals("replace") && methodCallExpr.getScope().isPresent()
-                        && Character.isLowerCase(methodCallExpr.getScope().get().toString().charAt(0))) {
-                    Expression scope = methodCallExpr.getScope().get();
-                    Expression newScope = new ObjectCreationExpr(null,
-                            new ClassOrInterfaceType(null, "org.raninline.IT_String"), NodeList.nodeList(scope));
-                    methodCallExpr.setScope(newScope);
-                }
-            }
+            // redirect the JDK calls of the statement to the coverage shims
+            ShimRewriter.rewrite(stmt, ctx);
         }
         return stmt;
     }
 
     @Override
     public Visitable visit(final ForStmt n, final Context arg) {
+        if (offPath(n, arg)) {
+            return n;
+        }
         Expression compare = n.getCompare().map(s -> (Expression) s.accept(this, arg)).orElse(null);
         NodeList<Expression> initialization = modifyList(n.getInitialization(), arg);
         NodeList<Expression> update = modifyList(n.getUpdate(), arg);
@@ -198,6 +261,9 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
 
     @Override
     public Visitable visit(final ForEachStmt n, final Context arg) {
+        if (offPath(n, arg)) {
+            return n;
+        }
         Expression iterable = (Expression) n.getIterable().accept(this, arg);
         VariableDeclarationExpr variable = (VariableDeclarationExpr) n.getVariable().accept(this, arg);
         // add block statement
@@ -220,6 +286,9 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
 
     @Override
     public Visitable visit(final WhileStmt n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
         // add block statement
         if (n.getBody() != null && !(n.getBody() instanceof BlockStmt)) {
             Statement body = n.getBody();
@@ -240,6 +309,9 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
 
     @Override
     public Visitable visit(final LambdaExpr n, final Context ctx) {
+        if (offPath(n, ctx)) {
+            return n;
+        }
         Statement body = (Statement) n.getBody().accept(this, ctx);
         NodeList<Parameter> parameters = modifyList(n.getParameters(), ctx);
         Comment comment = n.getComment().map(s -> (Comment) s.accept(this, ctx)).orElse(null);
@@ -251,9 +323,19 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
         return n;
     }
 
+    /**
+     * @return true if the node was parsed and does not contain the target
+     *         line, so that nothing in it is instrumented. Nodes added while
+     *         instrumenting (e.g. blocks wrapping a body) are visited.
+     */
+    private static boolean offPath(Node n, Context ctx) {
+        return ctx.targetPath != null && n.getRange().isPresent() && !ctx.targetPath.contains(n);
+    }
+
     private void findVariables(Node n, Context ctx) {
         FindVariable visitor = new FindVariable();
         n.accept(visitor, ctx);
+        AccessPaths.minimize(ctx.logVariablesBefore, n);
     }
 
     private <N extends Node> NodeList<N> modifyList(NodeList<N> list, Context arg) {
@@ -293,4 +375,11 @@ public class LogLocalVariable extends ModifierVisitor<Context> {
                 + ");";
         return StaticJavaParser.parseStatement(logStmtStr);
     }
-}
\ No newline at end of file
+
+    private static Statement buildCounterStatement(Context ctx) {
+        String counterStmtStr = Constant.COUNTER_CLASS_NAME + ".hit("
+                + "\"" + ctx.srcPath + ":" + ctx.lineNumber + "\""
+                + ");";
+        return StaticJavaParser.parseStatement(counterStmtStr);
+    }
+}
@@ -1,24 +1,40 @@
 package org.raninline;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.NodeList;
 
 public class Parser {
+    /**
+     * One parser per thread; StaticJavaParser shares its configuration between
+     * threads and must not be used from the construction workers.
+     */
+    static final ThreadLocal<JavaParser> JAVA_PARSER = ThreadLocal.withInitial(JavaParser::new);
 
     /**
      * Instrument the Java source file so that when tests execute, the
@@ -33,12 +49,68 @@ public class Parser {
      */
     public static void instrument(String srcPath, String lineNumberStr, String logFilePath, String inlineTestFilePath, String classesDirectory)
             throws IOException {
+        // the caps of an earlier batch run on this log do not apply
+        Files.deleteIfExists(Paths.get(InstrumentHelper.targetCapsPath(logFilePath)));
+        instrument(srcPath, Utils.parseLineNumber(lineNumberStr), null, logFilePath, inlineTestFilePath,
+                classesDirectory);
+    }
+
+    /**
+     * Instrument the target statements of a plan (see {@link TargetPlanner}),
+     * file by file, and write their caps and sampling rates for
+     * {@link InstrumentHelper} next to the log, so that only the collectors
+     * of this run read them. A file that fails is reported and skipped.
+     *
+     * @param planPath
+     * @param logFilePath
+     * @param inlineTestFilePath
+     * @param classesDirectory
+     * @return number of files that failed
+     * @throws IOException
+     */
+    public static int instrumentBatch(String planPath, String logFilePath, String inlineTestFilePath,
+            String classesDirectory) throws IOException {
+        Map<String, Set<Integer>> fileToLines = new LinkedHashMap<>();
+        new File(logFilePath).getAbsoluteFile().getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(InstrumentHelper.targetCapsPath(logFilePath))) {
+            for (TargetPlanner.Target target : TargetPlanner.read(planPath)) {
+                fileToLines.computeIfAbsent(target.file, k -> new HashSet<>()).add(target.line);
+                writer.write(target.file + ":" + target.line + Constant.LOG_SEPARATOR + target.cap
+                        + Constant.LOG_SEPARATOR + target.sample + "\n");
+            }
+        }
+        int failed = 0;
+        for (Map.Entry<String, Set<Integer>> entry : fileToLines.entrySet()) {
+            try {
+                instrument(entry.getKey(), -1, entry.getValue(), logFilePath, inlineTestFilePath, classesDirectory);
+            } catch (Exception e) {
+                failed++;
+                Log.error("cannot instrument " + entry.getKey() + ": " + e);
+            }
+        }
+        Log.info(String.format("instrumented %d files (%d failed)", fileToLines.size(), failed));
+        return failed;
+    }
+
+    /**
+     * @param lineNumber  target line, or <= 0 for the whole file
+     * @param targetLines in whole-file mode, the lines of the targets to
+     *                    instrument, or null for all
+     */
+    private static void instrument(String srcPath, int lineNumber, Set<Integer> targetLines, String logFilePath,
+            String inlineTestFilePath, String classesDirectory) throws IOException {
+        String originalSource = Constant.reportMethodSizes
+                ? new String(Files.readAllBytes(Paths.get(srcPath)), StandardCharsets.UTF_8)
+                : null;
         CompilationUnit cu = StaticJavaParser.parse(Paths.get(srcPath));
         Context ctx = new Context();
-        int lineNumber = Utils.parseLineNumber(lineNumberStr);
         // if line number is <= 0, then instrument the whole file
         if (lineNumber > 0) {
             ctx.lineNumberKnown = true;
+            ctx.targetPath = LineIndex.build(cu).pathTo(lineNumber);
+        } else {
+            ctx.targetCategories = TargetClassifier.classify(cu);
+            ctx.targetLines = targetLines;
         }
         // make the folder for the log file
         new File(logFilePath).getParentFile().mkdirs();
@@ -47,12 +119,20 @@ public class Parser {
         ctx.lineNumber = lineNumber;
         ctx.srcPath = srcPath;
         ctx.classesDirectory = classesDirectory;
+        if (Constant.resolveVariables) {
+            ctx.resolver = VariableResolver.forFile(cu, srcPath);
+        }
+        SourceSplicer splicer = observe(cu, srcPath);
         LogLocalVariable visitor = new LogLocalVariable();
         cu = (CompilationUnit) cu.accept(visitor, ctx);
+        String source = print(cu, splicer);
         FileWriter writer;
         writer = new FileWriter(srcPath);
-        writer.write(cu.toString());
+        writer.write(source);
         writer.close();
+        if (Constant.reportMethodSizes) {
+            reportMethodSizes(srcPath, cu, originalSource, source);
+        }
     }
 
     public static void changeModifier(String srcPath, String lineNumberStr) throws IOException {
@@ -65,11 +145,12 @@ public class Parser {
         Context ctx = new Context();
         ctx.lineNumber = lineNumber;
         ctx.srcPath = srcPath;
+        SourceSplicer splicer = observe(cu, srcPath);
         ChangeModifier visitor = new ChangeModifier();
         cu = (CompilationUnit) cu.accept(visitor, ctx);
         FileWriter writer;
         writer = new FileWriter(srcPath);
-        writer.write(cu.toString());
+        writer.write(print(cu, splicer));
         writer.close();
     }
 
@@ -79,49 +160,47 @@ public class Parser {
      * @param logFilePath
      * @param lineNumberStr
      * @param filePathFromInput
+     * @return number of files that failed
      * @throws IOException
      */
-    public static void addInlineTest(String logFilePath, String lineNumberStr, String filePathFromInput) throws IOException {
+    public static int addInlineTest(String logFilePath, String lineNumberStr, String filePathFromInput) throws IOException {
         boolean lineNumberKnown = false;
         int lineNumberFromInput = Utils.parseLineNumber(lineNumberStr);
         if (lineNumberFromInput > 0) {
             lineNumberKnown = true;
         }
-        FileReader reader = new FileReader(logFilePath);
-        Map<String, Map<Integer, Set<String>>> inlineTestMap = new HashMap<>();
-        try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                String[] tokens = line.split(";");
-                if (tokens.length < 3) {
-                    Log.debug("cannot be splitted" + line);
-                    continue;
-                }
-                String srcPath = tokens[0];
-                int lineNumber;
-                try {
-                lineNumber = Integer.parseInt(tokens[1]);
-                } catch (NumberFormatException e) {
-                    System.out.println("cannot be parsed: " + line);
-                    continue;
-                }
-                StringBuilder inlineTestSB = new StringBuilder();
-                for (int i = 2; i < tokens.length; i++) {
-                    inlineTestSB.append(tokens[i]);
-                    inlineTestSB.append(";");
-                }
-                String inlineTestStr = inlineTestSB.toString();
-                if (!inlineTestMap.containsKey(srcPath)) {
-                    inlineTestMap.put(srcPath, new HashMap<>());
+        Map<String, Map<Integer, Set<String>>> inlineTestMap;
+        Map<String, Map<String, InlineTest>> typedInlineTests = new HashMap<>();
+        if (lineNumberKnown && filePathFromInput != null) {
+            // seek to the records of the target statement through the index of the log
+            inlineTestMap = new HashMap<>();
+            Map<String, InlineTest> typed = new HashMap<>();
+            Set<String> inlineTests = LogIndex.readInlineTests(logFilePath, filePathFromInput, lineNumberFromInput,
+                    typed);
+            if (!inlineTests.isEmpty()) {
+                inlineTestMap.computeIfAbsent(filePathFromInput, k -> new HashMap<>()).put(lineNumberFromInput,
+                        inlineTests);
+                typedInlineTests.put(filePathFromInput, typed);
+            }
+        } else if (Constant.externalSort) {
+            // one source file at a time, in the order of the sorted log
+            long start = System.nanoTime();
+            int[] counts = new int[3]; // files, failed files, inline tests
+            InlineTestLogSorter.forEachFile(logFilePath, (srcPath, lineMap, typed) -> {
+                counts[0]++;
+                for (Set<String> lineTests : lineMap.values()) {
+                    counts[2] += lineTests.size();
                 }
-                Map<Integer, Set<String>> lineMap = inlineTestMap.get(srcPath);
-                if (!lineMap.containsKey(lineNumber)) {
-                    lineMap.put(lineNumber, new HashSet<>());
+                if (!constructFile(srcPath, lineMap, typed)) {
+                    counts[1]++;
                 }
-                lineMap.get(lineNumber).add(inlineTestStr);
-            }
+            });
+            logConstructed(start, counts[0], counts[1], counts[2]);
+            return counts[1];
+        } else {
+            inlineTestMap = readInlineTests(logFilePath, null, -1, typedInlineTests);
         }
-        Context ctx = new Context();
+        Map<String, Map<Integer, Set<String>>> fileToInlineTests = new HashMap<>();
         for (String srcPath : inlineTestMap.keySet()) {
             if (lineNumberKnown && !srcPath.equals(filePathFromInput)) {
                 continue;
@@ -132,13 +211,187 @@ public class Parser {
                 if (inlineTests == null) {
                     continue;
                 }
-                ctx.inlineTests = new HashMap<>();
-                ctx.inlineTests.put(lineNumberFromInput, inlineTests);
-            } else {
-                ctx.inlineTests = lineMap;
+                lineMap = new HashMap<>();
+                lineMap.put(lineNumberFromInput, inlineTests);
+            }
+            fileToInlineTests.put(srcPath, lineMap);
+        }
+        return constructInlineTests(fileToInlineTests, typedInlineTests);
+    }
+
+    /**
+     * Insert the inline tests into their source files. Files are independent,
+     * so they are constructed in parallel on {@link Constant#constructThreads}
+     * workers, each with its own JavaParser. A file that fails, also with an
+     * Error such as a StackOverflowError on a deep AST, is reported and skipped.
+     *
+     * @param fileToInlineTests source file -> line -> inline tests
+     * @return number of files that failed
+     */
+    public static int constructInlineTests(Map<String, Map<Integer, Set<String>>> fileToInlineTests) {
+        return constructInlineTests(fileToInlineTests, new HashMap<>());
+    }
+
+    /**
+     * @param fileToInlineTests source file -> line -> inline tests
+     * @param typedInlineTests  source file -> inline test text -> typed test,
+     *                          for the tests that are built without parsing
+     * @return number of files that failed
+     */
+    public static int constructInlineTests(Map<String, Map<Integer, Set<String>>> fileToInlineTests,
+            Map<String, Map<String, InlineTest>> typedInlineTests) {
+        long start = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        int tests = 0;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, Set<String>>> entry : fileToInlineTests.entrySet()) {
+            for (Set<String> lineTests : entry.getValue().values()) {
+                tests += lineTests.size();
+            }
+            tasks.add(() -> {
+                if (!constructFile(entry.getKey(), entry.getValue(),
+                        typedInlineTests.getOrDefault(entry.getKey(), new HashMap<>()))) {
+                    failed.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        int threads = Math.max(1, Math.min(Constant.constructThreads, tasks.size()));
+        if (threads == 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        failed.incrementAndGet();
+                        Log.error("cannot add inline tests: " + e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+            } finally {
+                pool.shutdown();
             }
-            constructInlineTestHelper(srcPath, ctx);
         }
+        logConstructed(start, tasks.size(), failed.get(), tests);
+        return failed.get();
+    }
+
+    /**
+     * Insert the inline tests of one source file, with a Context of its own.
+     *
+     * @param srcPath
+     * @param inlineTests      line -> inline tests
+     * @param typedInlineTests inline test text -> typed test
+     * @return false if the file failed, it is reported
+     */
+    private static boolean constructFile(String srcPath, Map<Integer, Set<String>> inlineTests,
+            Map<String, InlineTest> typedInlineTests) {
+        Context ctx = new Context();
+        ctx.inlineTests = inlineTests;
+        ctx.typedInlineTests = typedInlineTests;
+        try {
+            constructInlineTestHelper(srcPath, ctx, JAVA_PARSER.get());
+            return true;
+        } catch (Throwable e) {
+            Log.error("cannot add inline tests to " + srcPath + ": " + e);
+            return false;
+        }
+    }
+
+    private static void logConstructed(long start, int files, int failed, int tests) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        Log.info(String.format("constructed %d files (%d failed), %d inline tests in %.2fs: %.1f files/s, %.1f tests/s",
+                files, failed, tests, seconds, files / seconds, tests / seconds));
+    }
+
+    /**
+     * Read the inline tests of an inline test log (text or binary), grouped by
+     * source file and target statement line.
+     *
+     * @param logFilePath
+     * @return
+     * @throws IOException
+     */
+    public static Map<String, Map<Integer, Set<String>>> readInlineTests(String logFilePath) throws IOException {
+        return readInlineTests(logFilePath, null, -1);
+    }
+
+    /**
+     * Read the inline tests of an inline test log (text or binary), grouped by
+     * source file and target statement line. Tests of other files (if filePath
+     * is not null) or other lines (if lineNumber > 0) are skipped without being
+     * decoded.
+     *
+     * @param logFilePath
+     * @param filePath
+     * @param lineNumber
+     * @return
+     * @throws IOException
+     */
+    public static Map<String, Map<Integer, Set<String>>> readInlineTests(String logFilePath, String filePath,
+            int lineNumber) throws IOException {
+        return readInlineTests(logFilePath, filePath, lineNumber, null);
+    }
+
+    /**
+     * @param typedInlineTests if not null, receives the typed tests of a binary
+     *                         log: source file -> inline test text -> typed test
+     */
+    static Map<String, Map<Integer, Set<String>>> readInlineTests(String logFilePath, String filePath,
+            int lineNumber, Map<String, Map<String, InlineTest>> typedInlineTests) throws IOException {
+        Map<String, Map<Integer, Set<String>>> inlineTestMap = new HashMap<>();
+        if (EventLog.isBinary(logFilePath)) {
+            try (EventLogReader reader = new EventLogReader(logFilePath)) {
+                while (reader.next()) {
+                    if (reader.kind() != EventLog.INLINE_TEST || (lineNumber > 0 && reader.line() != lineNumber)) {
+                        continue;
+                    }
+                    String srcPath = reader.srcPath();
+                    if (filePath != null && !srcPath.equals(filePath)) {
+                        continue;
+                    }
+                    String inlineTest = reader.inlineTest();
+                    inlineTestMap.computeIfAbsent(srcPath, k -> new HashMap<>())
+                            .computeIfAbsent(reader.line(), k -> new HashSet<>()).add(inlineTest);
+                    if (typedInlineTests != null) {
+                        InlineTest typed = reader.typedInlineTest();
+                        if (typed != null) {
+                            typedInlineTests.computeIfAbsent(srcPath, k -> new HashMap<>()).put(inlineTest, typed);
+                        }
+                    }
+                }
+            }
+            return inlineTestMap;
+        }
+        List<Map<String, Map<Integer, Set<String>>>> chunkMaps = InlineTestLogParser.parse(logFilePath,
+                HashMap::new, (map, record) -> {
+                    if ((lineNumber > 0 && record.line != lineNumber)
+                            || (filePath != null && !record.srcPath.equals(filePath))) {
+                        return;
+                    }
+                    map.computeIfAbsent(record.srcPath, k -> new HashMap<>())
+                            .computeIfAbsent(record.line, k -> new HashSet<>()).add(record.test());
+                });
+        for (Map<String, Map<Integer, Set<String>>> chunkMap : chunkMaps) {
+            for (Map.Entry<String, Map<Integer, Set<String>>> entry : chunkMap.entrySet()) {
+                Map<Integer, Set<String>> lineMap = inlineTestMap.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                for (Map.Entry<Integer, Set<String>> lineEntry : entry.getValue().entrySet()) {
+                    lineMap.computeIfAbsent(lineEntry.getKey(), k -> new HashSet<>()).addAll(lineEntry.getValue());
+                }
+            }
+        }
+        return inlineTestMap;
     }
 
     /**
@@ -165,8 +418,13 @@ public class Parser {
     }
 
     public static void constructInlineTestHelper(String srcPath, Context ctx) throws IOException {
-        CompilationUnit cu = StaticJavaParser.parse(Paths.get(srcPath));
-        InlineTestConstructor visitor = new InlineTestConstructor();
+        constructInlineTestHelper(srcPath, ctx, JAVA_PARSER.get());
+    }
+
+    public static void constructInlineTestHelper(String srcPath, Context ctx, JavaParser parser) throws IOException {
+        CompilationUnit cu = parse(parser, Paths.get(srcPath));
+        SourceSplicer splicer = observe(cu, srcPath);
+        InlineTestConstructor visitor = new InlineTestConstructor(parser);
         cu = (CompilationUnit) cu.accept(visitor, ctx);
         if (ctx.inlineTests.size() > 0) {
             // check if there is import of Here
@@ -183,10 +441,151 @@ public class Parser {
                 cu.addImport("org.inlinetest.Here.group", true, false);
             }
         }
+        String source = print(cu, splicer);
         FileWriter writer;
         writer = new FileWriter(srcPath);
-        writer.write(cu.toString());
+        writer.write(source);
         writer.close();
+        if (Constant.validateInlineTests && ctx.inlineTests.size() > 0) {
+            InlineTestValidator.validate(srcPath, source, parser);
+        }
+        if (Constant.tableEmission) {
+            reportSize(srcPath, cu, source);
+        }
+    }
+
+    /**
+     * Log the source size of a constructed file and, if it compiles, its
+     * bytecode size.
+     *
+     * @param srcPath
+     * @param cu
+     * @param source  the printed compilation unit
+     */
+    static void reportSize(String srcPath, CompilationUnit cu, String source) {
+        StringBuilder report = new StringBuilder(srcPath + ": source " + source.getBytes(StandardCharsets.UTF_8).length
+                + " bytes");
+        InMemoryCompiler.Result result = compile(srcPath, cu, source);
+        if (result == null || !result.success) {
+            report.append(", bytecode size unavailable (does not compile)");
+        } else {
+            long total = 0;
+            int largest = 0;
+            String largestMethod = "";
+            for (Map.Entry<String, byte[]> clazz : result.classes.entrySet()) {
+                for (Map.Entry<String, Integer> method : InMemoryCompiler.methodCodeSizes(clazz.getValue())
+                        .entrySet()) {
+                    total += method.getValue();
+                    if (method.getValue() > largest) {
+                        largest = method.getValue();
+                        largestMethod = clazz.getKey() + "." + method.getKey();
+                    }
+                }
+            }
+            report.append(", bytecode " + total + " bytes, largest method " + largestMethod + " " + largest
+                    + " bytes");
+        }
+        Log.info(report.toString());
+    }
+
+    /**
+     * Log the bytecode size of each method of a source file before and after
+     * it was instrumented, and the methods that instrumenting made too large
+     * to be inlined by HotSpot ({@link Constant#MAX_INLINE_SIZE},
+     * {@link Constant#FREQ_INLINE_SIZE}).
+     *
+     * @param srcPath
+     * @param cu             the instrumented compilation unit
+     * @param originalSource
+     * @param source         the instrumented source
+     */
+    static void reportMethodSizes(String srcPath, CompilationUnit cu, String originalSource, String source) {
+        Map<String, Integer> before = methodSizes(srcPath, cu, originalSource);
+        Map<String, Integer> after = methodSizes(srcPath, cu, source);
+        if (before == null || after == null) {
+            Log.info(srcPath + ": method sizes unavailable (does not compile "
+                    + (before == null ? "before" : "after") + " instrumenting)");
+            return;
+        }
+        long totalBefore = before.values().stream().mapToLong(Integer::longValue).sum();
+        long totalAfter = after.values().stream().mapToLong(Integer::longValue).sum();
+        for (Map.Entry<String, Integer> method : after.entrySet()) {
+            Integer size = before.get(method.getKey());
+            if (size == null) {
+                Log.debug(srcPath + ": " + method.getKey() + " added, " + method.getValue() + " bytes");
+                continue;
+            }
+            String inlining = "";
+            if (size <= Constant.FREQ_INLINE_SIZE && method.getValue() > Constant.FREQ_INLINE_SIZE) {
+                inlining = ", over FreqInlineSize " + Constant.FREQ_INLINE_SIZE;
+            } else if (size <= Constant.MAX_INLINE_SIZE && method.getValue() > Constant.MAX_INLINE_SIZE) {
+                inlining = ", over MaxInlineSize " + Constant.MAX_INLINE_SIZE;
+            }
+            String line = srcPath + ": " + method.getKey() + " " + size + " -> " + method.getValue() + " bytes"
+                    + inlining;
+            if (size.equals(method.getValue())) {
+                Log.debug(line);
+            } else {
+                Log.info(line);
+            }
+        }
+        Log.info(srcPath + ": bytecode " + totalBefore + " -> " + totalAfter + " bytes");
+    }
+
+    /**
+     * @return "Class.method(descriptor)" -> bytecode length, sorted, or null
+     *         if the source does not compile
+     */
+    private static Map<String, Integer> methodSizes(String srcPath, CompilationUnit cu, String source) {
+        InMemoryCompiler.Result result = compile(srcPath, cu, source);
+        if (result == null || !result.success) {
+            return null;
+        }
+        Map<String, Integer> sizes = new TreeMap<>();
+        for (Map.Entry<String, byte[]> clazz : result.classes.entrySet()) {
+            for (Map.Entry<String, Integer> method : InMemoryCompiler.methodCodeSizes(clazz.getValue()).entrySet()) {
+                sizes.put(clazz.getKey() + "." + method.getKey(), method.getValue());
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * @return directory of the default package of the source file, going up
+     *         one directory per package name component, or null
+     */
+    static Path sourceRoot(String srcPath, CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration().map(p -> p.getNameAsString()).orElse("");
+        Path sourceRoot = Paths.get(srcPath).toAbsolutePath().getParent();
+        for (int i = 0; !packageName.isEmpty() && i < packageName.split("\\.").length && sourceRoot != null; i++) {
+            sourceRoot = sourceRoot.getParent();
+        }
+        return sourceRoot;
+    }
+
+    /**
+     * Compile a source file in memory with {@link Constant#compileClasspath},
+     * finding the other sources of its project through the source root.
+     *
+     * @return null if no compiler is available
+     */
+    static InMemoryCompiler.Result compile(String srcPath, CompilationUnit cu, String source) {
+        if (!InMemoryCompiler.isAvailable()) {
+            return null;
+        }
+        String typeName = cu.getPrimaryTypeName()
+                .orElse(Paths.get(srcPath).getFileName().toString().replaceAll("\\.java$", ""));
+        String packageName = cu.getPackageDeclaration().map(p -> p.getNameAsString()).orElse("");
+        Path sourceRoot = sourceRoot(srcPath, cu);
+        List<String> options = new ArrayList<>();
+        options.add("-classpath");
+        options.add(Constant.compileClasspath == null ? "" : Constant.compileClasspath);
+        if (sourceRoot != null) {
+            options.add("-sourcepath");
+            options.add(sourceRoot.toString());
+        }
+        String className = packageName.isEmpty() ? typeName : packageName + "." + typeName;
+        return InMemoryCompiler.compile(className, source, options);
     }
 
     /**
@@ -197,27 +596,28 @@ public class Parser {
      * @throws IOException
      */
     public static void parseLog(String logFilePath, Context ctx) throws IOException {
-        FileReader reader = new FileReader(logFilePath);
         final String RANDOOP = "Randoop";
         final String JUNIT = "Unit";
         String source = RANDOOP;
-        try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                if (line.equals(JUNIT)) {
-                    source = JUNIT;
-                } else if (line.equals(RANDOOP)) {
-                    source = RANDOOP;
+        try (EventReader reader = EventLog.openReader(logFilePath)) {
+            boolean hasNext = reader.next();
+            while (hasNext) {
+                byte kind = reader.kind();
+                if (kind == EventLog.TEXT) {
+                    if (reader.text().equals(JUNIT)) {
+                        source = JUNIT;
+                    } else if (reader.text().equals(RANDOOP)) {
+                        source = RANDOOP;
+                    }
                 }
 
-                if (line.startsWith(Constant.TARGET_STMT_START)
-                        || line.startsWith(Constant.TARGET_STMT_IF_START)) {
-                    if (!line.split(Constant.LOG_SEPARATOR)[1].equals(ctx.srcPath)) {
-                        line = bufferedReader.readLine();
+                if (kind == EventLog.START || kind == EventLog.IF_START) {
+                    if (!reader.srcPath().equals(ctx.srcPath)) {
+                        hasNext = reader.next();
                         continue;
                     }
                     if (!ctx.lineNumberKnown) {
-                        ctx.lineNumber = Utils.parseLineNumber(line.split(Constant.LOG_SEPARATOR)[2]);
+                        ctx.lineNumber = reader.line();
                     }
                     if (ctx.inlineTests.containsKey(ctx.lineNumber)
                             && ctx.inlineTests.get(ctx.lineNumber).size() >= 10) {
@@ -227,18 +627,18 @@ public class Parser {
                     List<String> checkEq = new ArrayList<>();
                     List<String> checkTrue = new ArrayList<>();
                     boolean ifCondition = false;
-                    if (line.startsWith(Constant.TARGET_STMT_IF_START)) {
+                    if (kind == EventLog.IF_START) {
                         ifCondition = true;
                     }
-                    while ((line = bufferedReader.readLine()) != null) {
-                        if (line.startsWith(Constant.TARGET_METHOD_BEFORE)) {
+                    while ((hasNext = reader.next())) {
+                        kind = reader.kind();
+                        if (kind == EventLog.METHOD_BEFORE) {
                             continue;
                         }
-                        if (line.startsWith(Constant.TARGET_STMT_BEFORE)
-                                || line.startsWith(Constant.TARGET_STMT_AFTER)) {
-                            String type = line.split(Constant.LOG_SEPARATOR, 6)[3];
-                            String name = line.split(Constant.LOG_SEPARATOR, 6)[4];
-                            String value = line.split(Constant.LOG_SEPARATOR, 6)[5];
+                        if (kind == EventLog.BEFORE || kind == EventLog.AFTER) {
+                            String type = reader.varType();
+                            String name = reader.varName();
+                            String value = reader.value();
                             if (Constant.PRIMITIVE_TYPES.contains(type)) {
                                 if (type.equals("String")) {
                                     value = "\"" + value + "\"";
@@ -253,12 +653,12 @@ public class Parser {
                                 // TODO: handle non-primitive types in the future
                                 break;
                             }
-                            if (line.startsWith(Constant.TARGET_STMT_BEFORE)) {
+                            if (kind == EventLog.BEFORE) {
                                 given.add("given(" + name + ", " + value + ")");
                             } else {
                                 checkEq.add("checkEq(" + name + ", " + value + ")");
                             }
-                        } else if (line.startsWith(Constant.TARGET_STMT_EXECUTED)) {
+                        } else if (kind == EventLog.EXECUTED) {
                             checkTrue.add("checkTrue(" + "group(" + ")" + ")");
                         } else {
                             break;
@@ -284,7 +684,7 @@ public class Parser {
                         ctx.inlineTests.put(ctx.lineNumber, inlineTestSet);
                     }
                 } else {
-                    line = bufferedReader.readLine();
+                    hasNext = reader.next();
                 }
             }
         }
@@ -315,4 +715,37 @@ public class Parser {
         res += "}";
         return res;
     }
-}
\ No newline at end of file
+
+    /**
+     * In splice mode, start recording the edits of a compilation unit parsed
+     * from a source file.
+     *
+     * @return null if not in splice mode
+     */
+    static SourceSplicer observe(CompilationUnit cu, String srcPath) throws IOException {
+        if (!Constant.spliceOutput) {
+            return null;
+        }
+        return SourceSplicer.observe(cu, new String(Files.readAllBytes(Paths.get(srcPath)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the edited compilation unit as it is written back: re-printed as a
+     *         whole, or in splice mode only the edited parts spliced into the
+     *         original text
+     */
+    static String print(CompilationUnit cu, SourceSplicer splicer) {
+        return splicer == null ? cu.toString() : splicer.print();
+    }
+
+    /**
+     * Parse a source file like StaticJavaParser.parse, with the given parser.
+     */
+    static CompilationUnit parse(JavaParser parser, Path path) throws IOException {
+        ParseResult<CompilationUnit> result = parser.parse(path);
+        if (!result.isSuccessful() || !result.getResult().isPresent()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
+    }
+}
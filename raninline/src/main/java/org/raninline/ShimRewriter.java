@@ -0,0 +1,260 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+
+/**
+ * Redirects the JDK calls of a target statement to the shims that JaCoCo can
+ * see into ({@link IT_String}, {@link IT_Matcher}, {@link IT_Stream}), so that
+ * the coverage of the statement tells different inputs apart:
+ * <ul>
+ * <li>s.split/substring/indexOf/matches/replace(...) to new IT_String(s)...;</li>
+ * <li>String.format(...) and Pattern.matches(...) to the static shims;</li>
+ * <li>m.find(), m.matches() and m.group() of a Matcher to new
+ * IT_Matcher(m)...;</li>
+ * <li>c.stream() of a collection to new IT_Stream&lt;&gt;(c) when the rest of
+ * the pipeline only uses the operations of IT_Stream.</li>
+ * </ul>
+ * A call is only redirected when the type of its receiver is known, so that
+ * the statement still compiles: from the resolver of the context if any,
+ * otherwise from the declaration of the receiver in the file. replace is also
+ * redirected for receivers starting with a lowercase letter, as it always was.
+ */
+public class ShimRewriter {
+    static final String STRING_SHIM = "org.raninline.IT_String";
+    static final String MATCHER_SHIM = "org.raninline.IT_Matcher";
+    static final String STREAM_SHIM = "org.raninline.IT_Stream";
+
+    private static final Set<String> STRING_METHODS = new HashSet<>(
+            Arrays.asList("split", "substring", "indexOf", "matches", "replace"));
+    // methods of a String that return a String, to type chained calls
+    private static final Set<String> STRING_RESULTS = new HashSet<>(Arrays.asList("substring", "trim",
+            "toLowerCase", "toUpperCase", "replace", "replaceAll", "replaceFirst", "concat", "intern"));
+    private static final Set<String> COLLECTION_TYPES = new HashSet<>(Arrays.asList("Collection", "List",
+            "ArrayList", "LinkedList", "Vector", "Stack", "CopyOnWriteArrayList", "Set", "HashSet", "LinkedHashSet",
+            "TreeSet", "SortedSet", "NavigableSet", "Queue", "Deque", "ArrayDeque", "PriorityQueue"));
+    private static final Set<String> STREAM_INTERMEDIATE = new HashSet<>(Arrays.asList("filter", "map"));
+    private static final Set<String> STREAM_TERMINAL = new HashSet<>(Arrays.asList("anyMatch", "allMatch",
+            "noneMatch", "count", "findFirst", "forEach", "collect"));
+
+    /**
+     * @param target target statement or if condition
+     * @param ctx
+     * @return number of redirected calls
+     */
+    public static int rewrite(Node target, Context ctx) {
+        // decide on the original statement, then rewrite
+        List<Runnable> rewrites = new ArrayList<>();
+        for (MethodCallExpr call : target.findAll(MethodCallExpr.class)) {
+            Runnable rewrite = rewriteOf(call, ctx);
+            if (rewrite != null) {
+                rewrites.add(rewrite);
+            }
+        }
+        rewrites.forEach(Runnable::run);
+        return rewrites.size();
+    }
+
+    private static Runnable rewriteOf(MethodCallExpr call, Context ctx) {
+        if (!call.getScope().isPresent()) {
+            return null;
+        }
+        Expression scope = call.getScope().get();
+        String name = call.getNameAsString();
+        int arguments = call.getArguments().size();
+        if (scope.isNameExpr() && scope.asNameExpr().getNameAsString().equals("String") && name.equals("format")
+                && arguments > 0 && "String".equals(staticType(call.getArgument(0), ctx))) {
+            return () -> call.setScope(typeExpr(STRING_SHIM));
+        }
+        if (scope.isNameExpr() && scope.asNameExpr().getNameAsString().equals("Pattern") && name.equals("matches")
+                && arguments == 2) {
+            return () -> call.setScope(typeExpr(MATCHER_SHIM));
+        }
+        String type = staticType(scope, ctx);
+        if (STRING_METHODS.contains(name) && ("String".equals(type) || (name.equals("replace")
+                && Character.isLowerCase(scope.toString().charAt(0))))) {
+            return () -> call.setScope(shim(STRING_SHIM, call.getScope().get(), false));
+        }
+        if ("Matcher".equals(type) && (((name.equals("find") || name.equals("matches") || name.equals("group"))
+                && arguments == 0)
+                || (name.equals("group") && arguments == 1 && call.getArgument(0).isIntegerLiteralExpr()))) {
+            return () -> call.setScope(shim(MATCHER_SHIM, call.getScope().get(), false));
+        }
+        if (name.equals("stream") && arguments == 0 && COLLECTION_TYPES.contains(type) && isShimPipeline(call)) {
+            return () -> call.replace(shim(STREAM_SHIM, call.getScope().get(), true));
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the calls on the stream are filter or map, up to a
+     *         terminal operation of IT_Stream
+     */
+    private static boolean isShimPipeline(MethodCallExpr stream) {
+        Expression current = stream;
+        while (current.getParentNode().isPresent() && current.getParentNode().get() instanceof MethodCallExpr) {
+            MethodCallExpr call = (MethodCallExpr) current.getParentNode().get();
+            if (!call.getScope().isPresent() || call.getScope().get() != current) {
+                return false;
+            }
+            if (STREAM_TERMINAL.contains(call.getNameAsString())) {
+                return true;
+            }
+            if (!STREAM_INTERMEDIATE.contains(call.getNameAsString())) {
+                return false;
+            }
+            current = call;
+        }
+        return false;
+    }
+
+    private static ObjectCreationExpr shim(String shimClass, Expression receiver, boolean diamond) {
+        ClassOrInterfaceType type = new ClassOrInterfaceType(null, shimClass);
+        if (diamond) {
+            type.setTypeArguments(new NodeList<>());
+        }
+        return new ObjectCreationExpr(null, type, NodeList.nodeList(receiver));
+    }
+
+    private static Expression typeExpr(String qualifiedName) {
+        String[] names = qualifiedName.split("\\.");
+        Expression expr = new NameExpr(names[0]);
+        for (int i = 1; i < names.length; i++) {
+            expr = new FieldAccessExpr(expr, names[i]);
+        }
+        return expr;
+    }
+
+    /**
+     * @return simple name of the static type of an expression, without type
+     *         arguments, e.g. "String" or "List", or null if unknown
+     */
+    static String staticType(Expression expr, Context ctx) {
+        if (ctx != null && ctx.resolver != null) {
+            try {
+                return simpleName(expr.calculateResolvedType().describe());
+            } catch (RuntimeException e) {
+                // fall back to the declarations
+            }
+        }
+        if (expr.isStringLiteralExpr() || expr.isTextBlockLiteralExpr()) {
+            return "String";
+        } else if (expr.isEnclosedExpr()) {
+            return staticType(expr.asEnclosedExpr().getInner(), ctx);
+        } else if (expr.isNameExpr()) {
+            Type type = declaredType(expr.asNameExpr().getNameAsString(), expr);
+            return type == null ? null : simpleName(type.asString());
+        } else if (expr.isMethodCallExpr()) {
+            MethodCallExpr call = expr.asMethodCallExpr();
+            if (!call.getScope().isPresent()) {
+                return null;
+            }
+            Expression scope = call.getScope().get();
+            if (scope.isNameExpr() && scope.asNameExpr().getNameAsString().equals("Pattern")
+                    && call.getNameAsString().equals("compile")) {
+                return "Pattern";
+            }
+            String scopeType = staticType(scope, ctx);
+            if ("String".equals(scopeType) && STRING_RESULTS.contains(call.getNameAsString())) {
+                return "String";
+            } else if ("Pattern".equals(scopeType) && call.getNameAsString().equals("matcher")) {
+                return "Matcher";
+            }
+        }
+        return null;
+    }
+
+    private static String simpleName(String type) {
+        int typeArguments = type.indexOf('<');
+        if (typeArguments >= 0) {
+            type = type.substring(0, typeArguments);
+        }
+        return type.substring(type.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * @return declared type of the variable a name refers to, from the
+     *         declarations around the node, or null if it is not declared in the
+     *         file or declared without a type (var, lambda parameters)
+     */
+    static Type declaredType(String name, Node node) {
+        Node child = node;
+        for (Node current = node.getParentNode().orElse(null); current != null; child = current, current = current
+                .getParentNode().orElse(null)) {
+            List<Parameter> parameters = new ArrayList<>();
+            List<VariableDeclarator> variables = new ArrayList<>();
+            if (current instanceof CallableDeclaration) {
+                parameters.addAll(((CallableDeclaration<?>) current).getParameters());
+            } else if (current instanceof LambdaExpr) {
+                parameters.addAll(((LambdaExpr) current).getParameters());
+            } else if (current instanceof CatchClause) {
+                parameters.add(((CatchClause) current).getParameter());
+            } else if (current instanceof ForEachStmt) {
+                variables.addAll(((ForEachStmt) current).getVariable().getVariables());
+            } else if (current instanceof ForStmt) {
+                ((ForStmt) current).getInitialization().stream().filter(Expression::isVariableDeclarationExpr)
+                        .forEach(e -> variables.addAll(e.asVariableDeclarationExpr().getVariables()));
+            } else if (current instanceof TryStmt) {
+                ((TryStmt) current).getResources().stream().filter(Expression::isVariableDeclarationExpr)
+                        .forEach(e -> variables.addAll(e.asVariableDeclarationExpr().getVariables()));
+            } else if (current instanceof BlockStmt) {
+                for (Statement stmt : ((BlockStmt) current).getStatements()) {
+                    if (stmt == child) {
+                        break;
+                    }
+                    if (stmt instanceof ExpressionStmt
+                            && ((ExpressionStmt) stmt).getExpression() instanceof VariableDeclarationExpr) {
+                        variables.addAll(
+                                ((VariableDeclarationExpr) ((ExpressionStmt) stmt).getExpression()).getVariables());
+                    }
+                }
+            } else if (current instanceof TypeDeclaration) {
+                for (FieldDeclaration field : ((TypeDeclaration<?>) current).getFields()) {
+                    variables.addAll(field.getVariables());
+                }
+            } else if (current instanceof ObjectCreationExpr) {
+                ((ObjectCreationExpr) current).getAnonymousClassBody().ifPresent(members -> members.stream()
+                        .filter(m -> m instanceof FieldDeclaration)
+                        .forEach(m -> variables.addAll(((FieldDeclaration) m).getVariables())));
+            }
+            for (Parameter parameter : parameters) {
+                if (parameter.getNameAsString().equals(name)) {
+                    return parameter.getType().isUnknownType() || parameter.isVarArgs() ? null : parameter.getType();
+                }
+            }
+            for (VariableDeclarator variable : variables) {
+                if (variable.getNameAsString().equals(name)) {
+                    return variable.getType().isVarType() ? null : variable.getType();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,408 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.observer.AstObserver;
+import com.github.javaparser.ast.observer.AstObserverAdapter;
+import com.github.javaparser.ast.observer.ObservableProperty;
+import com.github.javaparser.printer.DefaultPrettyPrinterVisitor;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
+import com.github.javaparser.printer.configuration.Indentation;
+import com.github.javaparser.printer.configuration.PrinterConfiguration;
+
+/**
+ * Prints an edited compilation unit by splicing only what changed into the
+ * original source text, so that every other byte (and every line number
+ * outside the edited members) stays the same.
+ *
+ * The unit of re-printing is the outermost member (method, constructor, field,
+ * initializer) that is not a type: an edited method is re-printed as a whole
+ * and put in place of its original text. Added or removed members of a type
+ * and the import list are spliced too. Any other edit (e.g. a modifier of a
+ * class) falls back to printing the whole unit.
+ *
+ * Register the splicer before editing:
+ *
+ * <pre>
+ * SourceSplicer splicer = SourceSplicer.observe(cu, source);
+ * cu.accept(visitor, ctx);
+ * String edited = splicer.print();
+ * </pre>
+ */
+public class SourceSplicer {
+    private final CompilationUnit cu;
+    private final String source;
+    private final int[] lineStarts;
+    private final String lineSeparator;
+    private final Range importsRange; // of the original imports, null if there are none
+    private final Map<Node, Boolean> originalMembers = new IdentityHashMap<>(); // parsed from the source
+    private final Map<Node, Boolean> dirtyMembers = new IdentityHashMap<>();
+    private final Map<TypeDeclaration<?>, Boolean> typesWithNewMembers = new IdentityHashMap<>();
+    private final List<Node> removedMembers = new ArrayList<>();
+    private boolean importsChanged = false;
+    private boolean unsupportedChange = false;
+
+    private SourceSplicer(CompilationUnit cu, String source) {
+        this.cu = cu;
+        this.source = source;
+        this.lineStarts = lineStarts(source);
+        this.lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        NodeList<ImportDeclaration> imports = cu.getImports();
+        if (imports.isNonEmpty() && imports.get(0).getRange().isPresent()
+                && imports.get(imports.size() - 1).getRange().isPresent()) {
+            importsRange = new Range(imports.get(0).getRange().get().begin,
+                    imports.get(imports.size() - 1).getRange().get().end);
+        } else {
+            importsRange = null;
+        }
+        // nodes parsed elsewhere and added later may have ranges too
+        for (BodyDeclaration<?> member : cu.findAll(BodyDeclaration.class)) {
+            if (member.getRange().isPresent()) {
+                originalMembers.put(member, true);
+            }
+        }
+    }
+
+    /**
+     * Start recording the edits of a compilation unit.
+     *
+     * @param cu     compilation unit parsed from source
+     * @param source original text of the compilation unit
+     * @return
+     */
+    public static SourceSplicer observe(CompilationUnit cu, String source) {
+        SourceSplicer splicer = new SourceSplicer(cu, source);
+        cu.registerForSubtree(splicer.observer());
+        return splicer;
+    }
+
+    private AstObserver observer() {
+        return new AstObserverAdapter() {
+            @Override
+            public void propertyChange(Node observedNode, ObservableProperty property, Object oldValue,
+                    Object newValue) {
+                if (property != ObservableProperty.RANGE) {
+                    changed(observedNode);
+                }
+            }
+
+            @Override
+            public void listChange(NodeList<?> observedNode, ListChangeType type, int index,
+                    Node nodeAddedOrRemoved) {
+                listChanged(observedNode, type == ListChangeType.REMOVAL ? nodeAddedOrRemoved : null);
+            }
+
+            @Override
+            public void listReplacement(NodeList<?> observedNode, int index, Node oldNode, Node newNode) {
+                listChanged(observedNode, null);
+            }
+        };
+    }
+
+    private void changed(Node node) {
+        Optional<Node> member = outermostMember(node);
+        if (member.isPresent()) {
+            dirtyMembers.put(member.get(), true);
+        } else if (node.findCompilationUnit().orElse(null) == cu) {
+            unsupportedChange = true;
+        }
+    }
+
+    /**
+     * @param removed the removed node, null for additions and replacements
+     */
+    private void listChanged(NodeList<?> list, Node removed) {
+        Node owner = list.getParentNode().orElse(null);
+        if (owner == null) {
+            return;
+        }
+        if (owner == cu && list == cu.getImports()) {
+            importsChanged = true;
+        } else if (owner instanceof TypeDeclaration && list == ((TypeDeclaration<?>) owner).getMembers()
+                && !outermostMember(owner).isPresent()) {
+            if (removed == null) {
+                typesWithNewMembers.put((TypeDeclaration<?>) owner, true);
+            } else if (originalMembers.containsKey(removed)) {
+                removedMembers.add(removed);
+            } else {
+                // a member that was added and removed again
+                typesWithNewMembers.put((TypeDeclaration<?>) owner, true);
+            }
+        } else {
+            changed(owner);
+        }
+    }
+
+    /**
+     * @return the outermost member that is not a type and that was parsed from
+     *         the source, containing the node
+     */
+    private Optional<Node> outermostMember(Node node) {
+        Node member = null;
+        for (Node current = node; current != null; current = current.getParentNode().orElse(null)) {
+            if (current instanceof BodyDeclaration && !(current instanceof TypeDeclaration)
+                    && originalMembers.containsKey(current)) {
+                member = current;
+            }
+        }
+        return Optional.ofNullable(member);
+    }
+
+    private static class Edit {
+        final int begin;
+        final int end;
+        final String text;
+
+        Edit(int begin, int end, String text) {
+            this.begin = begin;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    /**
+     * @return the edited source: the original text with the changed parts
+     *         re-printed, or the whole unit re-printed if an edit can not be
+     *         spliced
+     */
+    public String print() {
+        if (unsupportedChange) {
+            Log.debug("edits outside members, printing the whole compilation unit");
+            return cu.toString();
+        }
+        List<Edit> edits = new ArrayList<>();
+        for (Node member : dirtyMembers.keySet()) {
+            if (member.findCompilationUnit().orElse(null) != cu) {
+                // removed after it was edited
+                continue;
+            }
+            int begin = offset(rangeWithComment(member).begin);
+            edits.add(new Edit(begin, offset(member.getRange().get().end) + 1,
+                    print(member, indentation(begin))));
+        }
+        for (Node member : removedMembers) {
+            edits.add(removal(rangeWithComment(member)));
+        }
+        for (TypeDeclaration<?> type : typesWithNewMembers.keySet()) {
+            if (type.findCompilationUnit().orElse(null) != cu || !originalMembers.containsKey(type)) {
+                Log.debug("members added to a new type, printing the whole compilation unit");
+                return cu.toString();
+            }
+            edits.addAll(insertions(type));
+        }
+        if (importsChanged) {
+            edits.add(importsEdit());
+        }
+        // apply from the end so that the offsets of the other edits stay valid
+        Collections.sort(edits, (a, b) -> Integer.compare(b.begin, a.begin));
+        StringBuilder sb = new StringBuilder(source);
+        int previousBegin = Integer.MAX_VALUE;
+        for (Edit edit : edits) {
+            if (edit.end > previousBegin) {
+                Log.debug("overlapping edits, printing the whole compilation unit");
+                return cu.toString();
+            }
+            sb.replace(edit.begin, edit.end, edit.text);
+            previousBegin = edit.begin;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Insert the new members of a type (the ones without a range) before the
+     * next original member, or before the closing brace of the type.
+     */
+    private List<Edit> insertions(TypeDeclaration<?> type) {
+        List<Edit> edits = new ArrayList<>();
+        NodeList<BodyDeclaration<?>> members = type.getMembers();
+        for (int i = 0; i < members.size(); i++) {
+            if (originalMembers.containsKey(members.get(i))) {
+                continue;
+            }
+            int next = i;
+            while (next < members.size() && !originalMembers.containsKey(members.get(next))) {
+                next++;
+            }
+            StringBuilder text = new StringBuilder();
+            int at;
+            if (next < members.size()) {
+                int begin = offset(rangeWithComment(members.get(next)).begin);
+                at = lineStart(begin);
+                String indentation = indentation(begin);
+                for (int j = i; j < next; j++) {
+                    text.append(indentation).append(print(members.get(j), indentation))
+                            .append(lineSeparator).append(lineSeparator);
+                }
+            } else {
+                at = lineStart(offset(type.getRange().get().end));
+                String indentation = indentation(offset(type.getRange().get().begin)) + "    ";
+                for (int j = i; j < next; j++) {
+                    text.append(lineSeparator).append(indentation).append(print(members.get(j), indentation))
+                            .append(lineSeparator);
+                }
+            }
+            edits.add(new Edit(at, at, text.toString()));
+            i = next;
+        }
+        return edits;
+    }
+
+    private Edit importsEdit() {
+        StringBuilder text = new StringBuilder();
+        for (ImportDeclaration importDeclaration : cu.getImports()) {
+            if (text.length() > 0) {
+                text.append(lineSeparator);
+            }
+            text.append(print(importDeclaration, ""));
+        }
+        if (importsRange != null) {
+            return new Edit(offset(importsRange.begin), offset(importsRange.end) + 1, text.toString());
+        }
+        if (cu.getPackageDeclaration().isPresent() && cu.getPackageDeclaration().get().getRange().isPresent()) {
+            int at = offset(cu.getPackageDeclaration().get().getRange().get().end) + 1;
+            return new Edit(at, at, lineSeparator + lineSeparator + text);
+        }
+        return new Edit(0, 0, text + lineSeparator + lineSeparator);
+    }
+
+    /**
+     * Remove a range, with its whole lines if nothing else is on them.
+     */
+    private Edit removal(Range range) {
+        int begin = offset(range.begin);
+        int end = offset(range.end) + 1;
+        int lineBegin = lineStart(begin);
+        int lineEnd = end;
+        while (lineEnd < source.length() && (source.charAt(lineEnd) == ' ' || source.charAt(lineEnd) == '\t')) {
+            lineEnd++;
+        }
+        if (source.substring(lineBegin, begin).trim().isEmpty()
+                && (lineEnd == source.length() || source.charAt(lineEnd) == '\r' || source.charAt(lineEnd) == '\n')) {
+            if (source.startsWith("\r\n", lineEnd)) {
+                lineEnd += 2;
+            } else if (lineEnd < source.length()) {
+                lineEnd++;
+            }
+            // and one blank line after it
+            int blankEnd = lineEnd;
+            while (blankEnd < source.length() && (source.charAt(blankEnd) == ' ' || source.charAt(blankEnd) == '\t')) {
+                blankEnd++;
+            }
+            if (source.startsWith(lineSeparator, blankEnd)) {
+                lineEnd = blankEnd + lineSeparator.length();
+            }
+            return new Edit(lineBegin, lineEnd, "");
+        }
+        return new Edit(begin, end, "");
+    }
+
+    private static Range rangeWithComment(Node node) {
+        Range range = node.getRange().get();
+        Optional<Comment> comment = node.getComment();
+        if (comment.isPresent() && comment.get().getRange().isPresent()
+                && comment.get().getRange().get().begin.isBefore(range.begin)) {
+            return new Range(comment.get().getRange().get().begin, range.end);
+        }
+        return range;
+    }
+
+    /**
+     * Pretty print a node as if it were indented by the given white space, with
+     * the line separator of the source. The first line is not indented, it
+     * continues the original line.
+     */
+    private String print(Node node, String indentation) {
+        DefaultPrinterConfiguration configuration = new DefaultPrinterConfiguration();
+        boolean tabs = !indentation.isEmpty() && indentation.replace("\t", "").isEmpty();
+        if (tabs) {
+            configuration.addOption(new DefaultConfigurationOption(ConfigOption.INDENTATION,
+                    new Indentation(Indentation.IndentType.TABS, 1)));
+        }
+        IndentedPrinter printer = new IndentedPrinter(configuration, tabs ? indentation.length() : 0,
+                tabs ? 0 : indentation.length());
+        node.accept(printer, null);
+        // the printer indents the first line too
+        String text = printer.toString().replaceAll("^[ \t]+", "").replaceAll("\\s+$", "");
+        return text.replace("\r\n", "\n").replace("\n", lineSeparator);
+    }
+
+    private static class IndentedPrinter extends DefaultPrettyPrinterVisitor {
+        IndentedPrinter(PrinterConfiguration configuration, int levels, int column) {
+            super(configuration);
+            for (int i = 0; i < levels; i++) {
+                printer.indent();
+            }
+            if (column > 0) {
+                printer.indentWithAlignTo(column);
+            }
+        }
+    }
+
+    /**
+     * @return the white space before an offset on its line, or "" if there is
+     *         anything else before it
+     */
+    private String indentation(int offset) {
+        String prefix = source.substring(lineStart(offset), offset);
+        return prefix.trim().isEmpty() ? prefix : "";
+    }
+
+    private int lineStart(int offset) {
+        int line = 0;
+        int low = 0;
+        int high = lineStarts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                line = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return lineStarts[line];
+    }
+
+    private int offset(Position position) {
+        return lineStarts[position.line - 1] + position.column - 1;
+    }
+
+    /**
+     * Offsets of the lines, which end (like for JavaParser) with "\r\n", "\n" or
+     * "\r".
+     */
+    private static int[] lineStarts(String source) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+                i++;
+                starts.add(i + 1);
+            } else if (c == '\n' || c == '\r') {
+                starts.add(i + 1);
+            }
+        }
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.visitor.GenericListVisitorAdapter;
+
+/**
+ * Finds the target expressions of all statements in one post-order traversal:
+ * the result of a node is the categories of the outermost matching
+ * expressions in it, concatenated from its children, so every node is visited
+ * once however deeply statements are nested. Anonymous classes add nothing to
+ * the statement that creates them, but their own statements are candidates.
+ *
+ * The results of the candidate target statements (expression statements and
+ * if conditions) are kept, see {@link #classify(Node)}.
+ */
+public class TargetClassifier extends GenericListVisitorAdapter<String, Void> {
+    private final TargetRules rules;
+    private final Map<Node, List<String>> candidates = new IdentityHashMap<>();
+
+    public TargetClassifier(TargetRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param root
+     * @return expression statement or if condition -> categories of the target
+     *         expressions in it, one per match (empty if it is not a target)
+     */
+    public static Map<Node, List<String>> classify(Node root) {
+        TargetClassifier classifier = new TargetClassifier(TargetRules.load());
+        root.accept(classifier, null);
+        return classifier.candidates;
+    }
+
+    /**
+     * @return categories of the target expressions in one node
+     */
+    public static List<String> categories(Node node) {
+        return node.accept(new TargetClassifier(TargetRules.load()), null);
+    }
+
+    @Override
+    public List<String> visit(final ExpressionStmt n, final Void arg) {
+        List<String> result = super.visit(n, arg);
+        candidates.put(n, result);
+        return result;
+    }
+
+    @Override
+    public List<String> visit(final IfStmt n, final Void arg) {
+        List<String> condition = n.getCondition().accept(this, arg);
+        candidates.put(n.getCondition(), condition);
+        List<String> result = new ArrayList<>(condition);
+        result.addAll(n.getThenStmt().accept(this, arg));
+        n.getElseStmt().ifPresent(s -> result.addAll(s.accept(this, arg)));
+        return result;
+    }
+
+    @Override
+    public List<String> visit(final BinaryExpr n, final Void arg) {
+        return outermost(rules.match(n), super.visit(n, arg));
+    }
+
+    @Override
+    public List<String> visit(final AssignExpr n, final Void arg) {
+        return outermost(rules.match(n), super.visit(n, arg));
+    }
+
+    @Override
+    public List<String> visit(final MethodCallExpr n, final Void arg) {
+        return outermost(rules.match(n), super.visit(n, arg));
+    }
+
+    @Override
+    public List<String> visit(final ObjectCreationExpr n, final Void arg) {
+        // the statements of an anonymous class are candidates of their own
+        List<String> result = super.visit(n, arg);
+        if (n.getAnonymousClassBody().isPresent()) {
+            return new ArrayList<>();
+        }
+        return result;
+    }
+
+    /**
+     * The children are walked even under a match, so that the statements
+     * nested in it (in a lambda or an anonymous class) are recorded as
+     * candidates.
+     *
+     * @param category category of the node, or null if it does not match
+     * @param children categories of its children
+     * @return the category of the node if it matches, else of its children
+     */
+    private static List<String> outermost(String category, List<String> children) {
+        return category != null ? Collections.singletonList(category) : children;
+    }
+}
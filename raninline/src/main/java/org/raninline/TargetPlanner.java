@@ -0,0 +1,137 @@
+package org.raninline;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Joins the target manifest of {@link TargetScanner} with the hit counts of a
+ * count-only run ({@link CounterHelper}) into the plan that
+ * {@link Parser#instrumentBatch} instruments. Each line of the plan is
+ * "file;line;cap;sample;hits;categories;method":
+ * <ul>
+ * <li>targets that no test reached are left out;</li>
+ * <li>targets hit more than {@link Constant#HOT_HIT_COUNT} times get the lower
+ * cap {@link Constant#HOT_MAX_INLINE_TESTS_PER_STMT} and are sampled, one
+ * execution in sample is captured;</li>
+ * <li>targets are ordered by expected yield: the number of executions that may
+ * give an inline test, then the number of categories.</li>
+ * </ul>
+ */
+public class TargetPlanner {
+    static class Target {
+        String file;
+        int line;
+        String categories;
+        String method;
+        long hits;
+        int cap;
+        int sample;
+
+        long expectedYield() {
+            return Math.min(hits / sample, cap);
+        }
+
+        String row() {
+            return file + Constant.LOG_SEPARATOR + line + Constant.LOG_SEPARATOR + cap + Constant.LOG_SEPARATOR
+                    + sample + Constant.LOG_SEPARATOR + hits + Constant.LOG_SEPARATOR + categories
+                    + Constant.LOG_SEPARATOR + method;
+        }
+    }
+
+    /**
+     * @param manifestPath  target manifest, see {@link TargetScanner}
+     * @param histogramPath hit counts, see {@link CounterHelper}
+     * @param planPath
+     * @return number of planned targets
+     * @throws IOException
+     */
+    public static int plan(String manifestPath, String histogramPath, String planPath) throws IOException {
+        // the paths of the manifest and of the counts may be written differently
+        Map<String, Long> hits = new HashMap<>();
+        for (Map.Entry<String, Long> entry : CounterHelper.read(Paths.get(histogramPath)).entrySet()) {
+            int separator = entry.getKey().lastIndexOf(':');
+            if (separator > 0) {
+                hits.merge(key(entry.getKey().substring(0, separator), entry.getKey().substring(separator + 1)),
+                        entry.getValue(), Long::sum);
+            }
+        }
+        List<Target> targets = new ArrayList<>();
+        int manifestTargets = 0;
+        int hotTargets = 0;
+        for (String row : Files.readAllLines(Paths.get(manifestPath), StandardCharsets.UTF_8)) {
+            String[] tokens = row.split(Constant.LOG_SEPARATOR, 4);
+            if (tokens.length < 4) {
+                continue;
+            }
+            manifestTargets++;
+            Long targetHits = hits.get(key(tokens[0], tokens[1]));
+            if (targetHits == null || targetHits == 0) {
+                continue;
+            }
+            Target target = new Target();
+            target.file = tokens[0];
+            target.line = Integer.parseInt(tokens[1]);
+            target.categories = tokens[2];
+            target.method = tokens[3];
+            target.hits = targetHits;
+            if (targetHits > Constant.HOT_HIT_COUNT) {
+                hotTargets++;
+                target.cap = Constant.HOT_MAX_INLINE_TESTS_PER_STMT;
+                target.sample = (int) Math.min(Integer.MAX_VALUE,
+                        (targetHits + Constant.HOT_HIT_COUNT - 1) / Constant.HOT_HIT_COUNT);
+            } else {
+                target.cap = Constant.MAX_INLINE_TESTS_PER_STMT;
+                target.sample = 1;
+            }
+            targets.add(target);
+        }
+        targets.sort(Comparator.comparingLong(Target::expectedYield).reversed()
+                .thenComparing(Comparator.comparingInt((Target t) -> t.categories.split(",").length).reversed())
+                .thenComparing(t -> t.file).thenComparingInt(t -> t.line));
+        try (FileWriter writer = new FileWriter(planPath)) {
+            for (Target target : targets) {
+                writer.write(target.row() + "\n");
+            }
+        }
+        Log.info(String.format("planned %d of %d target statements: %d never hit, %d hot", targets.size(),
+                manifestTargets, manifestTargets - targets.size(), hotTargets));
+        return targets.size();
+    }
+
+    /**
+     * @return the targets of a plan, in its order
+     */
+    static List<Target> read(String planPath) throws IOException {
+        List<Target> targets = new ArrayList<>();
+        for (String row : Files.readAllLines(Paths.get(planPath), StandardCharsets.UTF_8)) {
+            String[] tokens = row.split(Constant.LOG_SEPARATOR, 7);
+            if (tokens.length < 7) {
+                continue;
+            }
+            Target target = new Target();
+            target.file = tokens[0];
+            target.line = Integer.parseInt(tokens[1]);
+            target.cap = Integer.parseInt(tokens[2]);
+            target.sample = Integer.parseInt(tokens[3]);
+            target.hits = Long.parseLong(tokens[4]);
+            target.categories = tokens[5];
+            target.method = tokens[6];
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    private static String key(String file, String line) {
+        Path path = Paths.get(file).toAbsolutePath().normalize();
+        return path + ":" + line.trim();
+    }
+}
@@ -0,0 +1,53 @@
+package org.raninline;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+/**
+ * A family of expressions that make a statement a target statement, e.g.
+ * regular expressions or bit manipulation. Besides the built-in rules (see
+ * {@link TargetRules}), rules are loaded with {@link java.util.ServiceLoader}:
+ * list an implementation in META-INF/services/org.raninline.TargetRule on the
+ * classpath to add an API family.
+ */
+public interface TargetRule {
+    /**
+     * Method name that makes {@link #matches(MethodCallExpr)} called for every
+     * method call.
+     */
+    String ANY_METHOD = "*";
+
+    /**
+     * @return category of the matched statements, logged as "target stmt
+     *         &lt;category&gt;", e.g. "regex"
+     */
+    String category();
+
+    /**
+     * @return names of the methods whose calls may match, or
+     *         {@link #ANY_METHOD}
+     */
+    default Set<String> methodNames() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @param call a call of one of {@link #methodNames()}
+     * @return true if the call is a target
+     */
+    default boolean matches(MethodCallExpr call) {
+        return true;
+    }
+
+    default boolean matches(BinaryExpr expr) {
+        return false;
+    }
+
+    default boolean matches(AssignExpr expr) {
+        return false;
+    }
+}
@@ -0,0 +1,230 @@
+package org.raninline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+/**
+ * The target rules in order: the built-in rules (bit manipulation, regular
+ * expressions, string manipulation and streams), then the rules of the
+ * classpath. The first rule that matches an expression gives its category.
+ *
+ * Method calls are matched through a table from method name to the rules that
+ * may match calls of the method, so a call is only checked against the rules
+ * that care about its name.
+ */
+public class TargetRules {
+    private static TargetRules loaded;
+
+    private final List<TargetRule> rules;
+    private final Map<String, TargetRule[]> rulesByMethodName = new HashMap<>();
+    private final TargetRule[] anyMethodRules;
+
+    public TargetRules(List<TargetRule> rules) {
+        this.rules = rules;
+        List<TargetRule> anyMethod = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (TargetRule rule : rules) {
+            if (rule.methodNames().contains(TargetRule.ANY_METHOD)) {
+                anyMethod.add(rule);
+            }
+            names.addAll(rule.methodNames());
+        }
+        anyMethodRules = anyMethod.toArray(new TargetRule[0]);
+        for (String name : names) {
+            List<TargetRule> nameRules = new ArrayList<>();
+            for (TargetRule rule : rules) {
+                if (rule.methodNames().contains(name) || rule.methodNames().contains(TargetRule.ANY_METHOD)) {
+                    nameRules.add(rule);
+                }
+            }
+            rulesByMethodName.put(name, nameRules.toArray(new TargetRule[0]));
+        }
+    }
+
+    /**
+     * @return the built-in rules followed by the rules found by ServiceLoader,
+     *         loaded once
+     */
+    public static synchronized TargetRules load() {
+        if (loaded == null) {
+            List<TargetRule> rules = builtIn();
+            for (TargetRule rule : ServiceLoader.load(TargetRule.class)) {
+                Log.debug("target rule " + rule.getClass().getName() + " (" + rule.category() + ")");
+                rules.add(rule);
+            }
+            loaded = new TargetRules(rules);
+        }
+        return loaded;
+    }
+
+    public static List<TargetRule> builtIn() {
+        return new ArrayList<>(Arrays.asList(new BitRule(), new RegexRule(), new StringRule(),
+                new StringClassRule(), new StreamOfRule(), new StreamRule()));
+    }
+
+    public List<TargetRule> rules() {
+        return rules;
+    }
+
+    /**
+     * @return description of the rules (classes, categories and method names)
+     *         that changes when the rules do, e.g. to invalidate cached results
+     */
+    public String signature() {
+        StringBuilder sb = new StringBuilder();
+        for (TargetRule rule : rules) {
+            sb.append(rule.getClass().getName()).append(':').append(rule.category()).append(':')
+                    .append(new TreeSet<>(rule.methodNames())).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return category of the first rule that matches the call, or null
+     */
+    public String match(MethodCallExpr call) {
+        TargetRule[] candidates = rulesByMethodName.getOrDefault(call.getNameAsString(), anyMethodRules);
+        for (TargetRule rule : candidates) {
+            if (rule.matches(call)) {
+                return rule.category();
+            }
+        }
+        return null;
+    }
+
+    public String match(BinaryExpr expr) {
+        for (TargetRule rule : rules) {
+            if (rule.matches(expr)) {
+                return rule.category();
+            }
+        }
+        return null;
+    }
+
+    public String match(AssignExpr expr) {
+        for (TargetRule rule : rules) {
+            if (rule.matches(expr)) {
+                return rule.category();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bit manipulation: &amp;, |, ^, &lt;&lt;, &gt;&gt;, &gt;&gt;&gt; and their
+     * compound assignments.
+     */
+    public static class BitRule implements TargetRule {
+        private static final Set<BinaryExpr.Operator> BINARY_OPERATORS = EnumSet.of(BinaryExpr.Operator.BINARY_AND,
+                BinaryExpr.Operator.BINARY_OR, BinaryExpr.Operator.XOR, BinaryExpr.Operator.LEFT_SHIFT,
+                BinaryExpr.Operator.SIGNED_RIGHT_SHIFT, BinaryExpr.Operator.UNSIGNED_RIGHT_SHIFT);
+        private static final Set<AssignExpr.Operator> ASSIGN_OPERATORS = EnumSet.of(AssignExpr.Operator.BINARY_AND,
+                AssignExpr.Operator.BINARY_OR, AssignExpr.Operator.XOR, AssignExpr.Operator.LEFT_SHIFT,
+                AssignExpr.Operator.SIGNED_RIGHT_SHIFT, AssignExpr.Operator.UNSIGNED_RIGHT_SHIFT);
+
+        public String category() {
+            return "bit";
+        }
+
+        public boolean matches(BinaryExpr expr) {
+            return BINARY_OPERATORS.contains(expr.getOperator());
+        }
+
+        public boolean matches(AssignExpr expr) {
+            return ASSIGN_OPERATORS.contains(expr.getOperator());
+        }
+    }
+
+    /**
+     * Regular expressions: x.matches(...), x.find(), x.group(...).
+     */
+    public static class RegexRule implements TargetRule {
+        public String category() {
+            return "regex";
+        }
+
+        public Set<String> methodNames() {
+            return new HashSet<>(Constant.REGEX);
+        }
+
+        public boolean matches(MethodCallExpr call) {
+            return call.getScope().isPresent();
+        }
+    }
+
+    /**
+     * String manipulation: x.split(...), x.substring(...), ...
+     */
+    public static class StringRule implements TargetRule {
+        public String category() {
+            return "string";
+        }
+
+        public Set<String> methodNames() {
+            return new HashSet<>(Constant.STRING_MANIPULATION);
+        }
+
+        public boolean matches(MethodCallExpr call) {
+            return call.getScope().isPresent();
+        }
+    }
+
+    /**
+     * Static methods of String, e.g. String.valueOf(...).
+     */
+    public static class StringClassRule implements TargetRule {
+        public String category() {
+            return "string";
+        }
+
+        public Set<String> methodNames() {
+            return new HashSet<>(Arrays.asList(ANY_METHOD));
+        }
+
+        public boolean matches(MethodCallExpr call) {
+            return call.getScope().isPresent() && call.getScope().get().toString().equals("String");
+        }
+    }
+
+    /**
+     * Stream.of(...).
+     */
+    public static class StreamOfRule implements TargetRule {
+        public String category() {
+            return "stream";
+        }
+
+        public Set<String> methodNames() {
+            return new HashSet<>(Arrays.asList("of"));
+        }
+
+        public boolean matches(MethodCallExpr call) {
+            return call.getScope().isPresent() && call.getScope().get().toString().equals("Stream");
+        }
+    }
+
+    /**
+     * x.stream(), with or without scope.
+     */
+    public static class StreamRule implements TargetRule {
+        public String category() {
+            return "stream";
+        }
+
+        public Set<String> methodNames() {
+            return new HashSet<>(Constant.STREAM);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.raninline;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+/**
+ * Finds the target statements of a source tree without instrumenting it: the
+ * statements that instrument with line number -1 would instrument. Each line
+ * of the manifest is "file;line;categories;method", e.g.
+ * "src/A.java;12;regex,string;A.parse".
+ *
+ * The rows of a file are cached in .inlinegen/scan-cache under the SHA-256 of
+ * its content, {@link Constant#SCAN_VERSION} and the signature of the target
+ * rules, so unchanged files are not parsed again.
+ */
+public class TargetScanner {
+    /**
+     * Scan the Java files under a directory in parallel, on
+     * {@link Constant#constructThreads} workers. A file that fails, also with
+     * an Error such as a StackOverflowError on a deep AST, is reported and
+     * left out of the manifest.
+     *
+     * @param sourceRoot
+     * @param manifestPath
+     * @return number of files that failed
+     * @throws IOException
+     */
+    public static int scan(String sourceRoot, String manifestPath) throws IOException {
+        return scan(sourceRoot, manifestPath,
+                Paths.get(Utils.createDir(Constant.INLINE_GEN_DIR_NAME + "/" + Constant.SCAN_CACHE_DIR_NAME)));
+    }
+
+    /**
+     * @param cacheDir existing directory of the cached rows
+     */
+    static int scan(String sourceRoot, String manifestPath, Path cacheDir) throws IOException {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(sourceRoot))) {
+            files = paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p)).sorted()
+                    .collect(Collectors.toList());
+        }
+        String rulesSignature = TargetRules.load().signature();
+        List<List<String>> rows = new ArrayList<>(Collections.nCopies(files.size(), (List<String>) null));
+        AtomicInteger cached = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            tasks.add(() -> {
+                Path file = files.get(index);
+                try {
+                    byte[] content = Files.readAllBytes(file);
+                    Path cacheFile = cacheDir.resolve(cacheKey(content, rulesSignature));
+                    List<String> fileRows;
+                    if (Files.exists(cacheFile)) {
+                        fileRows = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+                        cached.incrementAndGet();
+                    } else {
+                        fileRows = scan(new String(content, StandardCharsets.UTF_8));
+                        Path tmp = Files.createTempFile(cacheDir, "scan", ".tmp");
+                        Files.write(tmp, fileRows, StandardCharsets.UTF_8);
+                        Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    // each worker sets its own slots, published by the end of the tasks
+                    rows.set(index, fileRows);
+                } catch (Throwable e) {
+                    failed.incrementAndGet();
+                    Log.error("cannot scan " + file + ": " + e);
+                }
+                return null;
+            });
+        }
+        int threads = Math.max(1, Math.min(Constant.constructThreads, tasks.size()));
+        if (threads == 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        failed.incrementAndGet();
+                        Log.error("cannot scan: " + e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        int targets = 0;
+        try (FileWriter writer = new FileWriter(manifestPath)) {
+            for (int i = 0; i < files.size(); i++) {
+                if (rows.get(i) == null) {
+                    continue;
+                }
+                for (String row : rows.get(i)) {
+                    writer.write(files.get(i) + Constant.LOG_SEPARATOR + row + "\n");
+                    targets++;
+                }
+            }
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        Log.info(String.format("scanned %d files (%d cached, %d failed) in %.2fs: %d target statements",
+                files.size(), cached.get(), failed.get(), seconds, targets));
+        return failed.get();
+    }
+
+    /**
+     * @param source content of a Java file
+     * @return "line;categories;method" of the target statements, by line
+     */
+    static List<String> scan(String source) {
+        CompilationUnit cu = Parser.JAVA_PARSER.get().parse(source).getResult()
+                .orElseThrow(() -> new IllegalArgumentException("cannot parse"));
+        List<Map.Entry<Node, List<String>>> targets = TargetClassifier.classify(cu).entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty() && Utils.isTargetCandidate(e.getKey()))
+                .sorted(Comparator.comparing(e -> e.getKey().getRange().get().begin))
+                .collect(Collectors.toList());
+        List<String> rows = new ArrayList<>();
+        for (Map.Entry<Node, List<String>> target : targets) {
+            Set<String> categories = new LinkedHashSet<>(target.getValue());
+            rows.add(target.getKey().getBegin().get().line + Constant.LOG_SEPARATOR + String.join(",", categories)
+                    + Constant.LOG_SEPARATOR + enclosingMethod(target.getKey()));
+        }
+        return rows;
+    }
+
+    /**
+     * @return "Type.method", "Type.&lt;init&gt;" for constructors, instance
+     *         initializers and fields, "Type.&lt;clinit&gt;" for static ones
+     */
+    static String enclosingMethod(Node node) {
+        Optional<Node> member = Optional.empty();
+        for (Node current = node; current != null; current = current.getParentNode().orElse(null)) {
+            if (current instanceof CallableDeclaration || current instanceof InitializerDeclaration
+                    || current instanceof FieldDeclaration) {
+                member = Optional.of(current);
+                break;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        TypeDeclaration<?> typeDeclaration = member.isPresent()
+                ? member.get().findAncestor(TypeDeclaration.class).orElse(null)
+                : null;
+        String type = typeDeclaration == null ? "" : typeDeclaration.getNameAsString();
+        if (!member.isPresent()) {
+            return type;
+        }
+        Node m = member.get();
+        String name;
+        if (m instanceof ConstructorDeclaration) {
+            name = "<init>";
+        } else if (m instanceof CallableDeclaration) {
+            name = ((CallableDeclaration<?>) m).getNameAsString();
+        } else if (m instanceof InitializerDeclaration) {
+            name = ((InitializerDeclaration) m).isStatic() ? "<clinit>" : "<init>";
+        } else {
+            name = ((FieldDeclaration) m).isStatic() ? "<clinit>" : "<init>";
+        }
+        return type + "." + name;
+    }
+
+    private static String cacheKey(byte[] content, String rulesSignature) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(content);
+        digest.update((Constant.LOG_SEPARATOR + Constant.SCAN_VERSION + Constant.LOG_SEPARATOR + rulesSignature)
+                .getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
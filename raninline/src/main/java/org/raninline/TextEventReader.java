@@ -0,0 +1,98 @@
+package org.raninline;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * {@link EventReader} over a legacy {@code ;}-separated log. Each line is split
+ * into at most six fields, and an inline test line ("srcPath;line;test") is
+ * split again into three, so that the test keeps its {@code ;}. Lines that
+ * are neither a known prompt nor an inline test are {@link EventLog#TEXT}
+ * records.
+ */
+public class TextEventReader implements EventReader {
+    private final BufferedReader reader;
+    private String line;
+    private String[] tokens;
+    private byte kind;
+    private int lineNumber;
+
+    public TextEventReader(String logFilePath) throws IOException {
+        this.reader = new BufferedReader(new FileReader(logFilePath));
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+        tokens = line.split(Constant.LOG_SEPARATOR, 6);
+        kind = EventLog.kindOf(tokens[0]);
+        lineNumber = -1;
+        if (kind != EventLog.TEXT) {
+            lineNumber = tokens.length > 2 ? Utils.parseLineNumber(tokens[2]) : -1;
+        } else if (tokens.length >= 3) {
+            int n = Utils.parseLineNumber(tokens[1]);
+            if (n >= 0 && tokens[1].equals(Integer.toString(n))) {
+                kind = EventLog.INLINE_TEST;
+                lineNumber = n;
+                tokens = line.split(Constant.LOG_SEPARATOR, 3);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte kind() {
+        return kind;
+    }
+
+    @Override
+    public int line() {
+        return lineNumber;
+    }
+
+    @Override
+    public String srcPath() {
+        if (kind == EventLog.TEXT) {
+            return "";
+        }
+        return kind == EventLog.INLINE_TEST ? tokens[0] : token(1);
+    }
+
+    @Override
+    public String varType() {
+        return EventLog.hasVariable(kind) ? token(3) : "";
+    }
+
+    @Override
+    public String varName() {
+        return EventLog.hasVariable(kind) ? token(4) : "";
+    }
+
+    @Override
+    public String value() {
+        return EventLog.hasVariable(kind) ? token(5) : "";
+    }
+
+    @Override
+    public String inlineTest() {
+        return kind == EventLog.INLINE_TEST ? tokens[2] : "";
+    }
+
+    @Override
+    public String text() {
+        return kind == EventLog.TEXT ? line : "";
+    }
+
+    private String token(int i) {
+        return i < tokens.length ? tokens[i] : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -3,6 +3,7 @@ package org.raninline;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
 
 import org.apache.commons.text.StringEscapeUtils;
 
@@ -52,25 +53,59 @@ public class Utils {
         if (ctx.lineNumberKnown) {
             return n.getBegin().get().line <= ctx.lineNumber && ctx.lineNumber <= n.getEnd().get().line;
         } else {
-            // check if the node contains assignment operator
-            if (n instanceof ExpressionStmt) {
-                ExpressionStmt exprStmt = (ExpressionStmt) n;
-                Expression expr = exprStmt.getExpression();
-                if (!(expr instanceof AssignExpr) && !(expr instanceof VariableDeclarationExpr)) {
-                    return false;
-                }
+            if (!isAssignment(n)) {
+                return false;
             }
-            IsTargetStmt visitor = new IsTargetStmt();
-            ctx.isTargetStmt = false;
             ctx.lineNumber = n.getBegin().get().line;
-            n.accept(visitor, ctx);
-            if (ctx.isTargetStmt) {
+            if (ctx.targetLines != null && !ctx.targetLines.contains(ctx.lineNumber)) {
+                return false;
+            }
+            List<String> categories = ctx.targetCategories != null ? ctx.targetCategories.get(n) : null;
+            if (categories == null) {
+                // not classified with the whole compilation unit, e.g. a new node
+                categories = TargetClassifier.categories(n);
+            }
+            for (String category : categories) {
+                InstrumentHelper.logVariable("target stmt " + category, ctx.logPath, ctx.srcPath, ctx.lineNumber,
+                        null, "");
+            }
+            if (!categories.isEmpty()) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * @return true if the node may be a target statement in whole-file mode,
+     *         see {@link #isTargetStmt(Node, Context)}
+     */
+    static boolean isTargetCandidate(Node n) {
+        if (!n.getRange().isPresent()) {
+            return false;
+        }
+        if (n.getParentNode().isPresent() && n.getParentNode().get() instanceof LambdaExpr
+                && !(n instanceof BlockStmt)) {
+            return false;
+        }
+        return isAssignment(n);
+    }
+
+    /**
+     * @return false if the node is an expression statement that is not an
+     *         assignment or a variable declaration
+     */
+    private static boolean isAssignment(Node n) {
+        // check if the node contains assignment operator
+        if (n instanceof ExpressionStmt) {
+            Expression expr = ((ExpressionStmt) n).getExpression();
+            if (!(expr instanceof AssignExpr) && !(expr instanceof VariableDeclarationExpr)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static String escapeString(String str) {
         return StringEscapeUtils.escapeJava(str);
     }
@@ -136,7 +171,6 @@ public class Utils {
         if (stmts == null) {
             throw new RuntimeException("parent node is not block statement or switch entry");
         }
-
         // surround with try catch block
         TryStmt tryStmt = new TryStmt();
         BlockStmt tryBlock = new BlockStmt();
@@ -182,4 +216,54 @@ public class Utils {
     public static boolean isConstant(String name) {
         return name.toUpperCase().equals(name);
     }
+
+    /**
+     * 64-bit FNV-1a hash of the given strings followed by the MurmurHash3
+     * finalizer. Never returns 0, which {@link FingerprintSet} reserves for empty
+     * slots.
+     *
+     * @param parts
+     * @return
+     */
+    public static long fingerprint(String... parts) {
+        return finish(hash(0xcbf29ce484222325L, parts));
+    }
+
+    /**
+     * Fingerprint of some bytes (e.g. {@link InlineTest#encode()}) and strings.
+     *
+     * @param bytes
+     * @param parts
+     * @return
+     */
+    public static long fingerprint(byte[] bytes, String... parts) {
+        long h = hash(0xcbf29ce484222325L, parts);
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return finish(h);
+    }
+
+    private static long hash(long h, String... parts) {
+        for (String part : parts) {
+            for (int i = 0; i < part.length(); i++) {
+                h ^= part.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            // separator, so that ("ab", "c") and ("a", "bc") differ
+            h ^= 0xffff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
 }
@@ -0,0 +1,207 @@
+package org.raninline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+/**
+ * Resolves the names that {@link FindVariable} would capture with the symbol
+ * solver: a name is a local, a field or a type, and locals and fields have a
+ * static type. Types are not captured, and neither are values whose static
+ * type does not serialize or only makes sense by identity (threads, streams,
+ * locks, lambdas, see {@link Constant#UNCAPTURED_TYPES}).
+ *
+ * The type solver of a source root (the JDK, the sources under the root and
+ * the jars of {@link Constant#compileClasspath}) is created once and shared by
+ * all files of the project, so a type is only resolved once.
+ */
+public class VariableResolver {
+    public enum Kind {
+        LOCAL, FIELD, TYPE, UNRESOLVED
+    }
+
+    private static final Map<Path, TypeSolver> TYPE_SOLVERS = new HashMap<>();
+
+    private final TypeSolver typeSolver;
+    private final Map<String, Boolean> uncaptured = new HashMap<>(); // qualified type name -> not captured
+
+    VariableResolver(TypeSolver typeSolver) {
+        this.typeSolver = typeSolver;
+    }
+
+    /**
+     * Attach the symbol solver of the project of a source file to its
+     * compilation unit.
+     *
+     * @param cu
+     * @param srcPath
+     * @return resolver of the names in the compilation unit
+     */
+    public static VariableResolver forFile(CompilationUnit cu, String srcPath) {
+        TypeSolver typeSolver = typeSolver(Parser.sourceRoot(srcPath, cu));
+        new JavaSymbolSolver(typeSolver).inject(cu);
+        return new VariableResolver(typeSolver);
+    }
+
+    /**
+     * @param sourceRoot directory of the default package, or null
+     * @return the type solver of the source root, created on first use
+     */
+    static synchronized TypeSolver typeSolver(Path sourceRoot) {
+        TypeSolver typeSolver = TYPE_SOLVERS.get(sourceRoot);
+        if (typeSolver == null) {
+            List<TypeSolver> solvers = new ArrayList<>();
+            solvers.add(new ReflectionTypeSolver());
+            if (sourceRoot != null && Files.isDirectory(sourceRoot)) {
+                solvers.add(new JavaParserTypeSolver(sourceRoot));
+            }
+            String classpath = Constant.compileClasspath == null ? "" : Constant.compileClasspath;
+            for (String entry : classpath.split(File.pathSeparator)) {
+                if (entry.endsWith(".jar") && new File(entry).isFile()) {
+                    try {
+                        solvers.add(new JarTypeSolver(entry));
+                    } catch (IOException e) {
+                        Log.error("cannot read " + entry + ": " + e);
+                    }
+                }
+            }
+            typeSolver = new CombinedTypeSolver(CombinedTypeSolver.ExceptionHandlers.IGNORE_ALL, solvers);
+            TYPE_SOLVERS.put(sourceRoot, typeSolver);
+        }
+        return typeSolver;
+    }
+
+    /**
+     * @param expr name or field access
+     * @return whether it is a local (or parameter), a field or a type
+     */
+    public Kind kind(Expression expr) {
+        ResolvedValueDeclaration declaration = declaration(expr);
+        if (declaration != null) {
+            return declaration.isField() || declaration.isEnumConstant() ? Kind.FIELD : Kind.LOCAL;
+        }
+        return isType(expr) ? Kind.TYPE : Kind.UNRESOLVED;
+    }
+
+    /**
+     * @param expr name or field access
+     * @return true if it is a local or field that can be captured, false if it
+     *         is a type or its static type is not captured, null if it cannot
+     *         be resolved
+     */
+    public Boolean capture(Expression expr) {
+        ResolvedValueDeclaration declaration = declaration(expr);
+        if (declaration == null) {
+            return isType(expr) ? false : null;
+        }
+        return capture(expr.toString(), declaration);
+    }
+
+    /**
+     * @return as {@link #capture(Expression)}, for the declared variable
+     */
+    public Boolean capture(VariableDeclarator declarator) {
+        try {
+            return capture(declarator.getNameAsString(), declarator.resolve());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Boolean capture(String name, ResolvedValueDeclaration declaration) {
+        ResolvedType type;
+        try {
+            type = declaration.getType();
+        } catch (RuntimeException e) {
+            return true;
+        }
+        if (isUncaptured(type)) {
+            Log.debug("not captured " + name + ": " + type.describe());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if values of the static type are not captured: a subtype of
+     *         {@link Constant#UNCAPTURED_TYPES}, a functional interface or an
+     *         array of such
+     */
+    boolean isUncaptured(ResolvedType type) {
+        if (type.isArray()) {
+            return isUncaptured(type.asArrayType().getComponentType());
+        }
+        if (!type.isReferenceType()) {
+            return false;
+        }
+        ResolvedReferenceType referenceType = type.asReferenceType();
+        return uncaptured.computeIfAbsent(referenceType.getQualifiedName(), name -> {
+            if (Constant.UNCAPTURED_TYPES.contains(name)) {
+                return true;
+            }
+            try {
+                ResolvedReferenceTypeDeclaration declaration = referenceType.getTypeDeclaration().orElse(null);
+                if (declaration != null && declaration.isInterface()
+                        && (declaration.hasAnnotation(FunctionalInterface.class.getName())
+                                || declaration.getPackageName().equals("java.util.function"))) {
+                    return true;
+                }
+                for (ResolvedReferenceType ancestor : referenceType.getAllAncestors()) {
+                    if (Constant.UNCAPTURED_TYPES.contains(ancestor.getQualifiedName())) {
+                        return true;
+                    }
+                }
+            } catch (RuntimeException e) {
+                Log.debug("cannot resolve the ancestors of " + name + ": " + e);
+            }
+            return false;
+        });
+    }
+
+    private ResolvedValueDeclaration declaration(Expression expr) {
+        try {
+            if (expr.isNameExpr()) {
+                return expr.asNameExpr().resolve();
+            } else if (expr.isFieldAccessExpr()) {
+                return expr.asFieldAccessExpr().resolve();
+            }
+        } catch (RuntimeException e) {
+            // not a value, or not resolvable with the known types
+        }
+        return null;
+    }
+
+    private boolean isType(Expression expr) {
+        try {
+            if (expr.isNameExpr()) {
+                return JavaParserFacade.get(typeSolver).getSymbolSolver()
+                        .solveType(expr.asNameExpr().getNameAsString(), expr).isSolved();
+            } else if (expr.isFieldAccessExpr()) {
+                return typeSolver.tryToSolveType(expr.toString()).isSolved();
+            }
+        } catch (RuntimeException e) {
+            // not a type
+        }
+        return false;
+    }
+}
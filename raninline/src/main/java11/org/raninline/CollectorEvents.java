@@ -0,0 +1,109 @@
+package org.raninline;
+
+import java.nio.charset.StandardCharsets;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the phases of {@link InstrumentHelper}, the
+ * JDK 11 version of src/main/java/org/raninline/CollectorEvents.java, packaged
+ * in META-INF/versions/11 of the multi-release jar. Each call commits a
+ * {@link CollectorPhase} event if a recording enabled it.
+ */
+final class CollectorEvents {
+    @Name("org.raninline.CollectorPhase")
+    @Label("Collector Phase")
+    @Description("A phase of the inline test collector for a target statement")
+    @Category("raninline")
+    @Enabled(false)
+    @StackTrace(false)
+    static class CollectorPhase extends Event {
+        @Label("Target")
+        @Description("srcPath:line of the target statement, or the file of a flush")
+        String target;
+
+        @Label("Phase")
+        @Description("probe, capture, serialization, coverage, decision or flush")
+        String phase;
+
+        @Label("Elapsed")
+        @Description("Time spent in the phase, ending when the event is committed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Bytes Serialized")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+
+        @Label("Accepted")
+        boolean accepted;
+
+        @Label("Inline Tests")
+        int inlineTests;
+    }
+
+    private CollectorEvents() {
+    }
+
+    private static void commit(CollectorPhase event, String phase, String target, long start, long bytes,
+            boolean accepted, int inlineTests) {
+        event.elapsed = start == 0 ? 0 : System.nanoTime() - start;
+        event.phase = phase;
+        event.target = target;
+        event.bytes = bytes;
+        event.accepted = accepted;
+        event.inlineTests = inlineTests;
+        event.commit();
+    }
+
+    static void probe(String target, String info) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "probe " + info, target, 0, 0, false, 0);
+        }
+    }
+
+    static void capture(String target, long start) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "capture", target, start, 0, false, 0);
+        }
+    }
+
+    static void serialization(String target, long start, String serialized) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "serialization", target, start, serialized.getBytes(StandardCharsets.UTF_8).length,
+                    false, 0);
+        }
+    }
+
+    static void coverage(String target, long start) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "coverage", target, start, 0, false, 0);
+        }
+    }
+
+    static void decision(String target, long start, boolean accepted) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "decision", target, start, 0, accepted, 0);
+        }
+    }
+
+    static void flush(String destPath, long start, int inlineTests) {
+        CollectorPhase event = new CollectorPhase();
+        if (event.isEnabled()) {
+            commit(event, "flush", destPath, start, 0, false, inlineTests);
+        }
+    }
+}
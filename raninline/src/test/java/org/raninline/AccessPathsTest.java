@@ -0,0 +1,36 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+
+public class AccessPathsTest {
+    @Test
+    public void testMinimize() {
+        CompilationUnit cu = StaticJavaParser.parse("class A {\n" + "    void m(int x) {\n"
+                + "        boolean a = config.keep && config.x;\n"
+                + "        int b = config.x & config.inner.y & config.inner.isOn();\n"
+                + "        int c = this.config.y & config.isOn();\n" + "        x |= this.x;\n" + "    }\n" + "}\n");
+        assertEquals(new HashSet<>(Arrays.asList("config.keep", "config.x")), capture(cu, 0));
+        assertEquals(new HashSet<>(Arrays.asList("config.x", "config.inner")), capture(cu, 1));
+        assertEquals(new HashSet<>(Arrays.asList("config")), capture(cu, 2));
+        // the parameter x hides the field x
+        assertEquals(new HashSet<>(Arrays.asList("x", "this.x")), capture(cu, 3));
+    }
+
+    private static Set<String> capture(CompilationUnit cu, int index) {
+        ExpressionStmt stmt = cu.findAll(ExpressionStmt.class).get(index);
+        Context ctx = new Context();
+        stmt.accept(new FindVariable(), ctx);
+        AccessPaths.minimize(ctx.logVariablesBefore, stmt);
+        return ctx.logVariablesBefore;
+    }
+}
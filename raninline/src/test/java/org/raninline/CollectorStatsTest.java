@@ -0,0 +1,104 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+public class CollectorStatsTest {
+    @Test
+    public void testHistogram() {
+        CollectorStats.Histogram histogram = new CollectorStats.Histogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos);
+        }
+        // a percentile is at most a quarter of its value too high
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 625, String.valueOf(p50));
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000, String.valueOf(p99));
+        assertEquals(1000, histogram.percentile(1));
+        for (int bucket = 0; bucket < 200; bucket++) {
+            assertEquals(bucket, CollectorStats.Histogram.bucket(CollectorStats.Histogram.upperBound(bucket)));
+            assertEquals(bucket + 1, CollectorStats.Histogram.bucket(CollectorStats.Histogram.upperBound(bucket) + 1));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSummary() throws Exception {
+        CollectorStats stats = new CollectorStats();
+        stats.recordExecution("A.java:3");
+        stats.recordExecution("A.java:3");
+        stats.record(CollectorStats.Phase.SERIALIZE, "A.java:3", System.nanoTime());
+        stats.recordInlineTest("A.java:3", true);
+        stats.recordInlineTest("A.java:3", false);
+        stats.recordCall("A.java:3", System.nanoTime() - 1000000);
+        stats.recordExecution("B.java:5");
+        stats.recordCall("B.java:5", System.nanoTime() - 5000000);
+        stats.record(CollectorStats.Phase.FLUSH, null, System.nanoTime());
+        assertEquals(3, stats.getExecutions());
+        assertEquals(1, stats.getAcceptedInlineTests());
+        assertTrue(stats.getSlowestTargets()[0].startsWith("B.java:5 "));
+
+        Map<String, Object> summary = new Gson().fromJson(stats.getSummary(), Map.class);
+        assertEquals(2.0, summary.get("inlineTests"));
+        Map<String, Object> serialize = (Map<String, Object>) ((Map<String, Object>) summary.get("phases"))
+                .get("SERIALIZE");
+        assertEquals(1.0, serialize.get("count"));
+        List<Map<String, Object>> targets = (List<Map<String, Object>>) summary.get("targets");
+        assertEquals("B.java:5", targets.get(0).get("target"));
+        assertEquals(1.0, targets.get(1).get("acceptedInlineTests"));
+
+        CollectorStats.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(new ObjectName(CollectorStats.OBJECT_NAME)));
+        assertEquals(CollectorStats.INSTANCE.getExecutions(),
+                server.getAttribute(new ObjectName(CollectorStats.OBJECT_NAME), "Executions"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteSummaryAddsUpJvms() throws Exception {
+        Path path = Files.createTempDirectory("raninline").resolve("collector-stats.json");
+        // one instance per forked JVM
+        CollectorStats first = new CollectorStats();
+        first.recordExecution("A.java:3");
+        first.recordCall("A.java:3", System.nanoTime() - 1000000);
+        first.record(CollectorStats.Phase.FLUSH, null, System.nanoTime());
+        CollectorStats second = new CollectorStats();
+        second.recordExecution("A.java:3");
+        second.recordExecution("B.java:5");
+        second.recordInlineTest("B.java:5", true);
+        second.recordCall("A.java:3", System.nanoTime() - 5000000);
+        first.writeSummary(path);
+        second.writeSummary(path);
+
+        Map<String, Object> summary = new Gson()
+                .fromJson(new String(Files.readAllBytes(path), StandardCharsets.UTF_8), Map.class);
+        assertEquals(3.0, summary.get("executions"));
+        assertEquals(1.0, summary.get("acceptedInlineTests"));
+        Map<String, Object> flush = (Map<String, Object>) ((Map<String, Object>) summary.get("phases"))
+                .get("FLUSH");
+        assertEquals(1.0, flush.get("count"));
+        List<Map<String, Object>> targets = (List<Map<String, Object>>) summary.get("targets");
+        assertEquals("A.java:3", targets.get(0).get("target"));
+        Map<String, Object> calls = (Map<String, Object>) targets.get(0).get("calls");
+        assertEquals(2.0, calls.get("count"));
+        // the percentiles come from the buckets of both JVMs
+        assertTrue((Double) calls.get("p99Nanos") >= 5000000, String.valueOf(calls.get("p99Nanos")));
+        assertTrue((Double) calls.get("p50Nanos") < 5000000, String.valueOf(calls.get("p50Nanos")));
+    }
+}
@@ -1,17 +1,26 @@
 package org.raninline;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.github.javaparser.ast.stmt.Statement;
+
 public class ConstructTest {
 
     @BeforeAll
@@ -216,4 +225,125 @@ public class ConstructTest {
             e.printStackTrace();
         }        
     }
+
+    @Test
+    public void testConstructInParallel() throws IOException {
+        Map<String, Map<Integer, Set<String>>> inlineTestMap = new HashMap<>();
+        for (int i = 1; i <= 4; i++) {
+            inlineTestMap.putAll(Parser.readInlineTests("src/test/resources/construct/inlinetest-log" + i + ".txt"));
+        }
+        Path sequentialDir = Files.createTempDirectory("raninline");
+        Path parallelDir = Files.createTempDirectory("raninline");
+        Map<String, Map<Integer, Set<String>>> sequential = new HashMap<>();
+        Map<String, Map<Integer, Set<String>>> parallel = new HashMap<>();
+        for (String srcPath : inlineTestMap.keySet()) {
+            Path original = Paths.get(srcPath + "1");
+            String fileName = original.getFileName().toString().replace(".java1", ".java");
+            Files.copy(original, sequentialDir.resolve(fileName));
+            Files.copy(original, parallelDir.resolve(fileName));
+            sequential.put(sequentialDir.resolve(fileName).toString(), inlineTestMap.get(srcPath));
+            parallel.put(parallelDir.resolve(fileName).toString(), inlineTestMap.get(srcPath));
+        }
+        // a missing file is reported and does not stop the other files
+        parallel.put(parallelDir.resolve("Missing.java").toString(), inlineTestMap.values().iterator().next());
+        int threads = Constant.constructThreads;
+        try {
+            Constant.constructThreads = 1;
+            assertEquals(0, Parser.constructInlineTests(sequential));
+            Constant.constructThreads = 4;
+            assertEquals(1, Parser.constructInlineTests(parallel));
+        } finally {
+            Constant.constructThreads = threads;
+        }
+        for (String srcPath : sequential.keySet()) {
+            Path fileName = Paths.get(srcPath).getFileName();
+            assertEquals(new String(Files.readAllBytes(Paths.get(srcPath))),
+                    new String(Files.readAllBytes(parallelDir.resolve(fileName))));
+            Files.delete(Paths.get(srcPath));
+            Files.delete(parallelDir.resolve(fileName));
+        }
+        Files.delete(sequentialDir);
+        Files.delete(parallelDir);
+    }
+
+    @Test
+    public void testParseInlineTestsInBlock() {
+        InlineTestConstructor constructor = new InlineTestConstructor();
+        Set<String> inlineTests = new LinkedHashSet<>();
+        inlineTests.add("new Here(\"Unit\", 3).given(a, 1).checkEq(b, 2);");
+        inlineTests.add("new Here(\"Unit\", 3).given(a, 2).checkEq(b, 3);");
+        assertEquals(2, constructor.parseInlineTests(inlineTests).size());
+        // malformed tests make the block parse fail and are skipped one by one
+        inlineTests.add("new Here(\"Unit\", 3).given(a, ;");
+        inlineTests.add("new Here(\"Unit\", 3).given(a, 3).checkEq(b, 4);;");
+        List<Statement> parsed = constructor.parseInlineTests(inlineTests);
+        assertEquals(2, parsed.size());
+        assertEquals("new Here(\"Unit\", 3).given(a, 2).checkEq(b, 3);", parsed.get(1).toString());
+        // cached statements are copied for every insertion
+        assertNotSame(parsed.get(0), constructor.parseInlineTests(inlineTests).get(0));
+    }
+
+    @Test
+    public void testConstructInThenStmtNotBlock() throws IOException {
+        Path srcPath = Files.createTempFile("raninline", ".java");
+        Files.write(srcPath, ("public class T {\n" + "    void m(int a, int b) {\n" + "        if (a > 0)\n"
+                + "            b = a + 1;\n" + "    }\n" + "}\n").getBytes());
+        Context ctx = new Context();
+        Set<String> inlineTests = new LinkedHashSet<>();
+        inlineTests.add("new Here(\"Unit\", 4).given(a, 1).checkEq(b, 2);");
+        ctx.inlineTests.put(4, inlineTests);
+        Parser.constructInlineTestHelper(srcPath.toString(), ctx);
+        String constructed = new String(Files.readAllBytes(srcPath));
+        assertTrue(constructed.contains("new Here(\"Unit\", 4).given(a, 1).checkEq(b, 2);"), constructed);
+        Files.delete(srcPath);
+    }
+
+    @Test
+    public void testConstructCountsErrors() throws IOException {
+        Path dir = Files.createTempDirectory("raninline");
+        // nesting deep enough for JavaParser to overflow the stack
+        StringBuilder expr = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            expr.append('(');
+        }
+        expr.append('1');
+        for (int i = 0; i < 100000; i++) {
+            expr.append(')');
+        }
+        Path deep = dir.resolve("Deep.java");
+        Files.write(deep, ("public class Deep {\n    int m() {\n        int a = " + expr + ";\n        return a;\n"
+                + "    }\n}\n").getBytes());
+        Map<Integer, Set<String>> lineMap = new HashMap<>();
+        lineMap.put(3, new LinkedHashSet<>(Arrays.asList("new Here(\"Unit\", 3).checkEq(a, 1);")));
+        Map<String, Map<Integer, Set<String>>> fileToInlineTests = new HashMap<>();
+        fileToInlineTests.put(deep.toString(), lineMap);
+        fileToInlineTests.put(dir.resolve("Missing.java").toString(), lineMap);
+        int threads = Constant.constructThreads;
+        try {
+            Constant.constructThreads = 2;
+            assertEquals(2, Parser.constructInlineTests(fileToInlineTests));
+        } finally {
+            Constant.constructThreads = threads;
+        }
+        Files.delete(deep);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testConstructInThenStmtSameLine() throws IOException {
+        Path srcPath = Files.createTempFile("raninline", ".java");
+        Files.write(srcPath, ("public class T {\n" + "    void m(int a, int b) {\n" + "        if (a > 0) b = a + 1;\n"
+                + "    }\n" + "}\n").getBytes());
+        Context ctx = new Context();
+        Set<String> inlineTests = new LinkedHashSet<>();
+        inlineTests.add("new Here(\"Unit\", 3).given(a, 1).checkEq(b, 2);");
+        ctx.inlineTests.put(3, inlineTests);
+        Parser.constructInlineTestHelper(srcPath.toString(), ctx);
+        String constructed = new String(Files.readAllBytes(srcPath));
+        // the if takes the test, at the beginning of its then block
+        String inlineTest = "new Here(\"Unit\", 3).given(a, 1).checkEq(b, 2);";
+        assertEquals(constructed.indexOf(inlineTest), constructed.lastIndexOf(inlineTest), constructed);
+        assertTrue(constructed.indexOf(inlineTest) < constructed.indexOf("b = a + 1;"), constructed);
+        Files.delete(srcPath);
+    }
 }
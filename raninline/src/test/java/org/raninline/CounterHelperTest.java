@@ -0,0 +1,54 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CounterHelperTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSave() throws IOException {
+        CounterHelper.COUNTERS.clear();
+        for (int i = 0; i < 3; i++) {
+            CounterHelper.hit("A.java:3");
+        }
+        CounterHelper.hit("B.java:7");
+        Path histogram = tempDir.resolve(Constant.TARGET_STMTS_HIT_COUNTER_FILE_NAME);
+        CounterHelper.save(histogram);
+        // the counts of another JVM are added
+        CounterHelper.save(histogram);
+        CounterHelper.COUNTERS.clear();
+        assertEquals(Arrays.asList("A.java:3;6", "B.java:7;2"), Files.readAllLines(histogram));
+        assertEquals(Long.valueOf(6), CounterHelper.read(histogram).get("A.java:3"));
+    }
+
+    @Test
+    public void testCountOnly() throws IOException {
+        Path src = tempDir.resolve("C.java");
+        Files.write(src, Arrays.asList("public class C {", "    int m(int x) {", "        int y = x + 1;",
+                "        if (y > 2) {", "            y = y * 2;", "        }", "        return y;", "    }", "}"));
+        boolean countOnly = Constant.countOnly;
+        Constant.countOnly = true;
+        try {
+            Parser.instrument(src.toString(), "3", tempDir + "/log.txt", tempDir + "/it.txt", null);
+        } finally {
+            Constant.countOnly = countOnly;
+        }
+        List<String> lines = Files.readAllLines(src, StandardCharsets.UTF_8);
+        String source = String.join("\n", lines);
+        assertTrue(source.contains(Constant.COUNTER_CLASS_NAME + ".hit(\"" + src + ":3\");"), source);
+        assertFalse(source.contains(Constant.LOG_CLASS_NAME), source);
+    }
+}
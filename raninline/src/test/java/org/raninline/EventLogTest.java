@@ -0,0 +1,80 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class EventLogTest {
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path path = Files.createTempFile("raninline", ".bin");
+        Files.delete(path);
+        try (EventLogWriter writer = EventLogWriter.open(path.toString())) {
+            writer.writeText("Unit");
+            writer.writePrompt(EventLog.START, "A.java", 3);
+            writer.writeVariable(EventLog.BEFORE, "A.java", 3, "String", "s", "a;b\nc");
+        }
+        try (EventLogWriter writer = EventLogWriter.open(path.toString())) {
+            writer.writeInlineTest("A.java", 3, "new Here(\"Unit\", 3).given(s, \"a;b\").checkEq(t, 1);");
+        }
+        assertTrue(EventLog.isBinary(path.toString()));
+        try (EventLogReader reader = new EventLogReader(path.toString())) {
+            assertTrue(reader.next());
+            assertEquals(EventLog.TEXT, reader.kind());
+            assertEquals("Unit", reader.text());
+            assertTrue(reader.next());
+            assertEquals(EventLog.START, reader.kind());
+            assertEquals(3, reader.line());
+            assertTrue(reader.next());
+            assertEquals("a;b\nc", reader.value());
+            assertEquals("s", reader.varName());
+            assertTrue(reader.next());
+            assertEquals(EventLog.INLINE_TEST, reader.kind());
+            assertEquals("new Here(\"Unit\", 3).given(s, \"a;b\").checkEq(t, 1);", reader.inlineTest());
+            assertFalse(reader.next());
+        }
+        Files.delete(path);
+    }
+
+    @Test
+    public void testConvertRoundTrip() throws IOException {
+        String[] logs = { "src/test/resources/construct/raninline-log-2.txt",
+                "src/test/resources/construct/inlinetest-log1.txt" };
+        for (String log : logs) {
+            Path bin = Files.createTempFile("raninline", ".bin");
+            Path txt = Files.createTempFile("raninline", ".txt");
+            EventLog.convertToBinary(log, bin.toString());
+            EventLog.convertToText(bin.toString(), txt.toString());
+            assertEquals(Files.readAllLines(Paths.get(log)), Files.readAllLines(txt));
+            Files.delete(bin);
+            Files.delete(txt);
+        }
+    }
+
+    @Test
+    public void testParseBinaryLog() throws IOException {
+        Path bin = Files.createTempFile("raninline", ".bin");
+        EventLog.convertToBinary("src/test/resources/construct/raninline-log-2.txt", bin.toString());
+        Context ctx = new Context();
+        ctx.lineNumberKnown = true;
+        ctx.lineNumber = 139;
+        ctx.srcPath = "src/test/resources/construct/EmailRecipientUtils.java";
+        Parser.parseLog(bin.toString(), ctx);
+        assertEquals(2, ctx.inlineTests.get(ctx.lineNumber).size());
+
+        EventLog.convertToBinary("src/test/resources/construct/inlinetest-log1.txt", bin.toString());
+        Map<String, Map<Integer, Set<String>>> text = Parser
+                .readInlineTests("src/test/resources/construct/inlinetest-log1.txt");
+        assertEquals(text, Parser.readInlineTests(bin.toString()));
+        Files.delete(bin);
+    }
+}
@@ -0,0 +1,94 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FingerprintSetTest {
+    @Test
+    public void testAddAndGrow() {
+        FingerprintSet set = new FingerprintSet(16);
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(set.add(i * 31));
+        }
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(set.contains(i * 31));
+            assertFalse(set.add(i * 31));
+        }
+        assertFalse(set.contains(7));
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    public void testPersistAcrossRuns() throws IOException {
+        Path path = Files.createTempFile("raninline", ".fp");
+        Files.delete(path);
+        try (FingerprintSet set = FingerprintSet.open(path)) {
+            for (long i = 1; i <= 5000; i++) {
+                set.add(Utils.fingerprint(Long.toString(i)));
+            }
+        }
+        try (FingerprintSet set = FingerprintSet.open(path)) {
+            assertEquals(5000, set.size());
+            assertTrue(set.contains(Utils.fingerprint("4999")));
+            assertFalse(set.add(Utils.fingerprint("1")));
+            assertTrue(set.add(Utils.fingerprint("5001")));
+        }
+        Files.delete(path);
+    }
+
+    @Test
+    public void testInlineTestFingerprint() {
+        InlineTest a = new InlineTest();
+        a.srcPath = "A.java";
+        a.targetStmtLineNo = 3;
+        a.givens.add(InlineTestStep.given("x", InlineTestValue.of(InlineTestValue.Kind.INT, "1")));
+        a.assertions.add(InlineTestStep.checkEq("y", InlineTestValue.of(InlineTestValue.Kind.INT, "2")));
+        InlineTest b = new InlineTest();
+        b.srcPath = "A.java";
+        b.targetStmtLineNo = 3;
+        b.givens.add(InlineTestStep.given("x", InlineTestValue.of(InlineTestValue.Kind.INT, "1")));
+        b.assertions.add(InlineTestStep.checkEq("y", InlineTestValue.of(InlineTestValue.Kind.INT, "2")));
+        assertEquals(a.fingerprint(), b.fingerprint());
+        assertEquals(a, b);
+        b = new InlineTest();
+        b.srcPath = "A.java";
+        b.targetStmtLineNo = 3;
+        b.givens.add(InlineTestStep.given("x", InlineTestValue.of(InlineTestValue.Kind.INT, "1")));
+        b.assertions.add(InlineTestStep.checkEq("y", InlineTestValue.of(InlineTestValue.Kind.INT, "3")));
+        assertNotEquals(a.fingerprint(), b.fingerprint());
+    }
+
+    @Test
+    public void testFingerprintsPersistedOnFlush() throws IOException {
+        Path fingerprintPath = Files.createTempFile("raninline", ".fp");
+        Files.delete(fingerprintPath);
+        Path logPath = Files.createTempFile("raninline", ".txt");
+        InlineTest inlineTest = new InlineTest();
+        inlineTest.srcPath = "A.java";
+        inlineTest.targetStmtLineNo = 3;
+        inlineTest.givens.add(InlineTestStep.given("x", InlineTestValue.of(InlineTestValue.Kind.INT, "1")));
+        inlineTest.assertions.add(InlineTestStep.checkEq("y", InlineTestValue.of(InlineTestValue.Kind.INT, "2")));
+        List<InlineTest> buffer = new ArrayList<>();
+        buffer.add(inlineTest);
+        try (FingerprintSet set = FingerprintSet.open(fingerprintPath)) {
+            // a buffered test is not persisted until it is written
+            assertFalse(set.contains(inlineTest.fingerprint()));
+            InstrumentHelper.flushInlineTests(buffer, logPath.toString(), set);
+            assertTrue(set.contains(inlineTest.fingerprint()));
+            assertTrue(buffer.isEmpty());
+        }
+        assertEquals(1, Files.readAllLines(logPath).size());
+        Files.delete(fingerprintPath);
+        Files.delete(logPath);
+    }
+}
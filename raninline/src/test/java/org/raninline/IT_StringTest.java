@@ -0,0 +1,117 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class IT_StringTest {
+    @Test
+    public void testReplace() {
+        String[] inputs = { "", "a", "abcabc", "xyz", "a.b.c", "$1\\" };
+        for (String s : inputs) {
+            assertEquals(s.replace('a', 'z'), new IT_String(s).replace('a', 'z'));
+            assertEquals(s.replace("bc", "$1\\"), new IT_String(s).replace("bc", "$1\\"));
+            assertEquals(s.replace(".", ""), new IT_String(s).replace(".", ""));
+            assertEquals(s.replace("", "-"), new IT_String(s).replace("", "-"));
+        }
+        String s = "abc";
+        assertSame(s, new IT_String(s).replace('x', 'y'));
+        assertSame(s, new IT_String(s).replace('a', 'a'));
+    }
+
+    @Test
+    public void testReplaceAll() {
+        Pattern pattern = Pattern.compile("(?<word>[a-z])([0-9]+)");
+        String text = "a12 b3 c";
+        for (String replacement : new String[] { "$2$1", "${word}", "\\$x", "$12", "[$0]" }) {
+            assertEquals(pattern.matcher(text).replaceAll(replacement),
+                    new IT_Matcher(pattern.matcher(text), text).replaceAll(replacement));
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        String[] inputs = { "", ",", "a,b,,c,,", "a|b", "a1b22c", "abc" };
+        for (String s : inputs) {
+            for (String regex : new String[] { ",", "\\|", "[0-9]+", "|", "" }) {
+                for (int limit : new int[] { -1, 0, 1, 2 }) {
+                    assertArrayEquals(s.split(regex, limit), new IT_String(s).split(regex, limit));
+                }
+                assertArrayEquals(s.split(regex), new IT_String(s).split(regex));
+            }
+        }
+    }
+
+    @Test
+    public void testSubstringIndexOf() {
+        String s = "abcabc";
+        for (int i = -1; i <= s.length() + 1; i++) {
+            assertEquals(s.indexOf('c', i), new IT_String(s).indexOf('c', i));
+            assertEquals(s.indexOf("bc", i), new IT_String(s).indexOf("bc", i));
+            assertEquals(s.indexOf("", i), new IT_String(s).indexOf("", i));
+            if (i >= 0 && i <= s.length()) {
+                assertEquals(s.substring(i), new IT_String(s).substring(i));
+                assertEquals(s.substring(0, i), new IT_String(s).substring(0, i));
+            }
+        }
+        assertEquals(s.indexOf("cab"), new IT_String(s).indexOf("cab"));
+        assertEquals(s.indexOf("abcd"), new IT_String(s).indexOf("abcd"));
+        assertSame(s, new IT_String(s).substring(0));
+    }
+
+    @Test
+    public void testFormatAndMatcher() {
+        for (String format : new String[] { "%d%%", "%-5s|%n", "%08.3f", "%tY", "%c %b", "100%" }) {
+            Object arg = format.contains("t") ? new java.util.Date(0) : format.contains("f") ? (Object) 1.5 : 'x';
+            String expected;
+            try {
+                expected = String.format(format, format.contains("d") ? 7 : arg, true);
+            } catch (RuntimeException e) {
+                expected = e.getClass().getName();
+            }
+            String actual;
+            try {
+                actual = IT_String.format(format, format.contains("d") ? 7 : arg, true);
+            } catch (RuntimeException e) {
+                actual = e.getClass().getName();
+            }
+            assertEquals(expected, actual);
+        }
+        Matcher expected = Pattern.compile("([a-z])[0-9]").matcher("a1 b2");
+        IT_Matcher actual = new IT_Matcher(Pattern.compile("([a-z])[0-9]").matcher("a1 b2"));
+        while (expected.find()) {
+            assertEquals(true, actual.find());
+            assertEquals(expected.group(), actual.group());
+            assertEquals(expected.group(1), actual.group(1));
+        }
+        assertEquals(false, actual.find());
+        // the input is unknown
+        assertThrows(IllegalStateException.class, () -> actual.replaceAll("$1"));
+        assertEquals(Pattern.matches("a+b", "aab"), IT_Matcher.matches("a+b", "aab"));
+        assertEquals(new IT_String("ab").matches("a"), "ab".matches("a"));
+    }
+
+    @Test
+    public void testStream() {
+        List<String> list = Arrays.asList("a", "", "bc", "d", "");
+        assertEquals(list.stream().filter(s -> !s.isEmpty()).map(String::length).collect(Collectors.toList()),
+                new IT_Stream<>(list).filter(s -> !s.isEmpty()).map(String::length).collect(Collectors.toList()));
+        assertEquals(list.stream().filter(String::isEmpty).count(),
+                new IT_Stream<>(list).filter(String::isEmpty).count());
+        assertEquals(list.stream().anyMatch(s -> s.length() > 1), new IT_Stream<>(list).anyMatch(s -> s.length() > 1));
+        assertEquals(list.stream().allMatch(s -> s.length() > 1), new IT_Stream<>(list).allMatch(s -> s.length() > 1));
+        assertEquals(list.stream().noneMatch(String::isEmpty), new IT_Stream<>(list).noneMatch(String::isEmpty));
+        assertEquals(list.stream().map(s -> s + "!").findFirst(), new IT_Stream<>(list).map(s -> s + "!").findFirst());
+        assertEquals(list.stream().collect(Collectors.joining(",")),
+                new IT_Stream<>(list).collect(Collectors.joining(",")));
+    }
+}
@@ -0,0 +1,91 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class InlineTestLogParserTest {
+    /**
+     * The split-based parser that {@link InlineTestLogParser} replaces.
+     */
+    private static Map<String, Map<Integer, Set<String>>> legacyRead(String logFilePath) throws IOException {
+        Map<String, Map<Integer, Set<String>>> inlineTestMap = new HashMap<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(logFilePath))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                String[] tokens = line.split(";");
+                if (tokens.length < 3) {
+                    continue;
+                }
+                int lineNumber;
+                try {
+                    lineNumber = Integer.parseInt(tokens[1]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                StringBuilder inlineTestSB = new StringBuilder();
+                for (int i = 2; i < tokens.length; i++) {
+                    inlineTestSB.append(tokens[i]);
+                    inlineTestSB.append(";");
+                }
+                inlineTestMap.computeIfAbsent(tokens[0], k -> new HashMap<>())
+                        .computeIfAbsent(lineNumber, k -> new HashSet<>()).add(inlineTestSB.toString());
+            }
+        }
+        return inlineTestMap;
+    }
+
+    @Test
+    public void testSameAsLegacyParser() throws IOException {
+        Path log = Files.createTempFile("raninline", ".txt");
+        try (FileWriter writer = new FileWriter(log.toFile())) {
+            writer.write("A.java;3;new Here(\"Unit\", 3).given(s, \"a;b\").checkEq(t, 1);\n");
+            writer.write("A.java;3;new Here(\"Unit\", 3).given(s, \";;\").checkEq(t, 2);;;\n");
+            writer.write("A.java;4;new Here(\"Unit\", 4).given(s, \"ä\").checkEq(t, 3)\r\n");
+            writer.write("A.java;x;new Here();\n");
+            writer.write("A.java;5;\n");
+            writer.write("B.java;-1;;x\n");
+            writer.write("Unit\n");
+            for (int i = 0; i < 30000; i++) {
+                writer.write("src/C" + (i % 7) + ".java;" + (i % 100) + ";new Here(\"Unit\", " + (i % 100)
+                        + ").given(x, " + i + ").checkEq(y, \"" + i + ";\");\n");
+            }
+            writer.write("D.java;1;new Here().checkEq(y, 1);");
+        }
+        assertEquals(legacyRead(log.toString()), Parser.readInlineTests(log.toString()));
+        assertEquals(1, Parser.readInlineTests(log.toString(), "A.java", 4).get("A.java").size());
+        // small chunks, so that lines are split across chunk boundaries
+        List<Map<String, Set<String>>> chunks = InlineTestLogParser.parse(log.toString(), 4096, HashMap::new,
+                (map, record) -> map.computeIfAbsent(record.srcPath + ":" + record.line, k -> new HashSet<>())
+                        .add(record.test()));
+        Map<String, Set<String>> merged = new HashMap<>();
+        for (Map<String, Set<String>> chunk : chunks) {
+            chunk.forEach((k, v) -> merged.computeIfAbsent(k, x -> new HashSet<>()).addAll(v));
+        }
+        Map<String, Set<String>> expected = new HashMap<>();
+        legacyRead(log.toString()).forEach((src, lines) -> lines
+                .forEach((line, tests) -> expected.put(src + ":" + line, tests)));
+        assertEquals(expected, merged);
+        Files.delete(log);
+    }
+
+    @Test
+    public void testResourceLogs() throws IOException {
+        for (int i = 1; i <= 4; i++) {
+            String log = "src/test/resources/construct/inlinetest-log" + i + ".txt";
+            assertEquals(legacyRead(log), Parser.readInlineTests(log));
+        }
+    }
+}
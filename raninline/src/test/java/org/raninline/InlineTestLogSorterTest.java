@@ -0,0 +1,110 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class InlineTestLogSorterTest {
+    @Test
+    public void testSameAsInMemoryRead() throws IOException {
+        Path dir = Files.createTempDirectory("raninline");
+        Path log = dir.resolve("inlinetest-log.txt");
+        try (FileWriter writer = new FileWriter(log.toFile())) {
+            for (int i = 0; i < 5000; i++) {
+                writer.write("src/C" + (i * 7 % 13) + ".java;" + (i % 40) + ";new Here(\"Unit\", " + (i % 40)
+                        + ").given(x, " + (i % 300) + ").checkEq(y, " + (i % 300) + ");\n");
+            }
+        }
+        Path bin = dir.resolve("inlinetest-log.bin");
+        EventLog.convertToBinary(log.toString(), bin.toString());
+        for (Path path : new Path[] { log, bin }) {
+            Map<String, Map<Integer, Set<String>>> sorted = new HashMap<>();
+            List<String> order = new ArrayList<>();
+            // small runs, so that there are many of them to merge
+            InlineTestLogSorter.forEachFile(path.toString(), 16 << 10, (srcPath, lineMap, typed) -> {
+                order.add(srcPath);
+                sorted.put(srcPath, lineMap);
+            });
+            assertEquals(Parser.readInlineTests(path.toString()), sorted);
+            assertEquals(order.stream().sorted().distinct().collect(Collectors.toList()), order);
+        }
+        Files.delete(log);
+        Files.delete(bin);
+        // temporary runs are removed
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() == 0);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testBoundedFanIn() throws IOException {
+        Path dir = Files.createTempDirectory("raninline");
+        Path log = dir.resolve("inlinetest-log.bin");
+        try (EventLogWriter writer = EventLogWriter.open(log.toString())) {
+            for (int i = 0; i < 5000; i++) {
+                writer.writeInlineTest("src/C" + (i * 7 % 13) + ".java", i % 40, "new Here(\"Unit\", " + (i % 40)
+                        + ").given(x, " + (i % 300) + ").checkEq(y, " + (i % 300) + ");");
+            }
+        }
+        List<Path> runs = InlineTestLogSorter.split(log.toString(), 4 << 10, -1,
+                new InlineTestLogSorter.BufferedBytes());
+        assertTrue(runs.size() > 9, "runs " + runs.size());
+        for (Path run : runs) {
+            Files.delete(run);
+        }
+        Map<String, Map<Integer, Set<String>>> sorted = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        // more than 3 * 3 runs, so that intermediate runs are merged twice
+        InlineTestLogSorter.forEachFile(log.toString(), 4 << 10, 3, (srcPath, lineMap, typed) -> {
+            order.add(srcPath);
+            sorted.put(srcPath, lineMap);
+        });
+        assertEquals(Parser.readInlineTests(log.toString()), sorted);
+        assertEquals(order.stream().sorted().distinct().collect(Collectors.toList()), order);
+        Files.delete(log);
+        // intermediate runs are removed
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() == 0);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testBufferedBytesBounded() throws IOException {
+        Path dir = Files.createTempDirectory("raninline");
+        Path log = dir.resolve("inlinetest-log.txt");
+        try (FileWriter writer = new FileWriter(log.toFile())) {
+            for (int i = 0; i < 5000; i++) {
+                writer.write("src/C" + (i * 7 % 13) + ".java;" + (i % 40) + ";new Here(\"Unit\", " + (i % 40)
+                        + ").given(x, " + (i % 300) + ").checkEq(y, " + (i % 300) + ");\n");
+            }
+        }
+        long runBytes = 16 << 10;
+        InlineTestLogSorter.BufferedBytes buffered = new InlineTestLogSorter.BufferedBytes();
+        // many small chunks, none of which fills a run by itself
+        List<Path> runs = InlineTestLogSorter.split(log.toString(), runBytes, 4096, buffered);
+        // the writers of the parsing threads may each exceed their share by a record
+        long slack = (ForkJoinPool.getCommonPoolParallelism() + 1) * 1024L;
+        assertTrue(buffered.peak() <= runBytes + slack, "peak " + buffered.peak());
+        for (Path run : runs) {
+            Files.delete(run);
+        }
+        Files.delete(log);
+        Files.delete(dir);
+    }
+}
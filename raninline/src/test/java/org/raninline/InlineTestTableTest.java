@@ -0,0 +1,148 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+
+public class InlineTestTableTest {
+    @Test
+    public void testCompact() {
+        CompilationUnit cu = StaticJavaParser.parse("class A { void m(int x) { int y = x + 1; } }");
+        TypeDeclaration<?> type = cu.getType(0);
+        List<Statement> inlineTests = new ArrayList<>();
+        for (String inlineTest : Arrays.asList("new Here(\"Unit\", 1).given(x, 1).checkEq(y, 2);",
+                "new Here(\"Unit\", 1).checkTrue(group());", "new Here(\"Unit\", 1).given(x, 2).checkEq(y, 3);",
+                "new Here(\"Unit\", 1).given(x, -1).checkEq(y, 0);")) {
+            inlineTests.add(StaticJavaParser.parseStatement(inlineTest));
+        }
+        List<Statement> statements = InlineTestTable.compact(inlineTests, type, 1);
+        assertEquals(2, statements.size());
+        assertEquals(StaticJavaParser.parseStatement(
+                "for (int inlinegen$row = 0; inlinegen$row < INLINE_TESTS_1_COL0.length; inlinegen$row++) {"
+                        + " new Here(\"Unit\", 1).given(x, INLINE_TESTS_1_COL0[inlinegen$row])"
+                        + ".checkEq(y, INLINE_TESTS_1_COL1[inlinegen$row]); }"),
+                statements.get(0));
+        assertEquals(inlineTests.get(1), statements.get(1));
+        assertEquals(StaticJavaParser.parseBodyDeclaration("private static final int[] INLINE_TESTS_1_COL0 = { 1, 2, -1 };"),
+                type.getMember(0));
+        assertEquals(StaticJavaParser.parseBodyDeclaration("private static final int[] INLINE_TESTS_1_COL1 = { 2, 3, 0 };"),
+                type.getMember(1));
+        assertEquals("INLINE_TESTS_1", InlineTestTable.tableName(statements.get(0)));
+        assertTrue(InlineTestTable.isInlineTest(statements.get(0)));
+    }
+
+    @Test
+    public void testCompactKeepsLiteralTypes() {
+        CompilationUnit cu = StaticJavaParser.parse("class A { void m(long x, Object y) { } }");
+        TypeDeclaration<?> type = cu.getType(0);
+        List<Statement> inlineTests = new ArrayList<>();
+        for (String inlineTest : Arrays.asList("new Here(\"Unit\", 1).given(x, 1L).checkEq(y, \"a\");",
+                "new Here(\"Unit\", 1).given(x, 2).checkEq(y, \"b\");",
+                "new Here(\"Unit\", 1).given(x, 3L).checkEq(y, null);")) {
+            inlineTests.add(StaticJavaParser.parseStatement(inlineTest));
+        }
+        // 1L and 2 are of different types, null is not a typed literal
+        assertEquals(inlineTests, InlineTestTable.compact(inlineTests, type, 1));
+        assertEquals(0, type.getFields().size());
+    }
+
+    @Test
+    public void testCompactedCompiles() throws IOException {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        CompilationUnit cu = StaticJavaParser.parse("package p; import org.inlinetest.Here;\n"
+                + "class A { int m(int inlinegen, String s) { int y = inlinegen + 1; return y; } }");
+        TypeDeclaration<?> type = cu.getType(0);
+        List<Statement> inlineTests = new ArrayList<>();
+        for (String inlineTest : Arrays.asList("new Here(\"Unit\", 1).given(inlinegen, 1).given(s, \"a\").checkEq(y, 2);",
+                "new Here(\"Unit\", 1).given(inlinegen, 2).given(s, \"b\").checkEq(y, 3);")) {
+            inlineTests.add(StaticJavaParser.parseStatement(inlineTest));
+        }
+        List<Statement> statements = InlineTestTable.compact(inlineTests, type, 1);
+        assertEquals(1, statements.size());
+        BlockStmt body = cu.findFirst(BlockStmt.class).get();
+        body.getStatements().addAfter(statements.get(0), body.getStatement(0));
+        InMemoryCompiler.Result result = InMemoryCompiler.compile("p.A", cu.toString(),
+                Arrays.asList("-sourcepath", hereRoot().toString()));
+        assertTrue(result.success, result.diagnostics.toString());
+    }
+
+    @Test
+    public void testNoTablesInInnerClasses() throws IOException {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        CompilationUnit cu = StaticJavaParser.parse("package p; import org.inlinetest.Here;\n" + "class A {\n"
+                + "    class I { int m(int x) { int y = x + 1; return y; } }\n"
+                + "    static class S { int m(int x) { int y = x + 1; return y; } }\n"
+                + "    Object o = new Object() { class J { int m(int x) { int y = x + 1; return y; } } };\n" + "}\n");
+        int tables = 0;
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            List<Statement> inlineTests = new ArrayList<>();
+            for (String inlineTest : Arrays.asList("new Here(\"Unit\", 1).given(x, 1).checkEq(y, 2);",
+                    "new Here(\"Unit\", 1).given(x, 2).checkEq(y, 3);")) {
+                inlineTests.add(StaticJavaParser.parseStatement(inlineTest));
+            }
+            @SuppressWarnings("unchecked")
+            TypeDeclaration<?> type = method.findAncestor(TypeDeclaration.class).get();
+            List<Statement> statements = InlineTestTable.compact(inlineTests, type, 1);
+            if (statements.size() == 1) {
+                tables++;
+            }
+            BlockStmt body = method.getBody().get();
+            for (int i = statements.size() - 1; i >= 0; i--) {
+                body.getStatements().addAfter(statements.get(i), body.getStatement(0));
+            }
+        }
+        // only the static class takes a table
+        assertEquals(1, tables);
+        InMemoryCompiler.Result result = InMemoryCompiler.compile("p.A", cu.toString(),
+                Arrays.asList("--release", "8", "-sourcepath", hereRoot().toString()));
+        assertTrue(result.success, result.diagnostics.toString());
+    }
+
+    /**
+     * @return a source root with the Here API: given and checkEq only
+     */
+    private static Path hereRoot() throws IOException {
+        Path root = Files.createTempDirectory("raninline");
+        Files.createDirectories(root.resolve("org/inlinetest"));
+        Files.write(root.resolve("org/inlinetest/Here.java"), ("package org.inlinetest;\n" + "public class Here {\n"
+                + "    public Here(String kind, int line) {}\n"
+                + "    public Here given(Object variable, Object value) { return this; }\n"
+                + "    public Here checkEq(Object variable, Object value) { return this; }\n" + "}\n").getBytes());
+        return root;
+    }
+
+    @Test
+    public void testMethodCodeSizes() {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        InMemoryCompiler.Result result = InMemoryCompiler.compile("p.B",
+                "package p; public class B { long l = 1L; static int m(int x) { return x + 1; } }",
+                new ArrayList<>());
+        assertTrue(result.success);
+        Map<String, Integer> sizes = InMemoryCompiler.methodCodeSizes(result.classes.get("p.B"));
+        // iload_0 iconst_1 iadd ireturn
+        assertEquals(4, sizes.get("m(I)I"));
+        assertTrue(sizes.containsKey("<init>()V"));
+    }
+}
@@ -0,0 +1,96 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+
+public class InlineTestTest {
+    private static InlineTest sample() {
+        InlineTest inlineTest = new InlineTest();
+        inlineTest.testName = "Unit";
+        inlineTest.targetStmtLineNo = 12;
+        inlineTest.srcPath = "A.java";
+        inlineTest.givens.add(InlineTestStep.given("s", InstrumentHelper.parseTypedValue("String", "a\nb\"c")));
+        inlineTest.givens.add(InlineTestStep.given("this.n", InstrumentHelper.parseTypedValue("long", -3L)));
+        inlineTest.givens.add(InlineTestStep.given("c", InstrumentHelper.parseTypedValue("char", 'x')));
+        inlineTest.givens.add(InlineTestStep.given("d", InstrumentHelper.parseTypedValue("double", Double.NaN)));
+        inlineTest.givens.add(InlineTestStep.given("f", InstrumentHelper.parseTypedValue("float", -1.5e-7f)));
+        inlineTest.givens.add(InlineTestStep.given("a", InstrumentHelper.parseTypedValue("int[]", new int[] { 1, -2 })));
+        inlineTest.givens.add(InlineTestStep.given("b", InstrumentHelper.parseTypedValue("String[]", new String[] { "x", null })));
+        inlineTest.givens.add(InlineTestStep.given("o", InlineTestValue.blob("\"3.xml\"")));
+        inlineTest.assertions.add(InlineTestStep.checkEq("r", InstrumentHelper.parseTypedValue("boolean", true)));
+        inlineTest.assertions.add(InlineTestStep.checkEq("p", InlineTestValue.nullValue()));
+        inlineTest.assertions.add(InlineTestStep.checkGroup(false));
+        return inlineTest;
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("new Here(\"Unit\", 12).given(s,\"a\\nb\\\"c\").given(this.n,-3L).given(c,'x').given(d,NaN)"
+                + ".given(f,-1.5E-7).given(a,new int[] {1, -2}).given(b,new String[] {\"x\", null})"
+                + ".given(o,\"3.xml\").checkEq(r,true).checkEq(p,null).checkFalse(group());", sample().toString());
+    }
+
+    @Test
+    public void testToStatementSameAsParsed() {
+        InlineTest inlineTest = sample();
+        assertEquals(StaticJavaParser.parseStatement(inlineTest.toString()), inlineTest.toStatement());
+        assertEquals(StaticJavaParser.parseStatement(inlineTest.toString()).toString(),
+                inlineTest.toStatement().toString());
+        inlineTest.testName = null;
+        assertEquals(StaticJavaParser.parseStatement(inlineTest.toString()), inlineTest.toStatement());
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException {
+        InlineTest inlineTest = sample();
+        InlineTest decoded = InlineTest.decode(inlineTest.encode());
+        assertEquals(inlineTest.toString(), decoded.toString());
+        assertArrayEquals(inlineTest.encode(), decoded.encode());
+        Path log = Files.createTempFile("raninline", ".bin");
+        Files.delete(log);
+        try (EventLogWriter writer = EventLogWriter.open(log.toString())) {
+            writer.writeInlineTest(inlineTest);
+            writer.writeInlineTest("A.java", 12, "new Here().checkEq(x,1);");
+        }
+        try (EventLogReader reader = new EventLogReader(log.toString())) {
+            reader.next();
+            assertEquals(inlineTest.toString(), reader.inlineTest());
+            assertEquals(inlineTest.toString(), reader.typedInlineTest().toString());
+            reader.next();
+            assertNull(reader.typedInlineTest());
+        }
+        Files.delete(log);
+    }
+
+    @Test
+    public void testTypedThroughIndexAndExternalSort() throws IOException {
+        InlineTest inlineTest = sample();
+        Path log = Files.createTempFile("raninline", ".bin");
+        Files.delete(log);
+        try (EventLogWriter writer = EventLogWriter.open(log.toString())) {
+            writer.writeInlineTest(inlineTest);
+            writer.writeInlineTest("A.java", 12, "new Here().checkEq(x,1);");
+        }
+        Map<String, InlineTest> indexed = new HashMap<>();
+        LogIndex.readInlineTests(log.toString(), "A.java", 12, indexed);
+        assertEquals(1, indexed.size());
+        assertArrayEquals(inlineTest.encode(), indexed.get(inlineTest.toString()).encode());
+        Map<String, InlineTest> sorted = new HashMap<>();
+        InlineTestLogSorter.forEachFile(log.toString(), 1 << 10, (srcPath, lineMap, typed) -> sorted.putAll(typed));
+        assertEquals(1, sorted.size());
+        assertArrayEquals(inlineTest.encode(), sorted.get(inlineTest.toString()).encode());
+        Files.delete(log);
+        Files.deleteIfExists(LogIndex.indexPathOf(log.toString()));
+    }
+}
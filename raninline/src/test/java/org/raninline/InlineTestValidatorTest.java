@@ -0,0 +1,109 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class InlineTestValidatorTest {
+    private static final String SOURCE = "package p;\n\nimport org.inlinetest.Here;\n\n"
+            + "class A {\n\n"
+            + "    private static final int[] INLINE_TESTS_9_COL0 = { 1, 2 };\n\n"
+            + "    private static final int[] INLINE_TESTS_9_COL1 = { 2, missing };\n\n"
+            + "    int m(int x, B b) {\n"
+            + "        int y = x + 1;\n"
+            + "        new Here(\"Unit\", 10).given(x, 1).checkEq(y, 2);\n"
+            + "        new Here(\"Unit\", 10).given(b.secret, 1).checkEq(y, 2);\n"
+            + "        for (int inlinegen$row = 0; inlinegen$row < INLINE_TESTS_9_COL0.length; inlinegen$row++) {\n"
+            + "            new Here(\"Unit\", 10).given(x, INLINE_TESTS_9_COL0[inlinegen$row])"
+            + ".checkEq(y, INLINE_TESTS_9_COL1[inlinegen$row]);\n"
+            + "        }\n"
+            + "        return y;\n" + "    }\n" + "}\n";
+
+    /**
+     * @param withHere whether the project has the Here class
+     * @return the source root of a project with p.A (SOURCE) and p.B
+     */
+    private static Path project(boolean withHere) throws IOException {
+        Path root = Files.createTempDirectory("raninline");
+        if (withHere) {
+            Files.createDirectories(root.resolve("org/inlinetest"));
+            Files.write(root.resolve("org/inlinetest/Here.java"),
+                    ("package org.inlinetest;\n" + "public class Here {\n"
+                            + "    public Here(String kind, int line) {}\n"
+                            + "    public Here given(Object variable, Object value) { return this; }\n"
+                            + "    public Here checkEq(Object variable, Object value) { return this; }\n" + "}\n")
+                            .getBytes());
+        }
+        Files.createDirectories(root.resolve("p"));
+        Files.write(root.resolve("p/B.java"), "package p;\nclass B { private int secret; }\n".getBytes());
+        Files.write(root.resolve("p/A.java"), SOURCE.getBytes());
+        return root;
+    }
+
+    @Test
+    public void testDropInlineTestsThatDoNotCompile() throws IOException {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        Path src = project(true).resolve("p/A.java");
+        String classpath = Constant.compileClasspath;
+        Constant.compileClasspath = "";
+        try {
+            assertEquals(2, InlineTestValidator.validate(src.toString(), SOURCE, Parser.JAVA_PARSER.get()));
+            String validated = new String(Files.readAllBytes(src));
+            assertTrue(validated.contains("new Here(\"Unit\", 10).given(x, 1).checkEq(y, 2);"));
+            assertFalse(validated.contains("secret"));
+            assertFalse(validated.contains("INLINE_TESTS_9"));
+            // the rest compiles now
+            assertEquals(0, InlineTestValidator.validate(src.toString(), validated, Parser.JAVA_PARSER.get()));
+        } finally {
+            Constant.compileClasspath = classpath;
+        }
+    }
+
+    @Test
+    public void testKeepInlineTestsWithoutHere() throws IOException {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        Path src = project(false).resolve("p/A.java");
+        String classpath = Constant.compileClasspath;
+        Constant.compileClasspath = "";
+        try {
+            assertEquals(0, InlineTestValidator.validate(src.toString(), SOURCE, Parser.JAVA_PARSER.get()));
+        } finally {
+            Constant.compileClasspath = classpath;
+        }
+        assertEquals(SOURCE, new String(Files.readAllBytes(src)));
+    }
+
+    @Test
+    public void testKeepInlineTestsWithErrorsElsewhere() throws IOException {
+        if (!InMemoryCompiler.isAvailable()) {
+            return;
+        }
+        Path root = project(true);
+        // B no longer compiles on its own, so neither does A
+        Files.write(root.resolve("p/B.java"), "package p;\nclass B { private Missing secret; }\n".getBytes());
+        Path src = root.resolve("p/A.java");
+        String source = SOURCE.replace("int y = x + 1;", "int y = x + unknown;");
+        Files.write(src, source.getBytes());
+        String classpath = Constant.compileClasspath;
+        Constant.compileClasspath = "";
+        try {
+            assertEquals(0, InlineTestValidator.validate(src.toString(), source, Parser.JAVA_PARSER.get()));
+            // no classpath, no validation
+            Constant.compileClasspath = null;
+            assertEquals(0, InlineTestValidator.validate(src.toString(), source, Parser.JAVA_PARSER.get()));
+        } finally {
+            Constant.compileClasspath = classpath;
+        }
+        assertEquals(source, new String(Files.readAllBytes(src)));
+    }
+}
@@ -1,5 +1,9 @@
 package org.raninline;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -481,4 +485,56 @@ public class InstrumentTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testMinimalPlacement() throws IOException {
+        String source = "public class P {\n" + "    int m(int x, String s) {\n" + "        int y = x + 1;\n"
+                + "        if (s.isEmpty()) {\n" + "            return y;\n" + "        }\n"
+                + "        return y * 2;\n" + "    }\n" + "}\n";
+        // the check comes right after the END probe of a statement
+        List<String> lines = instrumentMinimal(source, 3);
+        assertCheckAfter(lines, Constant.TARGET_STMT_END);
+        assertEquals(1, count(lines, Constant.CHECK_COVERAGE));
+        // and after the probes that start the branches of an if
+        lines = instrumentMinimal(source, 4);
+        assertCheckAfter(lines, Constant.TARGET_STMT_EXECUTED);
+        assertCheckAfter(lines, Constant.TARGET_STMT_NOT_EXECUTED);
+        assertEquals(2, count(lines, Constant.CHECK_COVERAGE));
+    }
+
+    /**
+     * @return the trimmed lines of the source instrumented at a line with
+     *         minimal placement
+     */
+    private List<String> instrumentMinimal(String source, int line) throws IOException {
+        Path dir = Files.createTempDirectory("raninline");
+        Path src = dir.resolve("P.java");
+        Files.write(src, source.getBytes());
+        boolean minimalPlacement = Constant.minimalPlacement;
+        Constant.minimalPlacement = true;
+        try {
+            Parser.instrument(src.toString(), Integer.toString(line), logFilePath, logFilePath, classesDirectory);
+        } finally {
+            Constant.minimalPlacement = minimalPlacement;
+        }
+        List<String> lines = Files.readAllLines(src).stream().map(String::trim).collect(Collectors.toList());
+        Files.delete(src);
+        Files.delete(dir);
+        assertFalse(lines.stream().anyMatch(l -> l.startsWith("try") || l.contains("finally")), String.join("\n", lines));
+        return lines;
+    }
+
+    private static void assertCheckAfter(List<String> lines, String probe) {
+        for (int i = 0; i + 1 < lines.size(); i++) {
+            if (lines.get(i).contains("\"" + probe + "\"")) {
+                assertTrue(lines.get(i + 1).contains("\"" + Constant.CHECK_COVERAGE + "\""), String.join("\n", lines));
+                return;
+            }
+        }
+        throw new AssertionError("no " + probe + " probe in\n" + String.join("\n", lines));
+    }
+
+    private static long count(List<String> lines, String prompt) {
+        return lines.stream().filter(l -> l.contains("\"" + prompt + "\"")).count();
+    }
 }
@@ -0,0 +1,61 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+
+public class LineIndexTest {
+    @Test
+    public void testPathTo() {
+        CompilationUnit cu = StaticJavaParser.parse("class A {\n" // 1
+                + "    void m(int x) {\n" // 2
+                + "        if (x > 0)\n" // 3
+                + "            x = 1;\n" // 4
+                + "        x = 2; x = 3;\n" // 5
+                + "        for (;;) {\n" // 6
+                + "            x = 4;\n" // 7
+                + "        }\n" // 8
+                + "    }\n" // 9
+                + "    void n() {}\n" // 10
+                + "}\n");
+        LineIndex index = LineIndex.build(cu);
+        List<ExpressionStmt> stmts = cu.findAll(ExpressionStmt.class);
+        MethodDeclaration m = cu.getType(0).getMethodsByName("m").get(0);
+        MethodDeclaration n = cu.getType(0).getMethodsByName("n").get(0);
+
+        Set<Node> path = index.pathTo(5);
+        assertTrue(path.contains(cu));
+        assertTrue(path.contains(m));
+        assertTrue(path.contains(stmts.get(1)));
+        assertTrue(path.contains(stmts.get(2)));
+        assertFalse(path.contains(stmts.get(0)));
+        assertFalse(path.contains(cu.findFirst(IfStmt.class).get()));
+        assertFalse(path.contains(n));
+
+        path = index.pathTo(4);
+        assertTrue(path.contains(cu.findFirst(IfStmt.class).get()));
+        assertTrue(path.contains(stmts.get(0)));
+        assertFalse(path.contains(stmts.get(1)));
+
+        // inside a block that begins on an earlier line
+        path = index.pathTo(8);
+        assertTrue(path.contains(m));
+        assertFalse(path.contains(stmts.get(3)));
+
+        // the closing brace of the class
+        assertEquals(2, index.pathTo(11).size());
+        assertTrue(index.pathTo(11).contains(cu.getType(0)));
+    }
+}
@@ -0,0 +1,93 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class LogIndexTest {
+    private static void assertSameAsScan(String log) throws IOException {
+        Map<String, Map<Integer, Set<String>>> expected = Parser.readInlineTests(log);
+        for (String srcPath : expected.keySet()) {
+            for (Map.Entry<Integer, Set<String>> entry : expected.get(srcPath).entrySet()) {
+                assertEquals(entry.getValue(), LogIndex.readInlineTests(log, srcPath, entry.getKey()));
+            }
+        }
+        assertTrue(LogIndex.readInlineTests(log, "A.java", 12345).isEmpty());
+        assertTrue(LogIndex.readInlineTests(log, "Missing.java", 3).isEmpty());
+    }
+
+    @Test
+    public void testTextAndBinaryLog() throws IOException {
+        Path log = Files.createTempFile("raninline", ".txt");
+        try (FileWriter writer = new FileWriter(log.toFile())) {
+            writer.write("A.java;3;new Here(\"Unit\", 3).given(s, \"a;b\").checkEq(t, 1);\n");
+            writer.write("Unit\n");
+            for (int i = 0; i < 2000; i++) {
+                writer.write("src/C" + (i % 7) + ".java;" + (i % 50) + ";new Here(\"Unit\", " + (i % 50)
+                        + ").given(x, " + i + ").checkEq(y, " + i + ");\n");
+            }
+            writer.write("A.java;3;new Here(\"Unit\", 3).given(s, \"c\").checkEq(t, 2);");
+        }
+        Path bin = Files.createTempFile("raninline", ".bin");
+        EventLog.convertToBinary(log.toString(), bin.toString());
+        assertSameAsScan(log.toString());
+        assertSameAsScan(bin.toString());
+        assertEquals(2, LogIndex.readInlineTests(log.toString(), "A.java", 3).size());
+        // the index is rebuilt once the log changes
+        try (FileWriter writer = new FileWriter(log.toFile(), true)) {
+            writer.write("\nA.java;3;new Here(\"Unit\", 3).given(s, \"d\").checkEq(t, 3);\n");
+        }
+        Files.setLastModifiedTime(log, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertEquals(3, LogIndex.readInlineTests(log.toString(), "A.java", 3).size());
+        for (Path path : new Path[] { log, bin }) {
+            Files.deleteIfExists(LogIndex.indexPathOf(path.toString()));
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testConcurrentBuilds() throws Exception {
+        Path dir = Files.createTempDirectory("raninline");
+        Path log = dir.resolve("log.txt");
+        try (FileWriter writer = new FileWriter(log.toFile())) {
+            for (int i = 0; i < 2000; i++) {
+                writer.write("src/C" + (i % 7) + ".java;" + (i % 50) + ";new Here(\"Unit\", " + (i % 50)
+                        + ").given(x, " + i + ").checkEq(y, " + i + ");\n");
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> builds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            builds.add(pool.submit(() -> {
+                LogIndex.build(log.toString());
+                return null;
+            }));
+        }
+        for (Future<?> build : builds) {
+            build.get();
+        }
+        pool.shutdown();
+        assertSameAsScan(log.toString());
+        // no temporary index is left behind
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        Files.delete(LogIndex.indexPathOf(log.toString()));
+        Files.delete(log);
+        Files.delete(dir);
+    }
+}
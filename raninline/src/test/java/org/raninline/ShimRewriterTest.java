@@ -0,0 +1,49 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+
+public class ShimRewriterTest {
+    @Test
+    public void testRewrite() {
+        CompilationUnit cu = StaticJavaParser.parse("class A {\n" + "    String name;\n"
+                + "    void m(String s, java.util.List<String> list, Object o) {\n"
+                + "        String[] a = s.substring(1).split(\",\");\n"
+                + "        int b = name.indexOf('x') + o.toString().indexOf('x');\n"
+                + "        String c = String.format(\"%d\", b);\n"
+                + "        Matcher m = Pattern.compile(\"a+\").matcher(s);\n"
+                + "        boolean d = m.find() && m.group(1).isEmpty() && Pattern.matches(\"a\", s);\n"
+                + "        long e = list.stream().filter(x -> x.isEmpty()).count();\n"
+                + "        Object f = list.stream().sorted().count();\n"
+                + "        java.util.function.Function<String, Integer> g = s -> s.indexOf(\"y\");\n" + "    }\n"
+                + "}\n");
+        assertEquals("String[] a = new org.raninline.IT_String(new org.raninline.IT_String(s).substring(1)).split(\",\");",
+                rewrite(cu, 0));
+        // the receiver type of o.toString() is not known
+        assertEquals("int b = new org.raninline.IT_String(name).indexOf('x') + o.toString().indexOf('x');",
+                rewrite(cu, 1));
+        assertEquals("String c = org.raninline.IT_String.format(\"%d\", b);", rewrite(cu, 2));
+        assertEquals("Matcher m = Pattern.compile(\"a+\").matcher(s);", rewrite(cu, 3));
+        assertEquals("boolean d = new org.raninline.IT_Matcher(m).find()"
+                + " && new org.raninline.IT_Matcher(m).group(1).isEmpty()"
+                + " && org.raninline.IT_Matcher.matches(\"a\", s);", rewrite(cu, 4));
+        assertEquals("long e = new org.raninline.IT_Stream<>(list).filter(x -> x.isEmpty()).count();",
+                rewrite(cu, 5));
+        // sorted is not an operation of IT_Stream
+        assertEquals("Object f = list.stream().sorted().count();", rewrite(cu, 6));
+        // the lambda parameter s hides the parameter s and has no declared type
+        assertEquals("java.util.function.Function<String, Integer> g = s -> s.indexOf(\"y\");", rewrite(cu, 7));
+    }
+
+    private static String rewrite(CompilationUnit cu, int index) {
+        Statement stmt = cu.findFirst(MethodDeclaration.class).get().getBody().get().getStatement(index);
+        ShimRewriter.rewrite(stmt, new Context());
+        return stmt.toString();
+    }
+}
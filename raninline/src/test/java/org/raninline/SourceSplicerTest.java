@@ -0,0 +1,48 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+public class SourceSplicerTest {
+    @Test
+    public void testSpliceEditedMembers() {
+        String source = "package p;\n\nimport java.util.List;\n\n" + "class A {\n"
+                + "  int  f = 1 ;   // unusual formatting\n\n"
+                + "  /** Doc. */\n" + "  int m(int x) {\n" + "    return x;\n" + "  }\n\n"
+                + "  void n( ) { m( 1 ); }\n" + "}\n";
+        CompilationUnit cu = StaticJavaParser.parse(source);
+        SourceSplicer splicer = SourceSplicer.observe(cu, source);
+        MethodDeclaration m = cu.getType(0).getMethodsByName("m").get(0);
+        m.getBody().get().getStatements().addFirst(StaticJavaParser.parseStatement("x++;"));
+        cu.getType(0).getMembers().addFirst(StaticJavaParser.parseBodyDeclaration("static int g = 2;"));
+        cu.addImport("java.util.Map");
+        String expected = "package p;\n\nimport java.util.List;\nimport java.util.Map;\n\n" + "class A {\n"
+                + "  static int g = 2;\n\n"
+                + "  int  f = 1 ;   // unusual formatting\n\n"
+                + "  /**\n   * Doc.\n   */\n" + "  int m(int x) {\n" + "      x++;\n" + "      return x;\n" + "  }\n\n"
+                + "  void n( ) { m( 1 ); }\n" + "}\n";
+        assertEquals(expected, splicer.print());
+    }
+
+    @Test
+    public void testRemoveMember() {
+        String source = "class A {\r\n\r\n    int f;\r\n\r\n    int g;\r\n}\r\n";
+        CompilationUnit cu = StaticJavaParser.parse(source);
+        SourceSplicer splicer = SourceSplicer.observe(cu, source);
+        cu.findFirst(FieldDeclaration.class).get().remove();
+        assertEquals("class A {\r\n\r\n    int g;\r\n}\r\n", splicer.print());
+    }
+
+    @Test
+    public void testUnchanged() {
+        String source = "class A {  void m() {int x=1;}  }";
+        CompilationUnit cu = StaticJavaParser.parse(source);
+        assertEquals(source, SourceSplicer.observe(cu, source).print());
+    }
+}
@@ -0,0 +1,83 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+
+public class TargetClassifierTest {
+    @Test
+    public void testClassify() {
+        CompilationUnit cu = StaticJavaParser.parse("class A {\n" + "    void m(String s, int x) {\n"
+                + "        int y = x & 1;\n" + "        String[] parts = s.split(\",\");\n"
+                + "        Runnable r = () -> { x |= s.matches(\"a*\") ? 1 : 0; };\n" + "        int z = x + 1;\n"
+                + "        Object o = new Object() { int h = x >> 1; };\n" + "        if (s.substring(1).isEmpty()) {}\n"
+                + "        long n = list.stream().count();\n" + "    }\n" + "}\n");
+        Map<Node, List<String>> categories = TargetClassifier.classify(cu);
+        List<ExpressionStmt> stmts = cu.findAll(ExpressionStmt.class);
+        assertEquals(Arrays.asList("bit"), categories.get(stmts.get(0)));
+        assertEquals(Arrays.asList("string"), categories.get(stmts.get(1)));
+        // the outer statement and the statement in the lambda
+        assertEquals(Arrays.asList("bit"), categories.get(stmts.get(2)));
+        assertEquals(Arrays.asList("bit"), categories.get(stmts.get(3)));
+        assertEquals(Collections.emptyList(), categories.get(stmts.get(4)));
+        // anonymous classes add nothing to the statement creating them
+        assertEquals(Collections.emptyList(), categories.get(stmts.get(5)));
+        assertEquals(Arrays.asList("string"), categories.get(cu.findFirst(IfStmt.class).get().getCondition()));
+        assertEquals(Arrays.asList("stream"), categories.get(stmts.get(6)));
+    }
+
+    @Test
+    public void testClassifyAnonymousClass() {
+        CompilationUnit cu = StaticJavaParser.parse("class A {\n" + "    void m(String s) {\n"
+                + "        Runnable r = new Runnable() {\n" + "            public void run() {\n"
+                + "                String[] parts = s.split(\",\");\n" + "            }\n" + "        };\n"
+                + "        String[] ps = s.substring(1).split(new Object() { String d = s.trim(); }.d);\n"
+                + "    }\n" + "}\n");
+        Map<Node, List<String>> categories = TargetClassifier.classify(cu);
+        List<ExpressionStmt> stmts = cu.findAll(ExpressionStmt.class);
+        // the anonymous class adds nothing to the statement creating it
+        assertEquals(Collections.emptyList(), categories.get(stmts.get(0)));
+        // but its own statements are candidates
+        assertEquals(Arrays.asList("string"), categories.get(stmts.get(1)));
+        assertEquals(Arrays.asList("string"), categories.get(stmts.get(2)));
+    }
+
+    @Test
+    public void testCustomRule() {
+        TargetRule rule = new TargetRule() {
+            public String category() {
+                return "json";
+            }
+
+            public Set<String> methodNames() {
+                return new HashSet<>(Arrays.asList("toJson", "fromJson"));
+            }
+
+            public boolean matches(MethodCallExpr call) {
+                return call.getScope().isPresent() && call.getScope().get().toString().equals("gson");
+            }
+        };
+        List<TargetRule> rules = TargetRules.builtIn();
+        rules.add(rule);
+        ExpressionStmt stmt = StaticJavaParser
+                .parseStatement("String s = gson.toJson(x.split(\",\")) + other.toJson(y);").asExpressionStmt();
+        assertEquals(Arrays.asList("json"), stmt.accept(new TargetClassifier(new TargetRules(rules)), null));
+        ExpressionStmt nested = StaticJavaParser.parseStatement("String s = other.toJson(x.split(\",\"));")
+                .asExpressionStmt();
+        assertEquals(Arrays.asList("string"), nested.accept(new TargetClassifier(new TargetRules(rules)), null));
+    }
+}
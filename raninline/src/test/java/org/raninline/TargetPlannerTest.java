@@ -0,0 +1,68 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TargetPlannerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPlan() throws IOException {
+        Path manifest = tempDir.resolve(Constant.TARGETS_FILE_NAME);
+        Files.write(manifest, Arrays.asList("src/A.java;3;string;A.m", "src/A.java;5;regex,string;A.m",
+                "src/A.java;9;string;A.n", "src/B.java;4;collection;B.<init>", "src/B.java;8;string;B.f"));
+        Path histogram = tempDir.resolve(Constant.TARGET_STMTS_HIT_COUNTER_FILE_NAME);
+        // paths written differently from the manifest still match
+        Files.write(histogram, Arrays.asList("src/./A.java:3;7", "src/A.java:5;7", "src/A.java:9;1000000",
+                "src/B.java:4;250", "src/B.java:8;0"));
+        Path plan = tempDir.resolve(Constant.PLAN_FILE_NAME);
+        assertEquals(4, TargetPlanner.plan(manifest.toString(), histogram.toString(), plan.toString()));
+        assertEquals(Arrays.asList("src/B.java;4;100;1;250;collection;B.<init>",
+                "src/A.java;9;10;100;1000000;string;A.n", "src/A.java;5;100;1;7;regex,string;A.m",
+                "src/A.java;3;100;1;7;string;A.m"), Files.readAllLines(plan));
+        assertEquals(9, TargetPlanner.read(plan.toString()).get(1).line);
+    }
+
+    @Test
+    public void testSampling() {
+        int captured = 0;
+        for (int i = 0; i < 10; i++) {
+            if (InstrumentHelper.isSampled("A.java:9", Constant.TARGET_STMT_START, 4)) {
+                captured++;
+                assertEquals(true, InstrumentHelper.isSampled("A.java:9", Constant.CHECK_COVERAGE, 4));
+            } else {
+                assertEquals(false, InstrumentHelper.isSampled("A.java:9", Constant.TARGET_STMT_END, 4));
+            }
+        }
+        assertEquals(3, captured);
+    }
+
+    @Test
+    public void testCapsKeyedToBatchLog() throws IOException {
+        Path src = tempDir.resolve("A.java");
+        Files.write(src, ("class A {\n" + "    void m(String s) {\n" + "        String[] parts = s.split(\",\");\n"
+                + "    }\n" + "}\n").getBytes());
+        Path plan = tempDir.resolve(Constant.PLAN_FILE_NAME);
+        Files.write(plan, Arrays.asList(src + ";3;10;4;1000;string;A.m"));
+        String log = tempDir.resolve("batch/raninline.txt").toString();
+        String inlineTestLog = tempDir.resolve("batch/inlinetest-log.txt").toString();
+        assertEquals(0, Parser.instrumentBatch(plan.toString(), log, inlineTestLog, null));
+        Path caps = Paths.get(InstrumentHelper.targetCapsPath(log));
+        assertEquals(Arrays.asList(src + ":3;10;4"), Files.readAllLines(caps));
+        // a plain instrument run on the same log does not inherit them
+        Files.write(src, ("class A {\n" + "    void m(String s) {\n" + "        String[] parts = s.split(\",\");\n"
+                + "    }\n" + "}\n").getBytes());
+        Parser.instrument(src.toString(), "3", log, inlineTestLog, null);
+        assertFalse(Files.exists(caps));
+    }
+}
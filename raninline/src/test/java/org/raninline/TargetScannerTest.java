@@ -0,0 +1,90 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class TargetScannerTest {
+    @Test
+    public void testScan() throws IOException {
+        Path root = Files.createTempDirectory("raninline");
+        Path cacheDir = Files.createTempDirectory("raninline-cache");
+        Files.createDirectories(root.resolve("p"));
+        Files.write(root.resolve("p/A.java"), ("package p;\n" + "class A {\n" + "    static int MASK = 1 << 4;\n"
+                + "    A(String s) {\n" + "        String[] parts = s.split(\",\");\n" + "    }\n"
+                + "    boolean m(String s, int x) {\n" + "        s.trim();\n" + "        x = x & MASK;\n"
+                + "        if (s.matches(\"a+\")) {\n" + "            return true;\n" + "        }\n"
+                + "        return false;\n" + "    }\n" + "}\n").getBytes());
+        Files.write(root.resolve("B.java"), "class B { int f() { int y = 1; return y; } }\n".getBytes());
+        Path manifest = root.resolve("targets.txt");
+        String a = root.resolve("p/A.java").toString();
+        List<String> expected = Arrays.asList(a + ";5;string;A.<init>", a + ";9;bit;A.m", a + ";10;regex;A.m");
+
+        assertEquals(0, TargetScanner.scan(root.toString(), manifest.toString(), cacheDir));
+        assertEquals(expected, Files.readAllLines(manifest));
+        // from the cache
+        try (Stream<Path> cached = Files.list(cacheDir)) {
+            assertEquals(2, cached.count());
+        }
+        assertEquals(0, TargetScanner.scan(root.toString(), manifest.toString(), cacheDir));
+        assertEquals(expected, Files.readAllLines(manifest));
+        try (Stream<Path> cached = Files.list(cacheDir)) {
+            assertEquals(2, cached.collect(Collectors.toList()).size());
+        }
+    }
+
+    @Test
+    public void testScanAnonymousClass() throws IOException {
+        Path root = Files.createTempDirectory("raninline");
+        Path cacheDir = Files.createTempDirectory("raninline-cache");
+        Files.write(root.resolve("D.java"), ("class D {\n" + "    void m(String s) {\n"
+                + "        Runnable r = new Runnable() {\n" + "            public void run() {\n"
+                + "                String t = s;\n" + "                String[] parts = s.split(\",\");\n"
+                + "            }\n" + "        };\n" + "        String[] ps = s.split(\",\");\n" + "    }\n"
+                + "}\n").getBytes());
+        Path manifest = root.resolve("targets.txt");
+        String d = root.resolve("D.java").toString();
+
+        assertEquals(0, TargetScanner.scan(root.toString(), manifest.toString(), cacheDir));
+        assertEquals(Arrays.asList(d + ";6;string;D.run", d + ";9;string;D.m"), Files.readAllLines(manifest));
+    }
+
+    @Test
+    public void testScanCountsFailures() throws IOException {
+        Path root = Files.createTempDirectory("raninline");
+        Path cacheDir = Files.createTempDirectory("raninline-cache");
+        // nesting deep enough for JavaParser to overflow the stack
+        StringBuilder expr = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            expr.append('(');
+        }
+        expr.append('1');
+        for (int i = 0; i < 100000; i++) {
+            expr.append(')');
+        }
+        for (String name : Arrays.asList("Deep", "Deeper")) {
+            Files.write(root.resolve(name + ".java"),
+                    ("class " + name + " { int m() { int a = " + expr + "; return a; } }\n").getBytes());
+        }
+        Files.write(root.resolve("C.java"), ("class C {\n" + "    void m(String s) {\n"
+                + "        String[] parts = s.split(\",\");\n"
+                + "    }\n" + "}\n").getBytes());
+        Path manifest = root.resolve("targets.txt");
+        int threads = Constant.constructThreads;
+        try {
+            Constant.constructThreads = 2;
+            assertEquals(2, TargetScanner.scan(root.toString(), manifest.toString(), cacheDir));
+        } finally {
+            Constant.constructThreads = threads;
+        }
+        assertEquals(Arrays.asList(root.resolve("C.java") + ";3;string;C.m"), Files.readAllLines(manifest));
+    }
+}
@@ -0,0 +1,60 @@
+package org.raninline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+
+public class VariableResolverTest {
+    private static final String SOURCE = "package p;\n" + "import java.util.concurrent.locks.ReentrantLock;\n"
+            + "import java.util.function.Function;\n" + "class A {\n" + "    static final int MAX = 3;\n"
+            + "    ReentrantLock lock = new ReentrantLock();\n" + "    String name;\n"
+            + "    void m(String s, Thread t, Function<String, String> f, java.io.InputStream in, int[] xs) {\n"
+            + "        int Count = 1;\n"
+            + "        String r = s.split(\",\")[0] + name + MAX + Count + lock + t + f + in + xs + Math.abs(1) + B.VALUE;\n"
+            + "    }\n" + "}\n" + "class B {\n" + "    static int VALUE = 1;\n" + "}\n";
+
+    @Test
+    public void testFindVariables() throws IOException {
+        Path root = Files.createTempDirectory("resolver");
+        Path srcPath = Files.createDirectories(root.resolve("p")).resolve("A.java");
+        Files.write(srcPath, SOURCE.getBytes());
+        String classpath = Constant.compileClasspath;
+        Constant.compileClasspath = "";
+        try {
+            CompilationUnit cu = StaticJavaParser.parse(srcPath);
+            Context ctx = new Context();
+            ctx.resolver = VariableResolver.forFile(cu, srcPath.toString());
+            ExpressionStmt stmt = cu.findAll(ExpressionStmt.class).get(1);
+            stmt.accept(new FindVariable(), ctx);
+            assertEquals(new HashSet<>(Arrays.asList("s", "name", "MAX", "Count", "xs", "B.VALUE")),
+                    ctx.logVariablesBefore);
+            assertEquals(new HashSet<>(Arrays.asList("r")), ctx.logVariablesAfter);
+
+            assertEquals(VariableResolver.Kind.LOCAL,
+                    ctx.resolver.kind(stmt.findFirst(NameExpr.class, n -> n.getNameAsString().equals("s")).get()));
+            assertEquals(VariableResolver.Kind.FIELD,
+                    ctx.resolver.kind(stmt.findFirst(NameExpr.class, n -> n.getNameAsString().equals("lock")).get()));
+            assertEquals(VariableResolver.Kind.TYPE,
+                    ctx.resolver.kind(stmt.findFirst(NameExpr.class, n -> n.getNameAsString().equals("Math")).get()));
+
+            // the name heuristics without a resolver
+            Context heuristic = new Context();
+            stmt.accept(new FindVariable(), heuristic);
+            assertEquals(new HashSet<>(Arrays.asList("s", "name", "MAX", "lock", "t", "f", "in", "xs")),
+                    heuristic.logVariablesBefore);
+        } finally {
+            Constant.compileClasspath = classpath;
+        }
+    }
+}